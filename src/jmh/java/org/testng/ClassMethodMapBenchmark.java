@@ -0,0 +1,119 @@
+package org.testng;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testng.benchmark.SyntheticSuite;
+import org.testng.collections.Lists;
+import org.testng.internal.Configuration;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the workers of a parallel="methods" suite with many small classes contend to
+ * find out if the method they just ran was the last of its class.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClassMethodMapBenchmark {
+
+  @Param({"10000"})
+  public int methods;
+
+  @Param({"2"})
+  public int methodsPerClass;
+
+  @Param({"8"})
+  public int threads;
+
+  private SyntheticSuite m_suite;
+  private List<ITestNGMethod> m_testMethods;
+  private ExecutorService m_executor;
+
+  @Setup
+  public void setUp() throws IOException, ReflectiveOperationException {
+    m_suite = new SyntheticSuite(methods, methodsPerClass, 0, 0, 0, 0);
+    final TestRunner[] testRunner = new TestRunner[1];
+    ITestRunnerFactory factory = new ITestRunnerFactory() {
+      @Override
+      public TestRunner newTestRunner(ISuite suite, XmlTest test,
+          Collection<IInvokedMethodListener> listeners, List<IClassListener> classListeners) {
+        testRunner[0] = new TestRunner(new Configuration(), suite, test, false, listeners,
+            classListeners);
+        return testRunner[0];
+      }
+    };
+    new SuiteRunner(new Configuration(),
+        m_suite.createXmlSuite(XmlSuite.ParallelMode.METHODS, XmlSuite.ExecutorMode.THREAD_POOL,
+            threads),
+        m_suite.getOutputDirectory().getAbsolutePath(), factory);
+    m_testMethods = Arrays.asList(testRunner[0].getAllTestMethods());
+    m_executor = Executors.newFixedThreadPool(threads);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    m_executor.shutdown();
+    m_suite.delete();
+  }
+
+  @Benchmark
+  public ClassMethodMap create() {
+    return new ClassMethodMap(m_testMethods, null);
+  }
+
+  /**
+   * Every worker removes its share of the methods, interleaved with the other workers like
+   * the methods of a parallel run, and counts the classes it found finished.
+   */
+  @Benchmark
+  public int removeAndCheckIfLast() throws InterruptedException, ExecutionException {
+    final ClassMethodMap map = new ClassMethodMap(m_testMethods, null);
+    List<Callable<Integer>> workers = Lists.newArrayList();
+    for (int i = 0; i < threads; i++) {
+      final int first = i;
+      workers.add(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          int result = 0;
+          for (int j = first; j < m_testMethods.size(); j += threads) {
+            ITestNGMethod m = m_testMethods.get(j);
+            if (map.removeAndCheckIfLast(m, m.getInstance())) {
+              result++;
+            }
+          }
+          return result;
+        }
+      });
+    }
+    int result = 0;
+    for (Future<Integer> future : m_executor.invokeAll(workers)) {
+      result += future.get();
+    }
+    return result;
+  }
+}
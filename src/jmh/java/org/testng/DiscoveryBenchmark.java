@@ -0,0 +1,100 @@
+package org.testng;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testng.benchmark.SyntheticSuiteState;
+import org.testng.collections.Lists;
+import org.testng.internal.Configuration;
+import org.testng.internal.DependencyIndex;
+import org.testng.internal.DynamicGraph;
+import org.testng.internal.MethodHelper;
+import org.testng.internal.RunInfo;
+import org.testng.internal.thread.graph.IWorker;
+import org.testng.xml.XmlTest;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the steps TestNG goes through before running the first test of a suite: finding
+ * the test methods of its classes, ordering them and building the graph of their dependencies.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DiscoveryBenchmark {
+
+  /**
+   * The test runner of the synthetic suite, created once per trial.
+   */
+  @State(Scope.Benchmark)
+  public static class Runner {
+    TestRunner testRunner;
+
+    @Setup
+    public void setUp(SyntheticSuiteState state) {
+      createSuiteRunner(state, this);
+    }
+  }
+
+  private static SuiteRunner createSuiteRunner(SyntheticSuiteState state, final Runner runner) {
+    final ITestRunnerFactory factory = new ITestRunnerFactory() {
+      @Override
+      public TestRunner newTestRunner(ISuite suite, XmlTest test,
+          Collection<IInvokedMethodListener> listeners, List<IClassListener> classListeners) {
+        TestRunner result = new TestRunner(new Configuration(), suite, test, false, listeners,
+            classListeners);
+        if (runner != null) {
+          runner.testRunner = result;
+        }
+        return result;
+      }
+    };
+    return new SuiteRunner(new Configuration(), state.createXmlSuite(),
+        state.suite.getOutputDirectory().getAbsolutePath(), factory);
+  }
+
+  /**
+   * Find the test methods of the classes of the suite, including the collection and ordering
+   * of the methods done when the test runners are created.
+   */
+  @Benchmark
+  public SuiteRunner discovery(SyntheticSuiteState state) {
+    return createSuiteRunner(state, null);
+  }
+
+  @Benchmark
+  public ITestNGMethod[] collectAndOrderMethods(SyntheticSuiteState state, Runner runner) {
+    return MethodHelper.collectAndOrderMethods(
+        Arrays.asList(runner.testRunner.getAllTestMethods()), true /* forTests */, new RunInfo(),
+        runner.testRunner.getSuite().getAnnotationFinder(), false /* unique */,
+        Lists.<ITestNGMethod>newArrayList());
+  }
+
+  @Benchmark
+  public DynamicGraph<ITestNGMethod> graph(Runner runner) {
+    ITestNGMethod[] methods = runner.testRunner.getAllTestMethods();
+    return runner.testRunner.createDynamicGraph(methods, new DependencyIndex(methods));
+  }
+
+  /**
+   * Create the workers of all the test methods, e.g. with {@code -p parallel=CLASSES} for the
+   * workers running a whole class.
+   */
+  @Benchmark
+  public List<IWorker<ITestNGMethod>> workers(Runner runner) {
+    return runner.testRunner.createWorkers(Arrays.asList(runner.testRunner.getAllTestMethods()));
+  }
+}
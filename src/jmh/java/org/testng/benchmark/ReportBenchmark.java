@@ -0,0 +1,85 @@
+package org.testng.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testng.IReporter;
+import org.testng.ISuite;
+import org.testng.TestNG;
+import org.testng.internal.ClassHelper;
+import org.testng.xml.XmlSuite;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time the reporters take to write the report of the synthetic suite, which is
+ * run once per trial. Run with {@code -prof gc} to measure their allocation as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+
+  @Param({
+      "org.testng.reporters.XMLReporter",
+      "org.testng.reporters.EmailableReporter2",
+      "org.testng.reporters.JUnitReportReporter",
+      "org.testng.reporters.SuiteHTMLReporter",
+      "org.testng.reporters.jq.Main"
+  })
+  public String reporter;
+
+  private List<XmlSuite> m_xmlSuites;
+  private List<ISuite> m_suites;
+  private String m_outputDirectory;
+
+  /**
+   * Keeps the results of the suite so that they can be reported again.
+   */
+  public static class Recorder implements IReporter {
+    private List<XmlSuite> m_xmlSuites;
+    private List<ISuite> m_suites;
+
+    @Override
+    public void generateReport(List<XmlSuite> xmlSuites, List<ISuite> suites,
+        String outputDirectory) {
+      m_xmlSuites = xmlSuites;
+      m_suites = suites;
+    }
+  }
+
+  @Setup
+  public void setUp(SyntheticSuiteState state) {
+    Recorder recorder = new Recorder();
+    TestNG tng = new TestNG(false);
+    tng.setVerbose(0);
+    state.suite.getOutputDirectory().mkdirs();
+    m_outputDirectory = state.suite.getOutputDirectory().getAbsolutePath();
+    tng.setOutputDirectory(m_outputDirectory);
+    tng.setXmlSuites(Collections.singletonList(state.createXmlSuite()));
+    tng.addListener(recorder);
+    tng.run();
+    m_xmlSuites = recorder.m_xmlSuites;
+    m_suites = recorder.m_suites;
+  }
+
+  @Benchmark
+  public IReporter generateReport() {
+    IReporter result = (IReporter) ClassHelper.newInstance(ClassHelper.forName(reporter));
+    result.generateReport(m_xmlSuites, m_suites, m_outputDirectory);
+    return result;
+  }
+}
@@ -0,0 +1,63 @@
+package org.testng.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testng.ITestNGListener;
+import org.testng.TestNG;
+import org.testng.TestListenerAdapter;
+import org.testng.xml.XmlSuite;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the whole synthetic suite. Since its methods are empty, the time per test measures the
+ * overhead of TestNG to schedule and invoke a test.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RunBenchmark {
+
+  /**
+   * Reports the number of tests run per second next to the number of suites.
+   */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Tests {
+    public long tests;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      tests = 0;
+    }
+  }
+
+  @Benchmark
+  public TestListenerAdapter run(SyntheticSuiteState state, Tests tests) {
+    TestListenerAdapter result = new TestListenerAdapter();
+    TestNG tng = new TestNG(false);
+    tng.setVerbose(0);
+    tng.setOutputDirectory(state.suite.getOutputDirectory().getAbsolutePath());
+    tng.setXmlSuites(Collections.<XmlSuite>singletonList(state.createXmlSuite()));
+    tng.addListener((ITestNGListener) result);
+    tng.run();
+    if (tng.getStatus() != 0) {
+      throw new IllegalStateException("The synthetic suite failed");
+    }
+    tests.tests += state.suite.getInvocationCount();
+    return result;
+  }
+}
@@ -0,0 +1,161 @@
+package org.testng.benchmark;
+
+import org.testng.collections.Lists;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+/**
+ * Test classes generated and compiled on the fly, with empty test methods whose groups,
+ * dependencies, priorities and data providers are controlled by the parameters.
+ */
+public class SyntheticSuite {
+  public static final int DEFAULT_METHODS_PER_CLASS = 100;
+
+  private final int m_methodCount;
+  private final int m_rowCount;
+  private final Path m_directory;
+  private final List<Class<?>> m_classes = Lists.newArrayList();
+
+  /**
+   * @param methodCount the number of test methods
+   * @param methodsPerClass the number of test methods of each class
+   * @param groupCount the number of groups the methods are spread over, 0 for none
+   * @param dependencyEvery every dependencyEvery method depends on the previous one of its
+   * class, 0 for none
+   * @param priorityCount the number of priorities the methods are spread over, 0 for none
+   * @param rowCount the number of rows of the data provider of each method, 0 for none
+   */
+  public SyntheticSuite(int methodCount, int methodsPerClass, int groupCount,
+      int dependencyEvery, int priorityCount, int rowCount) throws IOException, ReflectiveOperationException {
+    m_methodCount = methodCount;
+    m_rowCount = rowCount;
+    m_directory = Files.createTempDirectory("testng-benchmark");
+
+    List<String> arguments = Lists.newArrayList("-nowarn", "-proc:none",
+        "-d", m_directory.toString(),
+        "-classpath", System.getProperty("java.class.path"));
+    int classCount = (methodCount + methodsPerClass - 1) / methodsPerClass;
+    for (int i = 0; i < classCount; i++) {
+      int methods = Math.min(methodsPerClass, methodCount - i * methodsPerClass);
+      Path source = m_directory.resolve("Synthetic" + i + ".java");
+      Files.write(source, generateClass("Synthetic" + i, methods, groupCount, dependencyEvery,
+          priorityCount, rowCount).getBytes(StandardCharsets.UTF_8));
+      arguments.add(source.toString());
+    }
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IllegalStateException("The benchmarks must run on a JDK to compile their tests");
+    }
+    if (compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) != 0) {
+      throw new IllegalStateException("Couldn't compile the synthetic tests in " + m_directory);
+    }
+
+    ClassLoader loader = new URLClassLoader(new URL[] { m_directory.toUri().toURL() },
+        SyntheticSuite.class.getClassLoader());
+    for (int i = 0; i < classCount; i++) {
+      m_classes.add(loader.loadClass("synthetic.Synthetic" + i));
+    }
+  }
+
+  private static String generateClass(String name, int methodCount, int groupCount,
+      int dependencyEvery, int priorityCount, int rowCount) {
+    StringBuilder result = new StringBuilder()
+        .append("package synthetic;\n")
+        .append("import org.testng.annotations.*;\n")
+        .append("public class ").append(name).append(" {\n");
+    if (rowCount > 0) {
+      result.append("  @DataProvider(name = \"rows\")\n")
+          .append("  public Object[][] rows() {\n")
+          .append("    Object[][] result = new Object[").append(rowCount).append("][];\n")
+          .append("    for (int i = 0; i < result.length; i++) {\n")
+          .append("      result[i] = new Object[] { i };\n")
+          .append("    }\n")
+          .append("    return result;\n")
+          .append("  }\n");
+    }
+    for (int i = 0; i < methodCount; i++) {
+      result.append("  @Test(");
+      if (groupCount > 0) {
+        result.append("groups = \"g").append(i % groupCount).append("\", ");
+      }
+      if (priorityCount > 0) {
+        result.append("priority = ").append(i % priorityCount).append(", ");
+      }
+      if (dependencyEvery > 0 && i > 0 && i % dependencyEvery == 0) {
+        result.append("dependsOnMethods = \"m").append(i - 1).append("\", ");
+      }
+      if (rowCount > 0) {
+        result.append("dataProvider = \"rows\", ");
+      }
+      result.append("description = \"m").append(i).append("\")\n")
+          .append("  public void m").append(i).append(rowCount > 0 ? "(int row)" : "()")
+          .append(" {\n  }\n");
+    }
+    return result.append("}\n").toString();
+  }
+
+  /**
+   * @return the number of test method invocations running the suite makes.
+   */
+  public int getInvocationCount() {
+    return m_methodCount * Math.max(1, m_rowCount);
+  }
+
+  /**
+   * @return a new suite running all the synthetic classes in one test.
+   */
+  public XmlSuite createXmlSuite(XmlSuite.ParallelMode parallel, XmlSuite.ExecutorMode executor,
+      int threadCount) {
+    XmlSuite result = new XmlSuite();
+    result.setName("Synthetic");
+    result.setParallel(parallel);
+    result.setExecutorMode(executor);
+    result.setThreadCount(threadCount);
+    result.setDataProviderThreadCount(threadCount);
+    result.setVerbose(0);
+    XmlTest test = new XmlTest(result);
+    test.setName("Synthetic");
+    List<XmlClass> classes = Lists.newArrayList();
+    for (Class<?> c : m_classes) {
+      classes.add(new XmlClass(c));
+    }
+    test.setXmlClasses(classes);
+    return result;
+  }
+
+  public File getOutputDirectory() {
+    return m_directory.resolve("output").toFile();
+  }
+
+  public void delete() throws IOException {
+    Files.walkFileTree(m_directory, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+}
@@ -0,0 +1,61 @@
+package org.testng.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.testng.xml.XmlSuite;
+
+import java.io.IOException;
+
+/**
+ * The synthetic suite the benchmarks run, generated once per trial. The shape of the suite is
+ * chosen with the JMH parameters, e.g. {@code -p methods=100000 -p groups=10}.
+ */
+@State(Scope.Benchmark)
+public class SyntheticSuiteState {
+
+  @Param({"100", "1000", "10000", "100000"})
+  public int methods;
+
+  @Param({"100"})
+  public int methodsPerClass;
+
+  @Param({"0"})
+  public int groups;
+
+  @Param({"0"})
+  public int dependencyEvery;
+
+  @Param({"0"})
+  public int priorities;
+
+  @Param({"0"})
+  public int rows;
+
+  @Param({"NONE"})
+  public XmlSuite.ParallelMode parallel;
+
+  @Param({"THREAD_POOL"})
+  public XmlSuite.ExecutorMode executor;
+
+  @Param({"4"})
+  public int threads;
+
+  public SyntheticSuite suite;
+
+  @Setup
+  public void setUp() throws IOException, ReflectiveOperationException {
+    suite = new SyntheticSuite(methods, methodsPerClass, groups, dependencyEvery, priorities, rows);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    suite.delete();
+  }
+
+  public XmlSuite createXmlSuite() {
+    return suite.createXmlSuite(parallel, executor, threads);
+  }
+}
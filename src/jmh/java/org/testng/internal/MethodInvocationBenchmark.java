@@ -0,0 +1,60 @@
+package org.testng.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of invoking a test method through reflection and through the invoker
+ * cached by its {@link ConstructorOrMethod}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MethodInvocationBenchmark {
+
+  public static class Sample {
+    private int m_sum;
+
+    public void test(Integer row) {
+      m_sum += row;
+    }
+  }
+
+  private Sample m_instance;
+  private Method m_method;
+  private ConstructorOrMethod m_constructorOrMethod;
+  private Object[] m_parameters;
+
+  @Setup
+  public void setUp() throws NoSuchMethodException {
+    m_instance = new Sample();
+    m_method = Sample.class.getMethod("test", Integer.class);
+    m_constructorOrMethod = new ConstructorOrMethod(m_method);
+    m_parameters = new Object[] { 42 };
+  }
+
+  @Benchmark
+  public Object reflection() throws InvocationTargetException, IllegalAccessException {
+    return MethodInvocationHelper.invokeMethod(m_method, m_instance, m_parameters);
+  }
+
+  @Benchmark
+  public Object cachedInvoker() throws InvocationTargetException, IllegalAccessException {
+    return MethodInvocationHelper.invokeMethod(m_constructorOrMethod, m_instance, m_parameters);
+  }
+}
@@ -0,0 +1,79 @@
+package org.testng.reporters;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing a big report through {@link FileStringBuffer} and
+ * {@link NioFileStringBuffer}, from the first append to the report file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BufferBenchmark {
+
+  /** The number of results in the report, about 200 characters each */
+  @Param({ "10000", "1000000" })
+  public int results;
+
+  private File m_output;
+
+  @Setup
+  public void setUp() throws IOException {
+    m_output = File.createTempFile("testng-benchmark", ".xml");
+  }
+
+  @TearDown
+  public void tearDown() {
+    m_output.delete();
+  }
+
+  @Benchmark
+  public long fileStringBuffer() throws IOException {
+    FileStringBuffer buffer = new FileStringBuffer();
+    fill(buffer);
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(m_output), "UTF-8")) {
+      buffer.toWriter(writer);
+    }
+    return m_output.length();
+  }
+
+  @Benchmark
+  public long nioFileStringBuffer() throws IOException {
+    try (NioFileStringBuffer buffer = new NioFileStringBuffer();
+        FileOutputStream out = new FileOutputStream(m_output)) {
+      fill(buffer);
+      buffer.toChannel(out.getChannel());
+    }
+    return m_output.length();
+  }
+
+  private void fill(IBuffer buffer) {
+    for (int i = 0; i < results; i++) {
+      buffer.append("    <test-method status=\"PASS\" name=\"test").append(String.valueOf(i))
+          .append("\" duration-ms=\"12\" started-at=\"2016-01-01T00:00:00Z\">\n")
+          .append("      <reporter-output><![CDATA[Some output of the test]]></reporter-output>\n")
+          .append("    </test-method>\n");
+    }
+  }
+}
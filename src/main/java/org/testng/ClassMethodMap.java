@@ -1,23 +1,32 @@
 package org.testng;
 
-import org.testng.collections.Lists;
 import org.testng.collections.Maps;
 import org.testng.internal.XmlMethodSelector;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * This class maintains a map of <CODE><Class, List<ITestNGMethod>></CODE>.
+ * This class counts the methods of each instance and test class that haven't run yet.
  * It is used by TestWorkers to determine if the method they just ran
  * is the last of its class, in which case it's time to invoke all the
  * afterClass methods.
  *
+ * The counters are created once, so that the workers only update them and never lock.
+ *
  * @author <a href='mailto:the[dot]mindstorm[at]gmail[dot]com'>Alex Popescu</a>
  */
 public class ClassMethodMap {
-  private Map<Object, List<ITestNGMethod>> m_classMap = Maps.newHashMap();
+  /**
+   * The runs left of each enabled method, grouped by instance and test class since the
+   * methods of the instances created by a factory share their hash code. Not modified
+   * after the constructor.
+   */
+  private final Map<ClassKey, Map<ITestNGMethod, MethodRuns>> m_methodRuns = Maps.newHashMap();
+  /** The runs left of the methods of each instance and test class */
+  private final Map<ClassKey, AtomicInteger> m_classRuns = Maps.newHashMap();
   // These two variables are used throughout the workers to keep track
   // of what beforeClass/afterClass methods have been invoked
   private Map<ITestClass, Set<Object>> m_beforeClassMethods = Maps.newHashMap();
@@ -32,13 +41,29 @@ public class ClassMethodMap {
     	  if (! xmlMethodSelector.includeMethod(null, m, true)) continue;
       }
 
-      Object instance = m.getInstance();
-      List<ITestNGMethod> l = m_classMap.get(instance);
-      if (l == null) {
-        l = Lists.newArrayList();
-        m_classMap.put(instance, l);
+      ClassKey key = new ClassKey(m.getInstance(), m.getTestClass());
+      AtomicInteger classRuns = m_classRuns.get(key);
+      if (classRuns == null) {
+        classRuns = new AtomicInteger();
+        m_classRuns.put(key, classRuns);
+      }
+      // The disabled methods don't run, so their class doesn't wait for them
+      if (m.getEnabled()) {
+        Map<ITestNGMethod, MethodRuns> methodRuns = m_methodRuns.get(key);
+        if (methodRuns == null) {
+          methodRuns = Maps.newHashMap();
+          m_methodRuns.put(key, methodRuns);
+        }
+        MethodRuns runs = methodRuns.get(m);
+        if (runs == null) {
+          runs = new MethodRuns(classRuns);
+          methodRuns.put(m, runs);
+        }
+        // A method is listed several times when its instances were duplicated, e.g. by an
+        // IMethodInterceptor
+        runs.m_runs.incrementAndGet();
+        classRuns.incrementAndGet();
       }
-      l.add(m);
     }
   }
 
@@ -46,23 +71,16 @@ public class ClassMethodMap {
    * Remove the method from this map and returns true if it is the last
    * of its class.
    */
-  public synchronized boolean removeAndCheckIfLast(ITestNGMethod m, Object instance) {
-    List<ITestNGMethod> l = m_classMap.get(instance);
-    if (l != null) {
-      l.remove(m);
-      // It's the last method of this class if all the methods remaining in the list belong to a
-      // different class
-      for (ITestNGMethod tm : l) {
-        if (tm.getEnabled() && tm.getTestClass().equals(m.getTestClass())) return false;
-      }
-      return true;
-    } else {
-      throw new AssertionError("l should not be null");
+  public boolean removeAndCheckIfLast(ITestNGMethod m, Object instance) {
+    Map<ITestNGMethod, MethodRuns> methodRuns =
+        m_methodRuns.get(new ClassKey(m.getInstance(), m.getTestClass()));
+    MethodRuns runs = methodRuns == null ? null : methodRuns.get(m);
+    if (runs != null && runs.decrementIfPositive()) {
+      return runs.m_classRuns.decrementAndGet() == 0;
     }
-  }
-
-  private Class<?> getMethodClass(ITestNGMethod m) {
-    return m.getTestClass().getRealClass();
+    // A disabled method, or one already removed as many times as it was listed
+    AtomicInteger classRuns = m_classRuns.get(new ClassKey(instance, m.getTestClass()));
+    return classRuns == null || classRuns.get() == 0;
   }
 
   public Map<ITestClass, Set<Object>> getInvokedBeforeClassMethods() {
@@ -85,4 +103,54 @@ public class ClassMethodMap {
     m_beforeClassMethods.clear();
     m_afterClassMethods.clear();
   }
+
+  private static final class ClassKey {
+    private final Object m_instance;
+    private final ITestClass m_testClass;
+
+    ClassKey(Object instance, ITestClass testClass) {
+      m_instance = instance;
+      m_testClass = testClass;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (m_instance == null ? 0 : m_instance.hashCode())
+          + (m_testClass == null ? 0 : m_testClass.hashCode());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof ClassKey)) {
+        return false;
+      }
+      ClassKey other = (ClassKey) o;
+      return (m_instance == null ? other.m_instance == null : m_instance.equals(other.m_instance))
+          && (m_testClass == null ? other.m_testClass == null : m_testClass.equals(other.m_testClass));
+    }
+  }
+
+  /**
+   * The runs left of a method, next to the runs left of its class.
+   */
+  private static final class MethodRuns {
+    private final AtomicInteger m_runs = new AtomicInteger();
+    private final AtomicInteger m_classRuns;
+
+    MethodRuns(AtomicInteger classRuns) {
+      m_classRuns = classRuns;
+    }
+
+    boolean decrementIfPositive() {
+      while (true) {
+        int value = m_runs.get();
+        if (value <= 0) {
+          return false;
+        }
+        if (m_runs.compareAndSet(value, value - 1)) {
+          return true;
+        }
+      }
+    }
+  }
 }
@@ -64,6 +64,16 @@ public class CommandLineArgs {
   @Parameter(names = CONFIG_FAILURE_POLICY , description = "Configuration failure policy (skip or continue)")
   public String configFailurePolicy;
 
+  public static final String EXECUTOR = "-executor";
+  @Parameter(names = EXECUTOR, description = "Executor used to run the methods of parallel tests " +
+      "(thread-pool or work-stealing)")
+  public String executorMode;
+
+  public static final String THREAD_FACTORY = "-threadfactory";
+  @Parameter(names = THREAD_FACTORY, description = "Factory of the threads used by the suites " +
+      "(platform, virtual or a class implementing ITestNGThreadFactory)")
+  public String threadFactory;
+
   public static final String THREAD_COUNT = "-threadcount";
   @Parameter(names = THREAD_COUNT, description = "Number of threads to use when running tests " +
       "in parallel")
@@ -74,6 +84,11 @@ public class CommandLineArgs {
       "running data providers")
   public Integer dataProviderThreadCount;
 
+  public static final String REPORTER_THREAD_COUNT = "-reporterthreadcount";
+  @Parameter(names = REPORTER_THREAD_COUNT, description = "Number of threads to use when " +
+      "generating the reports")
+  public Integer reporterThreadCount;
+
   public static final String SUITE_NAME = "-suitename";
   @Parameter(names = SUITE_NAME, description = "Default name of test suite, if not specified " +
       "in suite definition file or source code")
@@ -92,6 +107,11 @@ public class CommandLineArgs {
   @Parameter(names = USE_DEFAULT_LISTENERS, description = "Whether to use the default listeners")
   public String useDefaultListeners = "true";
 
+  public static final String PRE_FILTER_CLASSES = "-prefilterclasses";
+  @Parameter(names = PRE_FILTER_CLASSES, description = "Whether to read the class files of the "
+      + "classes of the packages to only load the ones that can be test classes")
+  public String preFilterClasses;
+
   public static final String SKIP_FAILED_INVOCATION_COUNTS = "-skipfailedinvocationcounts";
   @Parameter(names = SKIP_FAILED_INVOCATION_COUNTS, hidden = true)
   public Boolean skipFailedInvocationCounts;
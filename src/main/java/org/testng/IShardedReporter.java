@@ -0,0 +1,26 @@
+package org.testng;
+
+import org.testng.xml.XmlSuite;
+
+import java.util.List;
+
+/**
+ * A reporter whose work can be split in independent parts, e.g. one per suite or one per
+ * test, that TestNG runs concurrently when the reports are generated on several threads
+ * (see {@link TestNG#setReporterThreadCount(int)}).
+ *
+ * TestNG then doesn't call generateReport() but runs all the shards, then finishReport().
+ * When called directly, generateReport() is expected to do the same on the calling thread.
+ */
+public interface IShardedReporter extends IReporter {
+  /**
+   * @return the parts of the report that don't depend on each other and can be written
+   * concurrently.
+   */
+  List<Runnable> createShards(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory);
+
+  /**
+   * Write what is left of the report once all the shards have run, e.g. an index of the suites.
+   */
+  void finishReport(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory);
+}
@@ -0,0 +1,21 @@
+package org.testng;
+
+import java.io.Serializable;
+
+/**
+ * Creates the threads that TestNG runs tests and data providers on. It can be set per suite
+ * with the "thread-factory" attribute or with the -threadfactory command line option.
+ *
+ * TestNG recognizes its own threads by their name, and Reporter relies on inheritable thread
+ * locals, so implementations must give the thread the requested name and let it inherit the
+ * inheritable thread locals of the creating thread.
+ */
+public interface ITestNGThreadFactory extends Serializable {
+
+  /**
+   * @param target the runnable that the thread will run
+   * @param name the name of the thread
+   * @return a new thread that hasn't been started
+   */
+  Thread newThread(Runnable target, String name);
+}
@@ -1,12 +1,14 @@
 package org.testng;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Vector;
+import java.util.Locale;
 
 import org.testng.collections.Lists;
-import org.testng.collections.Maps;
+import org.testng.internal.ReporterOutputStore;
+import org.testng.internal.Utils;
 import org.testng.util.Strings;
 
 /**
@@ -17,29 +19,51 @@ import org.testng.util.Strings;
  * <b>Implementation details.</b>
  * <br>
  * <br>
- * The reporter keeps a combined output of strings (in m_output) and also
- * a record of which method output which line.  In order to do this, callers
- * specify what the current method is with setCurrentTestResult() and the
- * Reporter maintains a mapping of each test result with a list of integers.
- * These integers are indices in the combined output (avoids duplicating
- * the output).
+ * The reporter keeps the output of each test result in its own buffer, and
+ * also a combined output of strings.  In order to do this, callers specify
+ * what the current method is with setCurrentTestResult().
+ * <br>
+ * The number of lines kept in memory can be limited per test result with
+ * setMaxLinesPerResult() (or the testng.reporter.maxLinesPerResult system
+ * property) and in total with setMaxLines() (or testng.reporter.maxLines).
+ * The lines over these limits are dropped or written to a file, depending on
+ * setOverflowPolicy() (or testng.reporter.overflow, truncate or spill).
  *
  * Created on Nov 2, 2005
  * @author cbeust
  */
 public class Reporter {
+  /**
+   * What to do with the lines logged once the output kept in memory reached its limits.
+   */
+  public enum OverflowPolicy {
+    /** Drop them */
+    TRUNCATE,
+    /** Write them to a file, from which they are read back by {@link #getOutput(ITestResult)} */
+    SPILL
+  }
+
   // when tests are run in parallel, each thread may be working with different
   // 'current test result'. Also, this value should be inherited if the test code
   // spawns its own thread.
   private static ThreadLocal<ITestResult> m_currentTestResult = new InheritableThreadLocal<>();
 
-  /**
-   * All output logged in a sequential order.
-   */
-  private static List<String> m_output = new Vector<>();
-
-  /** The key is the hashCode of the ITestResult */
-  private static Map<Integer, List<Integer>> m_methodOutputMap = Maps.newHashMap();
+  private static final ReporterOutputStore m_store = new ReporterOutputStore();
+
+  static {
+    m_store.setMaxLinesPerResult(Integer.getInteger("testng.reporter.maxLinesPerResult",
+        Integer.MAX_VALUE));
+    m_store.setMaxLines(Long.getLong("testng.reporter.maxLines", Long.MAX_VALUE));
+    String overflow = System.getProperty("testng.reporter.overflow");
+    if (overflow != null) {
+      try {
+        m_store.setOverflowPolicy(OverflowPolicy.valueOf(overflow.toUpperCase(Locale.ROOT)));
+      } catch (IllegalArgumentException e) {
+        Utils.log("Reporter", 1, "[WARN] Unknown value of property testng.reporter.overflow: '"
+            + overflow + "', valid values are " + Arrays.toString(OverflowPolicy.values()) + ".");
+      }
+    }
+  }
 
   private static boolean m_escapeHtml = false;
   //This variable is responsible for persisting all output that is yet to be associated with any
@@ -47,19 +71,47 @@ public class Reporter {
   private static ThreadLocal<List<String>> m_orphanedOutput = new InheritableThreadLocal<>();
 
   public static void setCurrentTestResult(ITestResult m) {
+    ITestResult previous = m_currentTestResult.get();
+    if (previous != null && previous != m) {
+      // The previous result is over on this thread
+      m_store.finish(previous);
+    }
     m_currentTestResult.set(m);
   }
 
+  /**
+   * @return a copy of the output kept in memory, in the order it was logged.
+   */
   public static List<String> getOutput() {
-    return m_output;
+    return m_store.getOutput();
   }
 
   /**
    * Erase the content of all the output generated so far.
    */
   public static void clear() {
-    m_methodOutputMap.clear();
-    m_output.clear();
+    m_store.clear();
+  }
+
+  /**
+   * @param maxLinesPerResult the maximum number of lines kept in memory for a test result
+   */
+  public static void setMaxLinesPerResult(int maxLinesPerResult) {
+    m_store.setMaxLinesPerResult(maxLinesPerResult);
+  }
+
+  /**
+   * @param maxLines the maximum number of lines kept in memory for all the test results
+   */
+  public static void setMaxLines(long maxLines) {
+    m_store.setMaxLines(maxLines);
+  }
+
+  /**
+   * @param overflowPolicy what to do with the lines over the limits
+   */
+  public static void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+    m_store.setOverflowPolicy(overflowPolicy);
   }
 
   /**
@@ -76,7 +128,7 @@ public class Reporter {
     m_escapeHtml = escapeHtml;
   }
 
-  private static synchronized void log(String s, ITestResult m) {
+  private static void log(String s, ITestResult m) {
     // Escape for the HTML reports
     if (m_escapeHtml) {
       s = Strings.escapeHtml(s);
@@ -91,25 +143,17 @@ public class Reporter {
       return;
     }
 
-    // synchronization needed to ensure the line number and m_output are updated atomically
-    int n = getOutput().size();
-
-    List<Integer> lines = m_methodOutputMap.get(m.hashCode());
-    if (lines == null) {
-      lines = Lists.newArrayList();
-      m_methodOutputMap.put(m.hashCode(), lines);
-    }
-
     // Check if there was already some orphaned output for the current thread.
-    if (m_orphanedOutput.get() != null) {
-      n = n + m_orphanedOutput.get().size();
-      getOutput().addAll(m_orphanedOutput.get());
+    List<String> orphanedOutput = m_orphanedOutput.get();
+    if (orphanedOutput != null) {
+      orphanedOutput.add(s);
+      m_store.add(m, orphanedOutput);
       // Since we have already added all of the orphaned output to the current
       // TestResult, lets clear it off
       m_orphanedOutput.remove();
+    } else {
+      m_store.add(m, Collections.singletonList(s));
     }
-    lines.add(n);
-    getOutput().add(s);
   }
 
   /**
@@ -173,19 +217,11 @@ public class Reporter {
     return m_currentTestResult.get();
   }
 
-  public static synchronized List<String> getOutput(ITestResult tr) {
-    List<String> result = Lists.newArrayList();
+  public static List<String> getOutput(ITestResult tr) {
     if (tr == null) {
       //guard against a possible NPE in scenarios wherein the test result object itself could be a null value.
-      return result;
-    }
-    List<Integer> lines = m_methodOutputMap.get(tr.hashCode());
-    if (lines != null) {
-      for (Integer n : lines) {
-        result.add(getOutput().get(n));
-      }
+      return Lists.newArrayList();
     }
-
-    return result;
+    return m_store.getOutput(tr);
   }
 }
@@ -10,6 +10,8 @@ import org.testng.internal.IInvoker;
 import org.testng.internal.Utils;
 import org.testng.internal.annotations.IAnnotationFinder;
 import org.testng.internal.thread.ThreadUtil;
+import org.testng.internal.thread.DataProviderThreadPool;
+import org.testng.internal.thread.TimeOutWatchdog;
 import org.testng.reporters.JUnitXMLReporter;
 import org.testng.reporters.TestHTMLReporter;
 import org.testng.reporters.TextReporter;
@@ -289,6 +291,16 @@ public class SuiteRunner implements ISuite, Serializable, IInvokedMethodListener
       privateRun();
     }
     finally {
+      synchronized(this) {
+        if (m_timeOutWatchdog != null) {
+          m_timeOutWatchdog.shutdown();
+          m_timeOutWatchdog = null;
+        }
+        if (m_dataProviderThreadPool != null) {
+          m_dataProviderThreadPool.shutdown();
+          m_dataProviderThreadPool = null;
+        }
+      }
       invokeListeners(false /* stop */);
     }
   }
@@ -404,7 +416,7 @@ public class SuiteRunner implements ISuite, Serializable, IInvokedMethodListener
     }
 
     ThreadUtil.execute(tasks, m_suite.getThreadCount(),
-        m_suite.getTimeOut(XmlTest.DEFAULT_TIMEOUT_MS), false);
+        m_suite.getTimeOut(XmlTest.DEFAULT_TIMEOUT_MS), false, m_suite.getThreadFactory());
   }
 
   private class SuiteWorker implements Runnable {
@@ -643,6 +655,33 @@ public class SuiteRunner implements ISuite, Serializable, IInvokedMethodListener
 
   private SuiteRunState m_suiteState= new SuiteRunState();
 
+  transient private TimeOutWatchdog m_timeOutWatchdog;
+
+  /**
+   * @return the watchdog enforcing the time outs of the methods of this suite, it is created
+   * on first use and shut down when the suite is over.
+   */
+  public synchronized TimeOutWatchdog getTimeOutWatchdog() {
+    if (m_timeOutWatchdog == null) {
+      m_timeOutWatchdog = new TimeOutWatchdog(m_suite.getThreadFactory(), getName());
+    }
+    return m_timeOutWatchdog;
+  }
+
+  transient private DataProviderThreadPool m_dataProviderThreadPool;
+
+  /**
+   * @return the threads running the parallel data providers of this suite, they are created
+   * on first use and shut down when the suite is over.
+   */
+  public synchronized DataProviderThreadPool getDataProviderThreadPool() {
+    if (m_dataProviderThreadPool == null) {
+      m_dataProviderThreadPool = new DataProviderThreadPool(m_suite.getDataProviderThreadCount(),
+          m_suite.getThreadFactory());
+    }
+    return m_dataProviderThreadPool;
+  }
+
   /**
    * @see org.testng.ISuite#getSuiteState()
    */
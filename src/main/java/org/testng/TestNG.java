@@ -26,17 +26,22 @@ import org.testng.collections.Lists;
 import org.testng.collections.Maps;
 import org.testng.collections.Sets;
 import org.testng.internal.ClassHelper;
+import org.testng.internal.ClassPathIndex;
 import org.testng.internal.Configuration;
 import org.testng.internal.DynamicGraph;
 import org.testng.internal.IConfiguration;
 import org.testng.internal.IResultListener2;
 import org.testng.internal.OverrideProcessor;
+import org.testng.internal.PackageUtils;
+import org.testng.internal.ReportGenerator;
 import org.testng.internal.SuiteRunnerMap;
 import org.testng.internal.Utils;
 import org.testng.internal.Version;
 import org.testng.internal.annotations.DefaultAnnotationTransformer;
 import org.testng.internal.annotations.IAnnotationFinder;
 import org.testng.internal.annotations.JDK15AnnotationFinder;
+import org.testng.internal.collections.Cache;
+import org.testng.internal.thread.ThreadUtil;
 import org.testng.internal.thread.graph.GraphThreadPoolExecutor;
 import org.testng.internal.thread.graph.IThreadWorkerFactory;
 import org.testng.internal.thread.graph.SuiteWorkerFactory;
@@ -153,6 +158,8 @@ public class TestNG {
   private int m_threadCount = -1;
   private XmlSuite.ParallelMode m_parallelMode = null;
   private XmlSuite.FailurePolicy m_configFailurePolicy;
+  private XmlSuite.ExecutorMode m_executorMode;
+  private ITestNGThreadFactory m_threadFactory;
   private Class[] m_commandLineTestClasses;
 
   private String m_defaultSuiteName=DEFAULT_COMMAND_LINE_SUITE_NAME;
@@ -167,6 +174,10 @@ public class TestNG {
 
   private Integer m_dataProviderThreadCount = null;
 
+  private int m_reporterThreadCount = 1;
+
+  private boolean m_preFilterClasses = true;
+
   private String m_jarPath;
   /** The path of the testng.xml file inside the jar file */
   private String m_xmlPathInJar = CommandLineArgs.XML_PATH_IN_JAR_DEFAULT;
@@ -1111,6 +1122,11 @@ public class TestNG {
 
     runExecutionListeners(false /* finish */);
 
+    for (Cache<?, ?> cache : Cache.getCaches()) {
+      Utils.log("TestNG", 3, "Cache " + cache);
+    }
+    Cache.clearAll();
+
     if(!m_hasTests) {
       setStatus(HAS_NO_TEST);
       if (TestRunner.getVerbose() > 1) {
@@ -1178,18 +1194,8 @@ public class TestNG {
   }
 
   private void generateReports(List<ISuite> suiteRunners) {
-    for (IReporter reporter : m_reporters.values()) {
-      try {
-        long start = System.currentTimeMillis();
-        reporter.generateReport(m_suites, suiteRunners, m_outputDir);
-        Utils.log("TestNG", 2, "Time taken by " + reporter + ": "
-            + (System.currentTimeMillis() - start) + " ms");
-      }
-      catch(Exception ex) {
-        System.err.println("[TestNG] Reporter " + reporter + " failed");
-        ex.printStackTrace(System.err);
-      }
-    }
+    new ReportGenerator(m_reporterThreadCount, m_threadFactory)
+        .generateReports(m_reporters.values(), m_suites, suiteRunners, m_outputDir);
   }
 
   /**
@@ -1205,8 +1211,23 @@ public class TestNG {
 
       // First initialize the suite runners to ensure there are no configuration issues.
       // Create a map with XmlSuite as key and corresponding SuiteRunner as value
-      for (XmlSuite xmlSuite : m_suites) {
-        createSuiteRunners(suiteRunnerMap, xmlSuite);
+      // The classes of the <package> elements are found while creating the suite runners, with
+      // an index of the class path owned by this run
+      File scanIndexFile = m_outputDir != null
+          ? new File(m_outputDir, PackageUtils.SCAN_INDEX_FILE_NAME) : null;
+      ClassPathIndex scanIndex = scanIndexFile != null
+          ? PackageUtils.loadScanIndex(scanIndexFile) : new ClassPathIndex();
+      m_configuration.setClassPathIndex(scanIndex);
+      m_configuration.setPreFilterClasses(m_preFilterClasses);
+      try {
+        for (XmlSuite xmlSuite : m_suites) {
+          createSuiteRunners(suiteRunnerMap, xmlSuite);
+        }
+      } finally {
+        m_configuration.setClassPathIndex(null);
+      }
+      if (scanIndexFile != null) {
+        PackageUtils.saveScanIndex(scanIndex, scanIndexFile);
       }
 
       //
@@ -1232,7 +1253,8 @@ public class TestNG {
         GraphThreadPoolExecutor<ISuite> pooledExecutor =
                 new GraphThreadPoolExecutor<>(suiteGraph, factory, m_suiteThreadPoolSize,
                         m_suiteThreadPoolSize, Integer.MAX_VALUE, TimeUnit.MILLISECONDS,
-                        new LinkedBlockingQueue<Runnable>());
+                        new LinkedBlockingQueue<Runnable>(),
+                        ThreadUtil.createThreadFactory(m_threadFactory, "SuiteRunner-"));
 
         Utils.log("TestNG", 2, "Starting executor for all suites");
         // Run all suites in parallel
@@ -1343,6 +1365,14 @@ public class TestNG {
       xmlSuite.setConfigFailurePolicy(m_configFailurePolicy);
     }
 
+    if (null != m_executorMode) {
+      xmlSuite.setExecutorMode(m_executorMode);
+    }
+
+    if (null != m_threadFactory) {
+      xmlSuite.setThreadFactory(m_threadFactory);
+    }
+
     for (XmlTest t : xmlSuite.getTests()) {
       for (Map.Entry<String, Integer> ms : m_methodDescriptors.entrySet()) {
         XmlMethodSelector xms = new XmlMethodSelector();
@@ -1482,6 +1512,9 @@ public class TestNG {
     if (cla.useDefaultListeners != null) {
       setUseDefaultListeners("true".equalsIgnoreCase(cla.useDefaultListeners));
     }
+    if (cla.preFilterClasses != null) {
+      setPreFilterClasses("true".equalsIgnoreCase(cla.preFilterClasses));
+    }
 
     setGroups(cla.groups);
     setExcludedGroups(cla.excludedGroups);
@@ -1496,12 +1529,29 @@ public class TestNG {
     if (cla.configFailurePolicy != null) {
       setConfigFailurePolicy(cla.configFailurePolicy);
     }
+    if (cla.executorMode != null) {
+      XmlSuite.ExecutorMode executorMode =
+          XmlSuite.ExecutorMode.getValidExecutorMode(cla.executorMode);
+      if (executorMode != null) {
+        setExecutorMode(executorMode);
+      } else {
+        Utils.log("TestNG", 1, "[WARN] Unknown value of option " + CommandLineArgs.EXECUTOR
+            + ": '" + cla.executorMode + "', valid values are "
+            + Arrays.toString(XmlSuite.ExecutorMode.values()) + ".");
+      }
+    }
+    if (cla.threadFactory != null) {
+      setThreadFactory(ThreadUtil.createThreadFactory(cla.threadFactory));
+    }
     if (cla.threadCount != null) {
       setThreadCount(cla.threadCount);
     }
     if (cla.dataProviderThreadCount != null) {
       setDataProviderThreadCount(cla.dataProviderThreadCount);
     }
+    if (cla.reporterThreadCount != null) {
+      setReporterThreadCount(cla.reporterThreadCount);
+    }
     if (cla.suiteName != null) {
       setDefaultSuiteName(cla.suiteName);
     }
@@ -1621,6 +1671,11 @@ public class TestNG {
       result.useDefaultListeners = useDefaultListeners;
     }
 
+    String preFilterClasses = (String) cmdLineArgs.get(CommandLineArgs.PRE_FILTER_CLASSES);
+    if (null != preFilterClasses) {
+      result.preFilterClasses = preFilterClasses;
+    }
+
     result.groups = (String) cmdLineArgs.get(CommandLineArgs.GROUPS);
     result.excludedGroups = (String) cmdLineArgs.get(CommandLineArgs.EXCLUDED_GROUPS);
     result.testJar = (String) cmdLineArgs.get(CommandLineArgs.TEST_JAR);
@@ -1644,6 +1699,10 @@ public class TestNG {
     if (dptc != null) {
       result.dataProviderThreadCount = dptc;
     }
+    Integer rtc = (Integer) cmdLineArgs.get(CommandLineArgs.REPORTER_THREAD_COUNT);
+    if (rtc != null) {
+      result.reporterThreadCount = rtc;
+    }
     String defaultSuiteName = (String) cmdLineArgs.get(CommandLineArgs.SUITE_NAME);
     if (defaultSuiteName != null) {
       result.suiteName = defaultSuiteName;
@@ -1892,6 +1951,41 @@ public class TestNG {
     return m_configFailurePolicy;
   }
 
+  /**
+   * Sets the executor used to run the methods of parallel tests. This value will override
+   * the value specified in the test suites. The default value is
+   * {@link org.testng.xml.XmlSuite.ExecutorMode#THREAD_POOL}
+   * @param executorMode the executor mode
+   */
+  public void setExecutorMode(XmlSuite.ExecutorMode executorMode) {
+    m_executorMode = executorMode;
+  }
+
+  /**
+   * Returns the executor mode that overrides the one of the test suites.
+   * @return executor mode
+   */
+  public XmlSuite.ExecutorMode getExecutorMode() {
+    return m_executorMode;
+  }
+
+  /**
+   * Sets the factory of the threads used to run the suites and their tests. This value will
+   * override the value specified in the test suites.
+   * @param threadFactory the thread factory
+   */
+  public void setThreadFactory(ITestNGThreadFactory threadFactory) {
+    m_threadFactory = threadFactory;
+  }
+
+  /**
+   * Returns the thread factory that overrides the one of the test suites.
+   * @return the thread factory
+   */
+  public ITestNGThreadFactory getThreadFactory() {
+    return m_threadFactory;
+  }
+
   // DEPRECATED: to be removed after a major version change
   /**
    * @deprecated since 5.1
@@ -2031,6 +2125,32 @@ public class TestNG {
     m_dataProviderThreadCount = count;
   }
 
+  /**
+   * Sets the number of threads generating the reports at the end of the run. With more than
+   * one thread, the reporters run concurrently, as well as the shards of the reporters
+   * implementing {@link IShardedReporter}. Defaults to 1.
+   */
+  public void setReporterThreadCount(int count) {
+    m_reporterThreadCount = count;
+  }
+
+  public int getReporterThreadCount() {
+    return m_reporterThreadCount;
+  }
+
+  /**
+   * Whether the class files of the classes found in the packages of the suites are read to
+   * only load the ones that refer to the TestNG annotations or to JUnit, directly or through
+   * their superclasses. Defaults to true, set it to false to load all the classes.
+   */
+  public void setPreFilterClasses(boolean preFilterClasses) {
+    m_preFilterClasses = preFilterClasses;
+  }
+
+  public boolean getPreFilterClasses() {
+    return m_preFilterClasses;
+  }
+
   /** Add a class loader to the searchable loaders. */
   public void addClassLoader(final ClassLoader loader) {
     if (loader != null) {
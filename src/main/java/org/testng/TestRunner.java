@@ -10,11 +10,15 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import org.testng.annotations.Guice;
 import org.testng.annotations.IListenersAnnotation;
+import org.testng.annotations.ITestAnnotation;
 import org.testng.collections.ListMultiMap;
 import org.testng.collections.Lists;
 import org.testng.collections.Maps;
@@ -25,6 +29,7 @@ import org.testng.internal.ClassImpl;
 import org.testng.internal.ClassInfoMap;
 import org.testng.internal.ConfigurationGroupMethods;
 import org.testng.internal.Constants;
+import org.testng.internal.DependencyIndex;
 import org.testng.internal.DynamicGraph;
 import org.testng.internal.DynamicGraph.Status;
 import org.testng.internal.IConfiguration;
@@ -44,9 +49,11 @@ import org.testng.internal.Utils;
 import org.testng.internal.XmlMethodSelector;
 import org.testng.internal.annotations.AnnotationHelper;
 import org.testng.internal.annotations.IAnnotationFinder;
+import org.testng.internal.thread.ThreadUtil;
 import org.testng.internal.thread.graph.GraphThreadPoolExecutor;
 import org.testng.internal.thread.graph.IThreadWorkerFactory;
 import org.testng.internal.thread.graph.IWorker;
+import org.testng.internal.thread.graph.WorkStealingGraphExecutor;
 import org.testng.junit.IJUnitTestRunner;
 import org.testng.xml.XmlClass;
 import org.testng.xml.XmlInclude;
@@ -93,6 +100,8 @@ public class TestRunner
    * We pick which ones to run at runtime.
    */
   private ITestNGMethod[] m_allTestMethods = new ITestNGMethod[0];
+  /** The dependencies of m_allTestMethods, resolved before the graph of the methods is run */
+  transient private DependencyIndex m_dependencyIndex;
 
   // Information about this test run
 
@@ -102,6 +111,10 @@ public class TestRunner
   /** A map to keep track of Class <-> IClass. */
   transient private Map<Class<?>, ITestClass> m_classMap = Maps.newLinkedHashMap();
 
+  /** Whether the methods of a class must run in the same worker, looked up once per run */
+  transient private final Map<Class<?>, Boolean> m_singleThreadedClasses =
+      new ConcurrentHashMap<>();
+
   /** Where the reports will be created. */
   private String m_outputDirectory= Constants.getDefaultValueFor(Constants.PROP_OUTPUT_DIR);
 
@@ -199,7 +212,8 @@ public class TestRunner
     m_packageNamesFromXml= test.getXmlPackages();
     if(null != m_packageNamesFromXml) {
       for(XmlPackage xp: m_packageNamesFromXml) {
-        m_testClassesFromXml.addAll(xp.getXmlClasses());
+        m_testClassesFromXml.addAll(xp.getXmlClasses(m_configuration.getClassPathIndex(),
+            m_configuration.getPreFilterClasses()));
       }
     }
 
@@ -451,6 +465,25 @@ public class TestRunner
           MethodHelper.uniqueMethodList(afterGroupMethods.values()));
     }
 
+    //
+    // Resolve the annotations that are looked up while the methods run
+    //
+    List<ITestNGMethod> allMethods = Lists.newArrayList();
+    for (ITestClass tc : m_classMap.values()) {
+      allMethods.addAll(Arrays.asList(tc.getTestMethods()));
+      allMethods.addAll(Arrays.asList(tc.getBeforeClassMethods()));
+      allMethods.addAll(Arrays.asList(tc.getAfterClassMethods()));
+      allMethods.addAll(Arrays.asList(tc.getBeforeTestMethods()));
+      allMethods.addAll(Arrays.asList(tc.getAfterTestMethods()));
+      allMethods.addAll(Arrays.asList(tc.getBeforeSuiteMethods()));
+      allMethods.addAll(Arrays.asList(tc.getAfterSuiteMethods()));
+      allMethods.addAll(Arrays.asList(tc.getBeforeTestConfigurationMethods()));
+      allMethods.addAll(Arrays.asList(tc.getAfterTestConfigurationMethods()));
+      allMethods.addAll(Arrays.asList(tc.getBeforeGroupsMethods()));
+      allMethods.addAll(Arrays.asList(tc.getAfterGroupsMethods()));
+    }
+    m_annotationFinder.resolveAnnotations(allMethods);
+
     //
     // Sort the methods
     //
@@ -717,14 +750,17 @@ public class TestRunner
       // Make sure we create a graph based on the intercepted methods, otherwise an interceptor
       // removing methods would cause the graph never to terminate (because it would expect
       // termination from methods that never get invoked).
-      DynamicGraph<ITestNGMethod> graph = createDynamicGraph(intercept(m_allTestMethods));
+      ITestNGMethod[] interceptedMethods = intercept(m_allTestMethods);
+      // Resolve the dependencies once for the graph and the invoker, unless an interceptor
+      // changed the methods the graph is created from
+      m_dependencyIndex = new DependencyIndex(m_allTestMethods);
+      DependencyIndex graphIndex = Sets.newIdentityHashSet(Arrays.asList(interceptedMethods))
+          .equals(Sets.newIdentityHashSet(Arrays.asList(m_allTestMethods)))
+          ? m_dependencyIndex : new DependencyIndex(interceptedMethods);
+      DynamicGraph<ITestNGMethod> graph = createDynamicGraph(interceptedMethods, graphIndex);
       if (parallel) {
         if (graph.getNodeCount() > 0) {
-          GraphThreadPoolExecutor<ITestNGMethod> executor =
-                  new GraphThreadPoolExecutor<>(graph, this,
-                          threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
-                          new LinkedBlockingQueue<Runnable>());
-          executor.run();
+          ExecutorService executor = startGraphExecutor(graph, threadCount);
           try {
             long timeOut = m_xmlTest.getTimeOut(XmlTest.DEFAULT_TIMEOUT_MS);
             Utils.log("TestRunner", 2, "Starting executor for test " + m_xmlTest.getName()
@@ -811,52 +847,49 @@ public class TestRunner
    */
   private List<IWorker<ITestNGMethod>> createClassBasedParallelWorkers(List<ITestNGMethod> methods) {
     List<IWorker<ITestNGMethod>> result = Lists.newArrayList();
+    boolean parallelClasses = XmlSuite.ParallelMode.CLASSES.equals(m_xmlTest.getParallel());
+    boolean experimental = System.getProperty("experimental") != null;
+
     // Methods that belong to classes with a sequential=true or parallel=classes
     // attribute must all be run in the same worker
-    Set<Class> sequentialClasses = Sets.newHashSet();
-    for (ITestNGMethod m : methods) {
-      Class<? extends ITestClass> cls = m.getRealClass();
-      org.testng.annotations.ITestAnnotation test =
-          m_annotationFinder.findAnnotation(cls, org.testng.annotations.ITestAnnotation.class);
-
-      // If either sequential=true or parallel=classes, mark this class sequential
-      if (test != null && (test.getSequential() || test.getSingleThreaded()) ||
-          XmlSuite.ParallelMode.CLASSES.equals(m_xmlTest.getParallel())) {
-        sequentialClasses.add(cls);
-      }
-    }
-
+    Set<Class<?>> sequentialClasses = Sets.newHashSet();
     List<IMethodInstance> methodInstances = Lists.newArrayList();
+    ListMultiMap<Class<?>, IMethodInstance> methodInstancesByClass = Maps.newListMultiMap();
     for (ITestNGMethod tm : methods) {
-      methodInstances.addAll(methodsToMultipleMethodInstances(tm));
+      Class<?> cls = tm.getRealClass();
+      if (parallelClasses || isSingleThreaded(cls)) {
+        sequentialClasses.add(cls);
+      }
+      IMethodInstance im = new MethodInstance(tm);
+      methodInstances.add(im);
+      methodInstancesByClass.put(tm.getTestClass().getRealClass(), im);
     }
 
-
     Map<String, String> params = m_xmlTest.getAllParameters();
 
     Set<Class<?>> processedClasses = Sets.newHashSet();
     for (IMethodInstance im : methodInstances) {
       Class<?> c = im.getMethod().getTestClass().getRealClass();
       if (sequentialClasses.contains(c)) {
-        if (!processedClasses.contains(c)) {
-          processedClasses.add(c);
-          if (System.getProperty("experimental") != null) {
-            List<List<IMethodInstance>> instances = createInstances(methodInstances);
+        if (processedClasses.add(c)) {
+          List<IMethodInstance> classMethodInstances = methodInstancesByClass.get(c);
+          if (experimental) {
+            List<List<IMethodInstance>> instances = createInstances(classMethodInstances);
             for (List<IMethodInstance> inst : instances) {
-              TestMethodWorker worker = createTestMethodWorker(inst, params, c);
+              TestMethodWorker worker = createTestMethodWorker(inst, params);
               result.add(worker);
             }
           }
           else {
             // Sequential class: all methods in one worker
-            TestMethodWorker worker = createTestMethodWorker(methodInstances, params, c);
+            TestMethodWorker worker = createTestMethodWorker(classMethodInstances, params);
             result.add(worker);
           }
         }
       }
       else {
         // Parallel class: each method in its own worker
-        TestMethodWorker worker = createTestMethodWorker(Arrays.asList(im), params, c);
+        TestMethodWorker worker = createTestMethodWorker(Arrays.asList(im), params);
         result.add(worker);
       }
     }
@@ -918,11 +951,24 @@ public class TestRunner
     return new ArrayList<>(map.values());
   }
 
+  /**
+   * @return true if the methods of this class must all run in the same worker because of
+   * sequential=true or singleThreaded=true. The result is cached for the whole run.
+   */
+  private boolean isSingleThreaded(Class<?> cls) {
+    Boolean result = m_singleThreadedClasses.get(cls);
+    if (result == null) {
+      ITestAnnotation test = m_annotationFinder.findAnnotation(cls, ITestAnnotation.class);
+      result = test != null && (test.getSequential() || test.getSingleThreaded());
+      m_singleThreadedClasses.put(cls, result);
+    }
+    return result;
+  }
+
   private TestMethodWorker createTestMethodWorker(
-      List<IMethodInstance> methodInstances, Map<String, String> params,
-      Class<?> c) {
+      List<IMethodInstance> methodInstances, Map<String, String> params) {
     return new TestMethodWorker(m_invoker,
-        findClasses(methodInstances, c),
+        methodInstances.toArray(new IMethodInstance[methodInstances.size()]),
         m_xmlTest.getSuite(),
         params,
         m_groupMethods,
@@ -931,28 +977,6 @@ public class TestRunner
         new ArrayList<>(m_classListeners.values()));
   }
 
-  private IMethodInstance[] findClasses(List<IMethodInstance> methodInstances, Class<?> c) {
-    List<IMethodInstance> result = Lists.newArrayList();
-    for (IMethodInstance mi : methodInstances) {
-      if (mi.getMethod().getTestClass().getRealClass() == c) {
-        result.add(mi);
-      }
-    }
-    return result.toArray(new IMethodInstance[result.size()]);
-  }
-
-  /**
-   * @@@ remove this
-   */
-  private List<MethodInstance> methodsToMultipleMethodInstances(ITestNGMethod... sl) {
-    List<MethodInstance> vResult = Lists.newArrayList();
-    for (ITestNGMethod m : sl) {
-      vResult.add(new MethodInstance(m));
-    }
-
-    return vResult;
-  }
-
   private List<IMethodInstance> methodsToMethodInstances(List<ITestNGMethod> sl) {
     List<IMethodInstance> result = new ArrayList<>();
       for (ITestNGMethod iTestNGMethod : sl) {
@@ -1001,7 +1025,29 @@ public class TestRunner
 //    logResults();
   }
 
-  private DynamicGraph<ITestNGMethod> createDynamicGraph(ITestNGMethod[] methods) {
+  /**
+   * Start running the graph with the executor selected by the suite.
+   */
+  private ExecutorService startGraphExecutor(DynamicGraph<ITestNGMethod> graph, int threadCount) {
+    ThreadFactory threadFactory = ThreadUtil.createThreadFactory(
+        m_xmlTest.getSuite().getThreadFactory(), "TestRunner-");
+    if (XmlSuite.ExecutorMode.WORK_STEALING.equals(m_xmlTest.getSuite().getExecutorMode())) {
+      WorkStealingGraphExecutor<ITestNGMethod> executor =
+          new WorkStealingGraphExecutor<>(graph, this, threadCount, threadFactory);
+      executor.run();
+      return executor;
+    }
+    GraphThreadPoolExecutor<ITestNGMethod> executor =
+            new GraphThreadPoolExecutor<>(graph, this,
+                    threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(), threadFactory);
+    executor.run();
+    return executor;
+  }
+
+  // Not private so that it can be benchmarked
+  DynamicGraph<ITestNGMethod> createDynamicGraph(ITestNGMethod[] methods,
+      DependencyIndex dependencyIndex) {
     DynamicGraph<ITestNGMethod> result = new DynamicGraph<>();
 
     ListMultiMap<Integer, ITestNGMethod> methodsByPriority = Maps.newListMultiMap();
@@ -1013,11 +1059,9 @@ public class TestRunner
     Integer previousPriority = methods.length > 0 ? availablePriorities.get(0) : 0;
     for (int i = 1; i < availablePriorities.size(); i++) {
       Integer currentPriority = availablePriorities.get(i);
-      for (ITestNGMethod p0Method : methodsByPriority.get(previousPriority)) {
-        for (ITestNGMethod p1Method : methodsByPriority.get(currentPriority)) {
-          result.addEdge(PriorityWeight.priority.ordinal(), p1Method, p0Method);
-        }
-      }
+      // Each method of a priority depends on all the methods of the previous one
+      result.addBarrier(PriorityWeight.priority.ordinal(), methodsByPriority.get(currentPriority),
+          methodsByPriority.get(previousPriority));
       previousPriority = currentPriority;
     }
 
@@ -1046,12 +1090,13 @@ public class TestRunner
       // Dependent groups
       {
         String[] dependentGroups = m.getGroupsDependedUpon();
-        for (String d : dependentGroups) {
+        ITestNGMethod[][] groupMethods = dependencyIndex.getGroupsDependedUpon(m);
+        for (int i = 0; i < dependentGroups.length; i++) {
           hasDependencies = true;
-          List<ITestNGMethod> dg = dependencyMap.getMethodsThatBelongTo(d, m);
-          if (dg == null) {
+          ITestNGMethod[] dg = groupMethods[i];
+          if (dg.length == 0 && !m.ignoreMissingDependencies()) {
             throw new TestNGException("Method \"" + m
-                + "\" depends on nonexistent group \"" + d + "\"");
+                + "\" depends on nonexistent group \"" + dependentGroups[i] + "\"");
           }
           for (ITestNGMethod ddm : dg) {
             result.addEdge(PriorityWeight.dependsOnGroups.ordinal(), m, ddm);
@@ -1395,6 +1440,11 @@ public class TestRunner
   public List<IConfigurationListener> getConfigurationListeners() {
     return Lists.<IConfigurationListener>newArrayList(m_configurationListeners);
   }
+
+  @Override
+  public DependencyIndex getDependencyIndex() {
+    return m_dependencyIndex;
+  }
   //
   // ITestResultNotifier
   /////
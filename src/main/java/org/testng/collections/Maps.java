@@ -3,6 +3,7 @@ package org.testng.collections;
 
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -35,4 +36,8 @@ public class Maps {
   public static <K, V> Map<K, V> newHashMap(Map<K, V> parameters) {
     return new HashMap<>(parameters);
   }
+
+  public static <K, V> Map<K, V> newIdentityHashMap() {
+    return new IdentityHashMap<>();
+  }
 }
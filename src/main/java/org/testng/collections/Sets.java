@@ -1,7 +1,9 @@
 package org.testng.collections;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -20,4 +22,14 @@ public final class Sets {
   public static <V> Set<V> newLinkedHashSet() {
     return new LinkedHashSet<>();
   }
+
+  public static <V> Set<V> newIdentityHashSet() {
+    return Collections.newSetFromMap(new IdentityHashMap<V, Boolean>());
+  }
+
+  public static <V> Set<V> newIdentityHashSet(Collection<V> c) {
+    Set<V> result = newIdentityHashSet();
+    result.addAll(c);
+    return result;
+  }
 }
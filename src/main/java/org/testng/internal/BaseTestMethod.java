@@ -71,7 +71,9 @@ public abstract class BaseTestMethod implements ITestNGMethod {
   private int m_priority;
 
   private XmlTest m_xmlTest;
-  private Object m_instance;
+  private final Object m_instance;
+  /** The methods are looked up in hash maps all along the run */
+  private final int m_hashCode;
 
   /**
    * Constructs a <code>BaseTestMethod</code> TODO cquezel JavaDoc.
@@ -91,6 +93,7 @@ public abstract class BaseTestMethod implements ITestNGMethod {
     m_methodName = methodName;
     m_annotationFinder = annotationFinder;
     m_instance = instance;
+    m_hashCode = com.hashCode();
   }
 
   /**
@@ -427,7 +430,7 @@ public abstract class BaseTestMethod implements ITestNGMethod {
    */
   @Override
   public int hashCode() {
-    return m_method.hashCode();
+    return m_hashCode;
   }
 
   protected void initGroups(Class<? extends ITestOrConfiguration> annotationClass) {
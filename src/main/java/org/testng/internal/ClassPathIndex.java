@@ -0,0 +1,462 @@
+package org.testng.internal;
+
+import org.testng.collections.Lists;
+import org.testng.collections.Maps;
+import org.testng.internal.thread.ThreadUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * An index of the classes of the jars and directories of the class path, so that
+ * {@link PackageUtils} doesn't go through all the entries of a jar again for every package
+ * it looks for.
+ *
+ * The classes of a jar are kept in a trie of their packages, and the jar is scanned again
+ * only if its size or modification time changed. The listing of a directory is kept until its
+ * modification time changes, which happens when a file is added, removed or renamed in it.
+ * Since modification times can be coarse, a jar or directory modified shortly before it was
+ * scanned is scanned again the next time.
+ *
+ * Each run of TestNG owns its index, which can be saved to a file and loaded by a later run.
+ * A jar is scanned by a single thread, but the jars needed by a lookup are scanned
+ * concurrently.
+ */
+public class ClassPathIndex {
+  private static final int VERSION = 1;
+  /** The resolution of the modification times of the coarsest file systems */
+  private static final long TIMESTAMP_RESOLUTION = 2000;
+
+  private final ConcurrentMap<String, JarClasses> m_jars = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, DirectoryListing> m_directories = new ConcurrentHashMap<>();
+  private volatile boolean m_changed;
+
+  /**
+   * Scan the jars that are not in the index yet or that changed, concurrently if there are
+   * several of them.
+   */
+  void update(Collection<File> jars) {
+    List<Runnable> tasks = Lists.newArrayList();
+    for (final File jar : jars) {
+      if (isUpToDate(m_jars.get(jar.getPath()), jar)) {
+        continue;
+      }
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            scanJar(jar);
+          } catch (IOException e) {
+            Utils.log("PackageUtils", 2, "Couldn't scan " + jar + ": " + e.getMessage());
+          }
+        }
+      });
+    }
+    if (tasks.size() == 1) {
+      tasks.get(0).run();
+    } else if (tasks.size() > 1) {
+      int threadCount = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+      ThreadUtil.execute(tasks, threadCount, 0 /* no timeout */, false /* not at once */);
+    }
+  }
+
+  /**
+   * @return the names of the classes of a package of a jar, as "package/path/Name", in the
+   * order of the jar.
+   */
+  List<String> findClasses(File jar, String packageName, boolean recursive) throws IOException {
+    JarClasses classes = m_jars.get(jar.getPath());
+    if (!isUpToDate(classes, jar)) {
+      classes = scanJar(jar);
+    }
+    return classes.find(packageName, recursive);
+  }
+
+  /**
+   * @return the listing of a directory, which must exist.
+   */
+  DirectoryListing listDirectory(File directory) {
+    DirectoryListing result = m_directories.get(directory.getPath());
+    if (result == null || !result.isUpToDate(directory.lastModified())) {
+      long scanTime = System.currentTimeMillis();
+      long lastModified = directory.lastModified();
+      File[] files = directory.listFiles();
+      if (files == null) {
+        files = new File[0];
+      }
+      String[] names = new String[files.length];
+      boolean[] directories = new boolean[files.length];
+      for (int i = 0; i < files.length; i++) {
+        names[i] = files[i].getName();
+        directories[i] = files[i].isDirectory();
+      }
+      result = new DirectoryListing(lastModified, scanTime, names, directories);
+      m_directories.put(directory.getPath(), result);
+      m_changed = true;
+    }
+    return result;
+  }
+
+  private static boolean isUpToDate(JarClasses classes, File jar) {
+    return classes != null && classes.m_size == jar.length()
+        && isUpToDate(classes.m_lastModified, classes.m_scanTime, jar.lastModified());
+  }
+
+  private static boolean isUpToDate(long lastModified, long scanTime, long currentLastModified) {
+    return lastModified == currentLastModified
+        && lastModified < scanTime - TIMESTAMP_RESOLUTION;
+  }
+
+  private JarClasses scanJar(File jar) throws IOException {
+    long scanTime = System.currentTimeMillis();
+    long size = jar.length();
+    long lastModified = jar.lastModified();
+    Map<String, PackageClasses> packages = Maps.newLinkedHashMap();
+    int ordinal = 0;
+    try (JarFile jarFile = new JarFile(jar)) {
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (name.endsWith(".class") && !entry.isDirectory()) {
+          int start = name.charAt(0) == '/' ? 1 : 0;
+          int idx = name.lastIndexOf('/');
+          String packagePath = idx >= start ? name.substring(start, idx) : "";
+          PackageClasses classes = packages.get(packagePath);
+          if (classes == null) {
+            classes = new PackageClasses(packagePath);
+            packages.put(packagePath, classes);
+          }
+          classes.add(ordinal++, name.substring(Math.max(start, idx + 1), name.length() - ".class".length()));
+        }
+      }
+    }
+    Utils.log("PackageUtils", 3, "Scanned " + ordinal + " classes in " + jar);
+    JarClasses result = new JarClasses(size, lastModified, scanTime, packages);
+    m_jars.put(jar.getPath(), result);
+    m_changed = true;
+    return result;
+  }
+
+  /**
+   * Add the entries of an index saved to a file. The jars and directories that are already
+   * in this index are kept.
+   */
+  void load(File file) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != VERSION) {
+        return;
+      }
+      int jarCount = in.readInt();
+      for (int i = 0; i < jarCount; i++) {
+        String path = in.readUTF();
+        long size = in.readLong();
+        long lastModified = in.readLong();
+        long scanTime = in.readLong();
+        int packageCount = in.readInt();
+        Map<String, PackageClasses> packages = Maps.newLinkedHashMap();
+        for (int j = 0; j < packageCount; j++) {
+          String packagePath = in.readUTF();
+          byte[] encodedClasses = new byte[in.readInt()];
+          in.readFully(encodedClasses);
+          packages.put(packagePath, new PackageClasses(packagePath, encodedClasses));
+        }
+        m_jars.putIfAbsent(path, new JarClasses(size, lastModified, scanTime, packages));
+      }
+      int directoryCount = in.readInt();
+      for (int i = 0; i < directoryCount; i++) {
+        String path = in.readUTF();
+        long lastModified = in.readLong();
+        long scanTime = in.readLong();
+        int count = in.readInt();
+        String[] names = new String[count];
+        boolean[] directories = new boolean[count];
+        for (int j = 0; j < count; j++) {
+          names[j] = in.readUTF();
+          directories[j] = in.readBoolean();
+        }
+        m_directories.putIfAbsent(path,
+            new DirectoryListing(lastModified, scanTime, names, directories));
+      }
+    }
+  }
+
+  /**
+   * Save the entries of the jars and directories that still exist, if any of them changed
+   * since the index was created or loaded.
+   */
+  void save(File file) throws IOException {
+    if (!m_changed) {
+      return;
+    }
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (!parent.exists()) {
+      parent.mkdirs();
+    }
+    // Write to another file first so that concurrent runs never read a partial index
+    File tmpFile = File.createTempFile(file.getName(), ".tmp", parent);
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+        out.writeInt(VERSION);
+        List<Map.Entry<String, JarClasses>> jars = Lists.newArrayList();
+        for (Map.Entry<String, JarClasses> entry : m_jars.entrySet()) {
+          if (new File(entry.getKey()).isFile()) {
+            jars.add(entry);
+          }
+        }
+        out.writeInt(jars.size());
+        for (Map.Entry<String, JarClasses> entry : jars) {
+          JarClasses classes = entry.getValue();
+          out.writeUTF(entry.getKey());
+          out.writeLong(classes.m_size);
+          out.writeLong(classes.m_lastModified);
+          out.writeLong(classes.m_scanTime);
+          out.writeInt(classes.m_packages.size());
+          synchronized (classes) {
+            for (PackageClasses packageClasses : classes.m_packages.values()) {
+              byte[] encodedClasses = packageClasses.getEncodedClasses();
+              out.writeUTF(packageClasses.m_path);
+              out.writeInt(encodedClasses.length);
+              out.write(encodedClasses);
+            }
+          }
+        }
+        List<Map.Entry<String, DirectoryListing>> directories = Lists.newArrayList();
+        for (Map.Entry<String, DirectoryListing> entry : m_directories.entrySet()) {
+          if (new File(entry.getKey()).isDirectory()) {
+            directories.add(entry);
+          }
+        }
+        out.writeInt(directories.size());
+        for (Map.Entry<String, DirectoryListing> entry : directories) {
+          DirectoryListing listing = entry.getValue();
+          out.writeUTF(entry.getKey());
+          out.writeLong(listing.m_lastModified);
+          out.writeLong(listing.m_scanTime);
+          out.writeInt(listing.m_names.length);
+          for (int i = 0; i < listing.m_names.length; i++) {
+            out.writeUTF(listing.m_names[i]);
+            out.writeBoolean(listing.m_directories[i]);
+          }
+        }
+      }
+      Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      m_changed = false;
+    } finally {
+      tmpFile.delete();
+    }
+  }
+
+  /**
+   * The classes of a jar, by package, and the trie of their packages.
+   */
+  private static class JarClasses {
+    final long m_size;
+    final long m_lastModified;
+    final long m_scanTime;
+    /** By package path, e.g. "org/testng" */
+    final Map<String, PackageClasses> m_packages;
+    private PackageNode m_root;
+
+    JarClasses(long size, long lastModified, long scanTime, Map<String, PackageClasses> packages) {
+      m_size = size;
+      m_lastModified = lastModified;
+      m_scanTime = scanTime;
+      m_packages = packages;
+    }
+
+    /**
+     * @return the names of the classes of the package, as "package/path/Name", in the order
+     * of the jar.
+     */
+    synchronized List<String> find(String packageName, boolean recursive) throws IOException {
+      PackageNode node = getRoot();
+      if (packageName.length() > 0) {
+        for (String segment : packageName.split("\\.")) {
+          node = node.m_children.get(segment);
+          if (node == null) {
+            return Collections.emptyList();
+          }
+        }
+      }
+      List<PackageClasses> packages = Lists.newArrayList();
+      node.collect(packages, recursive);
+      if (packages.size() == 1) {
+        return Arrays.asList(packages.get(0).getNames());
+      }
+      // Keep the order of the jar, in which the classes of packages can be interleaved
+      int count = 0;
+      for (PackageClasses classes : packages) {
+        count += classes.getNames().length;
+      }
+      long[] ordinals = new long[count];
+      List<String> names = Lists.newArrayList(count);
+      for (PackageClasses classes : packages) {
+        for (int i = 0; i < classes.getNames().length; i++) {
+          ordinals[names.size()] = ((long) classes.m_ordinals[i] << 32) | names.size();
+          names.add(classes.getNames()[i]);
+        }
+      }
+      Arrays.sort(ordinals);
+      List<String> result = Lists.newArrayList(count);
+      for (long ordinal : ordinals) {
+        result.add(names.get((int) ordinal));
+      }
+      return result;
+    }
+
+    private PackageNode getRoot() {
+      if (m_root == null) {
+        m_root = new PackageNode();
+        for (PackageClasses classes : m_packages.values()) {
+          PackageNode node = m_root;
+          if (classes.m_path.length() > 0) {
+            for (String segment : classes.m_path.split("/")) {
+              node = node.getOrCreateChild(segment);
+            }
+          }
+          node.m_classes = classes;
+        }
+      }
+      return m_root;
+    }
+  }
+
+  /**
+   * The classes of a package of a jar. Most of the packages of a saved index are usually not
+   * looked for, so their classes are only decoded when they are.
+   */
+  private static class PackageClasses {
+    final String m_path;
+    private byte[] m_encodedClasses;
+    /** The indexes of the classes in the jar */
+    private int[] m_ordinals;
+    /** "package/path/Name" */
+    private String[] m_names;
+    private int m_size;
+
+    PackageClasses(String path) {
+      m_path = path;
+      m_ordinals = new int[4];
+      m_names = new String[4];
+    }
+
+    PackageClasses(String path, byte[] encodedClasses) {
+      m_path = path;
+      m_encodedClasses = encodedClasses;
+    }
+
+    void add(int ordinal, String simpleName) {
+      if (m_size == m_names.length) {
+        m_ordinals = Arrays.copyOf(m_ordinals, m_size * 2);
+        m_names = Arrays.copyOf(m_names, m_size * 2);
+      }
+      m_ordinals[m_size] = ordinal;
+      m_names[m_size] = m_path.length() > 0 ? m_path + "/" + simpleName : simpleName;
+      m_size++;
+    }
+
+    String[] getNames() throws IOException {
+      if (m_names == null) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(m_encodedClasses))) {
+          m_size = in.readInt();
+          m_ordinals = new int[m_size];
+          m_names = new String[m_size];
+          for (int i = 0; i < m_size; i++) {
+            m_ordinals[i] = in.readInt();
+            String simpleName = in.readUTF();
+            m_names[i] = m_path.length() > 0 ? m_path + "/" + simpleName : simpleName;
+          }
+        }
+      } else if (m_names.length != m_size) {
+        m_ordinals = Arrays.copyOf(m_ordinals, m_size);
+        m_names = Arrays.copyOf(m_names, m_size);
+      }
+      return m_names;
+    }
+
+    byte[] getEncodedClasses() throws IOException {
+      if (m_encodedClasses == null) {
+        String[] names = getNames();
+        int prefixLength = m_path.length() > 0 ? m_path.length() + 1 : 0;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+          out.writeInt(names.length);
+          for (int i = 0; i < names.length; i++) {
+            out.writeInt(m_ordinals[i]);
+            out.writeUTF(names[i].substring(prefixLength));
+          }
+        }
+        m_encodedClasses = bytes.toByteArray();
+      }
+      return m_encodedClasses;
+    }
+  }
+
+  private static class PackageNode {
+    final Map<String, PackageNode> m_children = Maps.newHashMap();
+    PackageClasses m_classes;
+
+    PackageNode getOrCreateChild(String name) {
+      PackageNode result = m_children.get(name);
+      if (result == null) {
+        result = new PackageNode();
+        m_children.put(name, result);
+      }
+      return result;
+    }
+
+    void collect(List<PackageClasses> packages, boolean recursive) {
+      if (m_classes != null) {
+        packages.add(m_classes);
+      }
+      if (recursive) {
+        for (PackageNode child : m_children.values()) {
+          child.collect(packages, true);
+        }
+      }
+    }
+  }
+
+  /**
+   * The names of the files of a directory, in the order they were listed, and whether
+   * they are directories.
+   */
+  static class DirectoryListing {
+    final long m_lastModified;
+    final long m_scanTime;
+    final String[] m_names;
+    final boolean[] m_directories;
+
+    DirectoryListing(long lastModified, long scanTime, String[] names, boolean[] directories) {
+      m_lastModified = lastModified;
+      m_scanTime = scanTime;
+      m_names = names;
+      m_directories = directories;
+    }
+
+    boolean isUpToDate(long lastModified) {
+      return ClassPathIndex.isUpToDate(m_lastModified, m_scanTime, lastModified);
+    }
+  }
+}
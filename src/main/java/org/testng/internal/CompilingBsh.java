@@ -0,0 +1,43 @@
+package org.testng.internal;
+
+import org.testng.ITestNGMethod;
+
+/**
+ * Evaluates the expressions of the {@link GroupExpression} language after compiling them once,
+ * and delegates the other expressions to BeanShell, except the ones using
+ * <code>hasGroup()</code> which fail with a {@link org.testng.TestNGException}.
+ */
+public class CompilingBsh implements IBsh {
+  private final IBsh m_fallback;
+  private volatile Compiled m_compiled;
+
+  public CompilingBsh(IBsh fallback) {
+    m_fallback = fallback;
+  }
+
+  @Override
+  public boolean includeMethodFromExpression(String expression, ITestNGMethod tm) {
+    Compiled compiled = m_compiled;
+    if (compiled == null || !compiled.m_source.equals(expression)) {
+      compiled = new Compiled(expression, GroupExpression.compile(expression));
+      if (compiled.m_expression == null) {
+        Utils.log("CompilingBsh", 3, "Evaluating the expression with BeanShell: " + expression);
+      }
+      m_compiled = compiled;
+    }
+    return compiled.m_expression != null
+        ? compiled.m_expression.matches(tm)
+        : m_fallback.includeMethodFromExpression(expression, tm);
+  }
+
+  private static class Compiled {
+    final String m_source;
+    /** Null if the expression is not part of the language */
+    final GroupExpression m_expression;
+
+    Compiled(String source, GroupExpression expression) {
+      m_source = source;
+      m_expression = expression;
+    }
+  }
+}
@@ -17,6 +17,8 @@ public class Configuration implements IConfiguration {
   List<IExecutionListener> m_executionListeners = Lists.newArrayList();
   List<IAlterSuiteListener> m_alterSuiteListeners = Lists.newArrayList();
   private List<IConfigurationListener> m_configurationListeners = Lists.newArrayList();
+  private ClassPathIndex m_classPathIndex;
+  private boolean m_preFilterClasses = true;
 
   public Configuration() {
     init(new JDK15AnnotationFinder(new DefaultAnnotationTransformer()));
@@ -97,4 +99,24 @@ public class Configuration implements IConfiguration {
     return m_alterSuiteListeners;
   }
 
+  @Override
+  public ClassPathIndex getClassPathIndex() {
+    return m_classPathIndex;
+  }
+
+  @Override
+  public void setClassPathIndex(ClassPathIndex index) {
+    m_classPathIndex = index;
+  }
+
+  @Override
+  public boolean getPreFilterClasses() {
+    return m_preFilterClasses;
+  }
+
+  @Override
+  public void setPreFilterClasses(boolean preFilterClasses) {
+    m_preFilterClasses = preFilterClasses;
+  }
+
 }
@@ -2,19 +2,24 @@ package org.testng.internal;
 
 
 import org.testng.ITestNGMethod;
-import org.testng.collections.Lists;
 import org.testng.collections.Maps;
 
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class wraps access to beforeGroups and afterGroups methods,
  * since they are passed around the various invokers and potentially
  * modified in different threads.
  *
+ * The state of each group is created once and then only updated with atomic operations, so
+ * that the test methods of different groups, or without any groups configuration, never wait
+ * for each other.
+ *
  * @author <a href="mailto:cedric@beust.com">Cedric Beust</a>
  * @author <a href='mailto:the_mindstorm@evolva.ro'>Alexandru Popescu</a>
  * @since 5.3 (Mar 2, 2006)
@@ -32,8 +37,18 @@ public class ConfigurationGroupMethods implements Serializable {
   /** The list of all test methods */
   private final ITestNGMethod[] m_allMethods;
 
-  /**A map that returns the last method belonging to the given group */
-  private Map<String, List<ITestNGMethod>> m_afterGroupsMap= null;
+  /** Whether the beforeGroups methods of a group were invoked, for the groups that have some */
+  private final Map<String, BeforeGroupsState> m_beforeGroupsStates = Maps.newHashMap();
+
+  /** The number of test methods of each group that haven't run their last invocation */
+  private final Map<String, AtomicInteger> m_remainingMethodCounts = Maps.newHashMap();
+
+  /**
+   * The number of times each test method is listed, for each of its groups, that it hasn't
+   * run its last invocation
+   */
+  private final Map<ITestNGMethod, Map<String, AtomicInteger>> m_remainingMethodRuns =
+      Maps.newHashMap();
 
   public ConfigurationGroupMethods(ITestNGMethod[] allMethods,
                                    Map<String, List<ITestNGMethod>> beforeGroupsMethods,
@@ -42,6 +57,32 @@ public class ConfigurationGroupMethods implements Serializable {
     m_allMethods= allMethods;
     m_beforeGroupsMethods= beforeGroupsMethods;
     m_afterGroupsMethods= afterGroupsMethods;
+
+    for (Map.Entry<String, List<ITestNGMethod>> entry : beforeGroupsMethods.entrySet()) {
+      if (!entry.getValue().isEmpty()) {
+        m_beforeGroupsStates.put(entry.getKey(), new BeforeGroupsState());
+      }
+    }
+    for (ITestNGMethod m : allMethods) {
+      Map<String, AtomicInteger> runs = m_remainingMethodRuns.get(m);
+      if (runs == null) {
+        runs = Maps.newHashMap();
+        m_remainingMethodRuns.put(m, runs);
+      }
+      for (String g : m.getGroups()) {
+        increment(runs, g);
+        increment(m_remainingMethodCounts, g);
+      }
+    }
+  }
+
+  private static void increment(Map<String, AtomicInteger> counts, String key) {
+    AtomicInteger count = counts.get(key);
+    if (count == null) {
+      count = new AtomicInteger();
+      counts.put(key, count);
+    }
+    count.incrementAndGet();
   }
 
   public Map<String, List<ITestNGMethod>> getBeforeGroupsMethods() {
@@ -57,46 +98,66 @@ public class ConfigurationGroupMethods implements Serializable {
    * This method is used to figure out when is the right time to invoke
    * afterGroups methods.
    */
-  public synchronized boolean isLastMethodForGroup(String group, ITestNGMethod method) {
+  public boolean isLastMethodForGroup(String group, ITestNGMethod method) {
 
     // If we have more invocation to do, this is not the last one yet
     if(method.hasMoreInvocation()) {
       return false;
     }
 
-    // Lazy initialization since we might never be called
-    if(m_afterGroupsMap == null) {
-      m_afterGroupsMap= initializeAfterGroupsMap();
-    }
-
-    List<ITestNGMethod> methodsInGroup= m_afterGroupsMap.get(group);
-
-    if(null == methodsInGroup || methodsInGroup.isEmpty()) {
+    // Note:  == is not good enough here as we may work with ITestNGMethod clones
+    Map<String, AtomicInteger> runs = m_remainingMethodRuns.get(method);
+    AtomicInteger methodRuns = runs == null ? null : runs.get(group);
+    if (methodRuns == null || !decrementIfPositive(methodRuns)) {
+      // Not a method of the group, or its runs were already counted
       return false;
     }
+    return m_remainingMethodCounts.get(group).decrementAndGet() == 0;
+  }
 
-    methodsInGroup.remove(method);
-
-    // Note:  == is not good enough here as we may work with ITestNGMethod clones
-    return methodsInGroup.isEmpty();
+  private static boolean decrementIfPositive(AtomicInteger counter) {
+    while (true) {
+      int value = counter.get();
+      if (value <= 0) {
+        return false;
+      }
+      if (counter.compareAndSet(value, value - 1)) {
+        return true;
+      }
+    }
+  }
 
+  /**
+   * @return true if the group has afterGroups methods.
+   */
+  public boolean hasAfterGroupsMethods(String group) {
+    List<ITestNGMethod> methods = m_afterGroupsMethods.get(group);
+    return methods != null && !methods.isEmpty();
   }
 
-  private synchronized Map<String, List<ITestNGMethod>> initializeAfterGroupsMap() {
-    Map<String, List<ITestNGMethod>> result= Maps.newHashMap();
-    for(ITestNGMethod m : m_allMethods) {
-      String[] groups= m.getGroups();
-      for(String g : groups) {
-        List<ITestNGMethod> methodsInGroup= result.get(g);
-        if(null == methodsInGroup) {
-          methodsInGroup= Lists.newArrayList();
-          result.put(g, methodsInGroup);
-        }
-        methodsInGroup.add(m);
-      }
+  /**
+   * @return the beforeGroups methods of the group that the calling thread must invoke, in
+   * which case it must then call {@link #beforeGroupsInvoked(String)}, or null if there is
+   * none or they were already invoked. If another thread is invoking them, this waits until
+   * they are done, so that no method of the group runs before them.
+   */
+  public List<ITestNGMethod> startBeforeGroups(String group) {
+    BeforeGroupsState state = m_beforeGroupsStates.get(group);
+    if (state == null) {
+      return null;
+    }
+    if (state.m_started.compareAndSet(false, true)) {
+      return m_beforeGroupsMethods.get(group);
     }
+    state.awaitInvoked();
+    return null;
+  }
 
-    return result;
+  /**
+   * Let the methods of the group that wait in {@link #startBeforeGroups(String)} run.
+   */
+  public void beforeGroupsInvoked(String group) {
+    m_beforeGroupsStates.get(group).setInvoked();
   }
 
   public synchronized void removeBeforeMethod(String group, ITestNGMethod method) {
@@ -139,4 +200,35 @@ public class ConfigurationGroupMethods implements Serializable {
 
   }
 
+  private static class BeforeGroupsState implements Serializable {
+    private static final long serialVersionUID = -6402540498497226014L;
+
+    private final AtomicBoolean m_started = new AtomicBoolean();
+    private volatile boolean m_invoked;
+
+    synchronized void setInvoked() {
+      m_invoked = true;
+      notifyAll();
+    }
+
+    void awaitInvoked() {
+      if (m_invoked) {
+        return;
+      }
+      boolean interrupted = false;
+      synchronized (this) {
+        while (!m_invoked) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            // Keep waiting, the methods of the group must not run before
+            interrupted = true;
+          }
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
 }
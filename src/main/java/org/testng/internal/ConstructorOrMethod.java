@@ -2,6 +2,8 @@ package org.testng.internal;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Encapsulation of either a method or a constructor.
@@ -9,10 +11,17 @@ import java.lang.reflect.Method;
  * @author Cedric Beust <cedric@beust.com>
  */
 public class ConstructorOrMethod {
+  /** The key of the invoker used without instance, as a map can't have a null key */
+  private static final Class<?> NO_INSTANCE = Void.class;
 
   private Method m_method;
   private Constructor m_constructor;
   private boolean m_enabled = true;
+  /**
+   * The invokers of the method by class of the instances they invoke it on, so that the
+   * subclasses inheriting a method don't keep replacing each other's invoker.
+   */
+  private final ConcurrentMap<Class<?>, MethodInvoker> m_invokers = new ConcurrentHashMap<>(2);
 
   public ConstructorOrMethod(Method m) {
     m_method = m;
@@ -73,6 +82,19 @@ public class ConstructorOrMethod {
     return true;
   }
 
+  /**
+   * @param instanceClass the class of the instances, or null if the method is invoked
+   * without instance
+   * @return the invoker of the method on these instances, null if it wasn't invoked on them yet
+   */
+  public MethodInvoker getInvoker(Class<?> instanceClass) {
+    return m_invokers.get(instanceClass == null ? NO_INSTANCE : instanceClass);
+  }
+
+  public void setInvoker(Class<?> instanceClass, MethodInvoker invoker) {
+    m_invokers.put(instanceClass == null ? NO_INSTANCE : instanceClass, invoker);
+  }
+
   public void setEnabled(boolean enabled) {
     m_enabled = enabled;
   }
@@ -0,0 +1,221 @@
+package org.testng.internal;
+
+import org.testng.ITestNGMethod;
+import org.testng.TestNGException;
+import org.testng.collections.Lists;
+import org.testng.collections.Maps;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The methods and groups that each method of an array depends upon, resolved once when the
+ * index is created so that looking them up is a map access instead of matching the regular
+ * expressions of the dependencies against all the methods again.
+ *
+ * The dependencies are resolved like {@link MethodHelper#findDependedUponMethods} and
+ * {@link MethodGroupsHelper#findMethodsThatBelongToGroup(ITestNGMethod, ITestNGMethod[], String)}
+ * do: the methods found keep the order of the array and the exception for a missing method is
+ * only thrown when the methods depended upon are looked up.
+ *
+ * This class is immutable: creating or querying an index doesn't modify the methods, so that it
+ * can be built once per test and shared by the threads running its methods. A group that no
+ * method belongs to is only set as the missing group of the methods depending on it by
+ * {@link #setMissingGroups()}.
+ */
+public class DependencyIndex {
+  private static final ITestNGMethod[] NO_METHODS = new ITestNGMethod[0];
+
+  private final ITestNGMethod[] m_methods;
+  /** The dependencies of the methods of the array that have any */
+  private final Map<ITestNGMethod, Dependencies> m_dependencies;
+
+  public DependencyIndex(ITestNGMethod[] methods) {
+    m_methods = methods;
+    m_dependencies = new HashMap<>(methods.length * 4 / 3 + 1);
+    Resolver resolver = new Resolver(methods);
+    for (ITestNGMethod m : methods) {
+      String[] methodsDependedUpon = m.getMethodsDependedUpon();
+      String[] groupsDependedUpon = m.getGroupsDependedUpon();
+      if (methodsDependedUpon.length == 0 && groupsDependedUpon.length == 0) {
+        continue;
+      }
+      m_dependencies.put(m, resolver.resolve(m));
+    }
+  }
+
+  /**
+   * Set the missing group of each method of the index that depends on a group no method belongs
+   * to. This modifies the methods, so it must only be called by the thread that collects them,
+   * before they start running.
+   */
+  public void setMissingGroups() {
+    for (Map.Entry<ITestNGMethod, Dependencies> entry : m_dependencies.entrySet()) {
+      ITestNGMethod m = entry.getKey();
+      String[] groups = m.getGroupsDependedUpon();
+      ITestNGMethod[][] groupMethods = entry.getValue().m_groups;
+      for (int i = 0; i < groups.length; i++) {
+        if (groupMethods[i].length == 0) {
+          m.setMissingGroup(groups[i]);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the methods the index was created from.
+   */
+  public ITestNGMethod[] getMethods() {
+    return m_methods;
+  }
+
+  /**
+   * @return the methods that this method depends upon.
+   * @throws TestNGException if one of these methods doesn't exist and the method doesn't
+   * ignore the missing dependencies.
+   */
+  public ITestNGMethod[] getMethodsDependedUpon(ITestNGMethod m) {
+    if (m.getMethodsDependedUpon().length == 0) {
+      return NO_METHODS;
+    }
+    Dependencies dependencies = m_dependencies.get(m);
+    if (dependencies == null) {
+      // Not one of the methods of the index, e.g. added by an IMethodInterceptor
+      return MethodHelper.findDependedUponMethods(m, m_methods);
+    }
+    if (dependencies.m_error != null) {
+      throw dependencies.m_error;
+    }
+    return dependencies.m_methods;
+  }
+
+  /**
+   * @return for each group returned by {@link ITestNGMethod#getGroupsDependedUpon()}, the
+   * methods that belong to it.
+   */
+  public ITestNGMethod[][] getGroupsDependedUpon(ITestNGMethod m) {
+    String[] groups = m.getGroupsDependedUpon();
+    if (groups.length == 0) {
+      return new ITestNGMethod[0][];
+    }
+    Dependencies dependencies = m_dependencies.get(m);
+    if (dependencies == null) {
+      ITestNGMethod[][] result = new ITestNGMethod[groups.length][];
+      for (int i = 0; i < groups.length; i++) {
+        result[i] = MethodGroupsHelper.findMethodsThatBelongToGroup(m_methods, groups[i]);
+      }
+      return result;
+    }
+    return dependencies.m_groups.clone();
+  }
+
+  private static class Dependencies {
+    final ITestNGMethod[] m_methods;
+    /** Thrown when the methods are looked up, as the lookup without the index would */
+    final TestNGException m_error;
+    final ITestNGMethod[][] m_groups;
+
+    Dependencies(ITestNGMethod[] methods, TestNGException error, ITestNGMethod[][] groups) {
+      m_methods = methods;
+      m_error = error;
+      m_groups = groups;
+    }
+  }
+
+  /**
+   * Matches each regular expression against the names once, however many methods depend on it.
+   */
+  private static class Resolver {
+    private final ITestNGMethod[] m_methods;
+    private final Map<String, ITestNGMethod[]> m_methodsByRegexp = Maps.newHashMap();
+    private final Map<String, ITestNGMethod[]> m_methodsByGroupRegexp = Maps.newHashMap();
+    /** The canonical names of the methods, only computed if a regexp needs them */
+    private String[] m_canonicalNames;
+
+    Resolver(ITestNGMethod[] methods) {
+      m_methods = methods;
+    }
+
+    Dependencies resolve(ITestNGMethod m) {
+      List<ITestNGMethod> methods = Lists.newArrayList();
+      boolean missing = false;
+      for (String fullyQualifiedRegexp : m.getMethodsDependedUpon()) {
+        ITestNGMethod[] found = fullyQualifiedRegexp == null
+            ? NO_METHODS : findMethods(fullyQualifiedRegexp);
+        if (found.length == 0) {
+          missing = true;
+        }
+        for (ITestNGMethod method : found) {
+          methods.add(method);
+        }
+      }
+      TestNGException error = null;
+      if (missing && !m.ignoreMissingDependencies() && !m.isAlwaysRun()) {
+        try {
+          // Builds the same message
+          MethodHelper.findDependedUponMethods(m, m_methods);
+        } catch (TestNGException ex) {
+          error = ex;
+        }
+      }
+
+      String[] groups = m.getGroupsDependedUpon();
+      ITestNGMethod[][] groupMethods = new ITestNGMethod[groups.length][];
+      for (int i = 0; i < groups.length; i++) {
+        groupMethods[i] = findGroupMethods(groups[i]);
+      }
+      return new Dependencies(methods.toArray(new ITestNGMethod[methods.size()]), error,
+          groupMethods);
+    }
+
+    private ITestNGMethod[] findMethods(String fullyQualifiedRegexp) {
+      ITestNGMethod[] result = m_methodsByRegexp.get(fullyQualifiedRegexp);
+      if (result != null) {
+        return result;
+      }
+      // Escapes $ in regexps as it is not meant for end - line matching, but inner class matches.
+      String regexp = fullyQualifiedRegexp.replace("$", "\\$");
+      boolean usePackage = regexp.indexOf('.') != -1;
+      Pattern pattern = Pattern.compile(regexp);
+      Map<String, Boolean> matches = Maps.newHashMap();
+      List<ITestNGMethod> found = Lists.newArrayList();
+      for (int i = 0; i < m_methods.length; i++) {
+        String methodName = usePackage
+            ? getCanonicalName(i)
+            : m_methods[i].getConstructorOrMethod().getName();
+        Boolean match = matches.get(methodName);
+        if (match == null) {
+          match = pattern.matcher(methodName).matches();
+          matches.put(methodName, match);
+        }
+        if (match) {
+          found.add(m_methods[i]);
+        }
+      }
+      result = found.toArray(new ITestNGMethod[found.size()]);
+      m_methodsByRegexp.put(fullyQualifiedRegexp, result);
+      return result;
+    }
+
+    private String getCanonicalName(int i) {
+      if (m_canonicalNames == null) {
+        m_canonicalNames = new String[m_methods.length];
+      }
+      if (m_canonicalNames[i] == null) {
+        m_canonicalNames[i] = MethodHelper.calculateMethodCanonicalName(m_methods[i]);
+      }
+      return m_canonicalNames[i];
+    }
+
+    private ITestNGMethod[] findGroupMethods(String groupRegexp) {
+      ITestNGMethod[] result = m_methodsByGroupRegexp.get(groupRegexp);
+      if (result == null) {
+        result = MethodGroupsHelper.findMethodsThatBelongToGroup(m_methods, groupRegexp);
+        m_methodsByGroupRegexp.put(groupRegexp, result);
+      }
+      return result;
+    }
+  }
+}
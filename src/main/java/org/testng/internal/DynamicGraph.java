@@ -4,29 +4,78 @@ import org.testng.collections.ListMultiMap;
 import org.testng.collections.Lists;
 import org.testng.collections.Maps;
 import org.testng.collections.Sets;
-import org.testng.internal.collections.Pair;
 
 import java.util.Arrays;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Representation of the graph of methods.
+ *
+ * Every node keeps a counter of the edges that still point to a READY or RUNNING node,
+ * together with its outgoing and incoming adjacency. Finishing a node therefore only
+ * touches the nodes that depend on it, and the nodes whose counter drops to zero are
+ * kept in a set so that {@link #getFreeNodes()} never has to rescan the whole graph.
+ *
+ * When every node of a layer depends on every node of another layer (e.g. priorities),
+ * the dependencies are stored once in a {@link Barrier} instead of one edge per pair.
+ *
+ * The nodes are told apart by identity: the methods of the instances returned by a
+ * factory share their hash code, which would turn every lookup into a linear scan.
  */
 public class DynamicGraph<T> {
 
-  private final List<T> m_nodesReady = Lists.newArrayList();
-  private final List<T> m_nodesRunning = Lists.newArrayList();
-  private final List<T> m_nodesFinished = Lists.newArrayList();
+  /** The nodes that have at least one occurrence with the given status. */
+  private final Set<T> m_nodesReady = Sets.newIdentityHashSet();
+  private final Set<T> m_nodesRunning = Sets.newIdentityHashSet();
+  private final Set<T> m_nodesFinished = Sets.newIdentityHashSet();
+  private int m_readyCount = 0;
+  private int m_runningCount = 0;
+  private int m_finishedCount = 0;
 
-  private final ListMultiMap<T, Edge<T>> m_edges = Maps.newListMultiMap();
+  /** All the nodes known to this graph. */
+  private final Map<T, Node> m_nodes = Maps.newIdentityHashMap();
+  /** The READY nodes that have no unfinished dependency. */
+  private final Set<T> m_freeNodes = Sets.newIdentityHashSet();
+
+  /** from -> (to -> edges), the edges to the same node are kept in insertion order. */
+  private final Map<T, Map<T, List<Edge<T>>>> m_outgoing = Maps.newIdentityHashMap();
+  /** to -> nodes that have at least one edge pointing to it. */
+  private final Map<T, Set<T>> m_incoming = Maps.newIdentityHashMap();
+  /** from -> number of edges pointing to a node that is not finished yet. */
+  private final Map<T, Integer> m_unfinishedEdgeCount = Maps.newIdentityHashMap();
+
+  /** from -> the barriers it waits for. */
+  private final Map<T, Set<Barrier<T>>> m_outgoingBarriers = Maps.newIdentityHashMap();
+  /** node -> the barriers it belongs to. */
+  private final Map<T, List<Barrier<T>>> m_barriersByMember = Maps.newIdentityHashMap();
+
+  private int m_nodeIndex = 0;
 
   public enum Status {
     READY, RUNNING, FINISHED
   }
 
+  /**
+   * The same node can be added several times (e.g. by a method interceptor), each
+   * occurrence keeps the position at which it was added.
+   */
+  private static class Node {
+    private final Deque<Integer> readyIndices = new ArrayDeque<>();
+    private int running;
+    private int finished;
+
+    private boolean isUnfinished() {
+      return finished == 0;
+    }
+  }
+
   private static class Edge<T> {
     private final T from;
     private final T to;
@@ -37,13 +86,48 @@ public class DynamicGraph<T> {
       this.to = to;
       this.weight = weight;
     }
+
+    @Override
+    public String toString() {
+      return from + " -> " + to + " (" + weight + ")";
+    }
+  }
+
+  /**
+   * Stands for an edge from every node of {@code froms} to every node of {@code members}:
+   * a from node waits until all the members are finished.
+   */
+  public static class Barrier<T> {
+    private final Set<T> froms;
+    private final Set<T> members;
+    private final int weight;
+    /** The members that are known to the graph and not finished yet. */
+    private int unfinishedCount;
+    /** The members that are not finished yet, whether they were added to the graph or not. */
+    private int pendingCount;
+
+    private Barrier(int weight, Set<T> froms, Set<T> members) {
+      this.weight = weight;
+      this.froms = froms;
+      this.members = members;
+      this.pendingCount = members.size();
+    }
+
+    @Override
+    public String toString() {
+      return froms + " -> " + members + " (" + weight + ")";
+    }
   }
 
   /**
    * Add a node to the graph.
    */
   public void addNode(T node) {
+    Node n = getOrCreateNode(node);
+    n.readyIndices.add(m_nodeIndex++);
+    m_readyCount++;
     m_nodesReady.add(node);
+    updateFreeState(node);
   }
 
   /**
@@ -64,91 +148,238 @@ public class DynamicGraph<T> {
     addEdges(edges);
   }
 
+  /**
+   * Make every node of {@code froms} depend on every node of {@code tos}, with a
+   * number of references that is linear in the size of both collections.
+   */
+  public void addBarrier(int weight, Collection<T> froms, Collection<T> tos) {
+    Set<T> fromSet = Sets.newIdentityHashSet(froms);
+    Set<T> toSet = Sets.newIdentityHashSet(tos);
+    if (fromSet.isEmpty() || toSet.isEmpty()) {
+      return;
+    }
+    if (hasReverseDependency(fromSet, toSet)) {
+      // Let addEdge() resolve the conflicts pair by pair
+      for (T from : fromSet) {
+        addEdge(weight, from, toSet);
+      }
+      return;
+    }
+
+    Barrier<T> barrier = new Barrier<>(weight, fromSet, toSet);
+    for (T to : toSet) {
+      Node target = m_nodes.get(to);
+      if (target != null) {
+        if (target.isUnfinished()) {
+          barrier.unfinishedCount++;
+        } else {
+          barrier.pendingCount--;
+        }
+      }
+    }
+    if (barrier.pendingCount == 0) {
+      return;
+    }
+    for (T to : toSet) {
+      List<Barrier<T>> barriers = m_barriersByMember.get(to);
+      if (barriers == null) {
+        barriers = Lists.newArrayList(1);
+        m_barriersByMember.put(to, barriers);
+      }
+      barriers.add(barrier);
+    }
+    for (T from : fromSet) {
+      Set<Barrier<T>> barriers = m_outgoingBarriers.get(from);
+      if (barriers == null) {
+        barriers = new LinkedHashSet<>();
+        m_outgoingBarriers.put(from, barriers);
+      }
+      barriers.add(barrier);
+      if (barrier.unfinishedCount > 0) {
+        addToUnfinishedEdgeCount(from, 1);
+      }
+    }
+  }
+
+  /**
+   * @return whether one of the {@code tos} already depends on one of the {@code froms},
+   * or one of the {@code froms} is also one of the {@code tos}.
+   */
+  private boolean hasReverseDependency(Set<T> froms, Set<T> tos) {
+    Set<Barrier<T>> visited = Sets.newHashSet();
+    for (T to : tos) {
+      if (froms.contains(to)) {
+        return true;
+      }
+      Map<T, List<Edge<T>>> edges = m_outgoing.get(to);
+      if (edges != null) {
+        for (T target : edges.keySet()) {
+          if (froms.contains(target)) {
+            return true;
+          }
+        }
+      }
+      Set<Barrier<T>> barriers = m_outgoingBarriers.get(to);
+      if (barriers != null) {
+        for (Barrier<T> barrier : barriers) {
+          if (visited.add(barrier)) {
+            for (T member : barrier.members) {
+              if (froms.contains(member)) {
+                return true;
+              }
+            }
+          }
+        }
+      }
+    }
+    return false;
+  }
+
   private void addEdges(List<Edge<T>> edges) {
     for (Edge<T> edge : edges) {
-      Edge<T> existingEdge = getNode(m_edges, edge);
-      if (existingEdge != null && existingEdge.weight == edge.weight) {
+      Integer existingWeight = getReverseWeight(edge);
+      if (existingWeight != null && existingWeight == edge.weight) {
         throw new IllegalStateException("Circular dependency: " + edge.from + " <-> " + edge.to);
       }
-      if (existingEdge == null) {
-        m_edges.put(edge.from, edge);
-      } else if (existingEdge.weight < edge.weight) {
-        m_edges.put(edge.from, edge);
+      if (existingWeight == null || existingWeight < edge.weight) {
+        putEdge(edge);
       }
-      // else: existingEdge.weight > edge.weight and ignore
+      // else: existingWeight > edge.weight and ignore
     }
   }
 
-  private static <T> Edge<T> getNode(ListMultiMap<T, Edge<T>> edges, Edge<T> edge) {
-    for (Edge<T> e : edges.get(edge.to)) {
-      if (e.to.equals(edge.from)) {
-        return e;
+  /**
+   * @return the weight of the dependency of {@code edge.to} on {@code edge.from}, or null
+   * if there is none.
+   */
+  private Integer getReverseWeight(Edge<T> edge) {
+    Set<Barrier<T>> barriers = m_outgoingBarriers.get(edge.to);
+    if (barriers != null) {
+      for (Barrier<T> barrier : barriers) {
+        if (barrier.members.contains(edge.from)) {
+          return barrier.weight;
+        }
       }
     }
-    return null;
+    Map<T, List<Edge<T>>> edges = m_outgoing.get(edge.to);
+    if (edges == null) {
+      return null;
+    }
+    List<Edge<T>> reverse = edges.get(edge.from);
+    return reverse == null ? null : reverse.get(0).weight;
+  }
+
+  private void putEdge(Edge<T> edge) {
+    Map<T, List<Edge<T>>> edges = m_outgoing.get(edge.from);
+    if (edges == null) {
+      edges = Maps.newIdentityHashMap();
+      m_outgoing.put(edge.from, edges);
+    }
+    List<Edge<T>> sameTarget = edges.get(edge.to);
+    if (sameTarget == null) {
+      sameTarget = Lists.newArrayList(1);
+      edges.put(edge.to, sameTarget);
+    }
+    sameTarget.add(edge);
+
+    Set<T> predecessors = m_incoming.get(edge.to);
+    if (predecessors == null) {
+      predecessors = Sets.newIdentityHashSet();
+      m_incoming.put(edge.to, predecessors);
+    }
+    predecessors.add(edge.from);
+
+    Node target = m_nodes.get(edge.to);
+    if (target != null && target.isUnfinished()) {
+      addToUnfinishedEdgeCount(edge.from, 1);
+    }
   }
 
   /**
    * @return a set of all the nodes that don't depend on any other nodes.
    */
   public List<T> getFreeNodes() {
-    List<T> result = Lists.newArrayList();
-    for (T node : m_nodesReady) {
-      // A node is free if...
-      // - no other nodes depend on it
-      if (m_edges.get(node).isEmpty() || getUnfinishedNodes(node).isEmpty()) {
-        result.add(node);
-      }
-    }
+    Collection<T> free = m_freeNodes;
     // if all nodes have dependencies, then we can ignore the lowest one
-    if (result.isEmpty()) {
+    if (free.isEmpty()) {
+      free = Lists.newArrayList();
       int lowestPriority = getLowestEdgePriority(m_nodesReady);
       for (T node : m_nodesReady) {
-        if (hasAllEdgesWithLevel(m_edges.get(node), lowestPriority)) {
-          result.add(node);
+        if (hasAllEdgesWithLevel(node, lowestPriority)) {
+          free.add(node);
         }
       }
     }
-    return  result;
+    return inAdditionOrder(free);
+  }
+
+  /**
+   * @return every READY occurrence of the given nodes, in the order they were added.
+   */
+  private List<T> inAdditionOrder(Collection<T> nodes) {
+    Map<Integer, T> occurrences = new TreeMap<>();
+    for (T node : nodes) {
+      for (Integer index : m_nodes.get(node).readyIndices) {
+        occurrences.put(index, node);
+      }
+    }
+    return Lists.newArrayList(occurrences.values());
   }
 
-  private int getLowestEdgePriority(List<T> nodes) {
+  private int getLowestEdgePriority(Collection<T> nodes) {
     if (nodes.isEmpty()) {
       return 0;
     }
     Integer lowerPriority = null;
     for (T node : nodes) {
-      for (Edge<T> edge : m_edges.get(node)) {
-        if (lowerPriority == null) {
-          lowerPriority = edge.weight;
-        } else {
-          lowerPriority = lowerPriority < edge.weight ? lowerPriority : edge.weight;
+      Map<T, List<Edge<T>>> edges = m_outgoing.get(node);
+      if (edges == null) {
+        continue;
+      }
+      for (List<Edge<T>> sameTarget : edges.values()) {
+        for (Edge<T> edge : sameTarget) {
+          if (lowerPriority == null) {
+            lowerPriority = edge.weight;
+          } else {
+            lowerPriority = lowerPriority < edge.weight ? lowerPriority : edge.weight;
+          }
+        }
+      }
+    }
+    for (T node : nodes) {
+      Set<Barrier<T>> barriers = m_outgoingBarriers.get(node);
+      if (barriers == null) {
+        continue;
+      }
+      for (Barrier<T> barrier : barriers) {
+        if (lowerPriority == null || barrier.weight < lowerPriority) {
+          lowerPriority = barrier.weight;
         }
       }
     }
     return lowerPriority == null ? 0 : lowerPriority;
   }
 
-  private static <T> boolean hasAllEdgesWithLevel(List<Edge<T>> edges, int level) {
-    for (Edge<?> edge : edges) {
-      if (edge.weight != level) {
-        return false;
+  private boolean hasAllEdgesWithLevel(T node, int level) {
+    Map<T, List<Edge<T>>> edges = m_outgoing.get(node);
+    if (edges != null) {
+      for (List<Edge<T>> sameTarget : edges.values()) {
+        for (Edge<?> edge : sameTarget) {
+          if (edge.weight != level) {
+            return false;
+          }
+        }
       }
     }
-    return true;
-  }
-
-  /**
-   * @return a list of all the nodes that have a status other than FINISHED.
-   */
-  private Collection<? extends T> getUnfinishedNodes(T node) {
-    Set<T> result = Sets.newHashSet();
-    for (Edge<T> edge : m_edges.get(node)) {
-      if (m_nodesReady.contains(edge.to) || m_nodesRunning.contains(edge.to)) {
-        result.add(edge.to);
+    Set<Barrier<T>> barriers = m_outgoingBarriers.get(node);
+    if (barriers != null) {
+      for (Barrier<T> barrier : barriers) {
+        if (barrier.weight != level) {
+          return false;
+        }
       }
     }
-    return result;
+    return true;
   }
 
   /**
@@ -164,27 +395,32 @@ public class DynamicGraph<T> {
    * Set the status for a node.
    */
   public void setStatus(T node, Status status) {
+    Node n = getOrCreateNode(node);
     switch(status) {
       case RUNNING:
-        m_nodesReady.remove(node);
+        removeReadyOccurrence(node, n);
+        n.running++;
+        m_runningCount++;
         m_nodesRunning.add(node);
         break;
       case FINISHED:
-        m_nodesReady.remove(node);
-        m_nodesRunning.remove(node);
-        m_nodesFinished.add(node);
-
-        m_edges.removeAll(node);
-        List<Pair<T, Edge<T>>> edgesToRemove = Lists.newArrayList();
-        for (Map.Entry<T, List<Edge<T>>> entry : m_edges.entrySet()) {
-          for (Edge<T> edge : entry.getValue()) {
-            if (edge.to.equals(node)) {
-              edgesToRemove.add(new Pair<>(entry.getKey(), edge));
-            }
+        boolean wasUnfinished = n.isUnfinished();
+        removeReadyOccurrence(node, n);
+        if (n.running > 0) {
+          n.running--;
+          m_runningCount--;
+          if (n.running == 0) {
+            m_nodesRunning.remove(node);
           }
         }
-        for (Pair<T, Edge<T>> pair : edgesToRemove) {
-          m_edges.remove(pair.first(), pair.second());
+        n.finished++;
+        m_finishedCount++;
+        m_nodesFinished.add(node);
+
+        if (wasUnfinished) {
+          removeOutgoingEdges(node);
+          releasePredecessors(node);
+          updateFreeState(node);
         }
         break;
       default:
@@ -192,19 +428,219 @@ public class DynamicGraph<T> {
     }
   }
 
+  private void removeReadyOccurrence(T node, Node n) {
+    if (n.readyIndices.pollFirst() != null) {
+      m_readyCount--;
+      if (n.readyIndices.isEmpty()) {
+        m_nodesReady.remove(node);
+      }
+    }
+    updateFreeState(node);
+  }
+
+  /**
+   * The edges that were added before the node itself point to an unfinished node
+   * as soon as the node is known, so they need to be counted.
+   */
+  private Node getOrCreateNode(T node) {
+    Node result = m_nodes.get(node);
+    if (result == null) {
+      result = new Node();
+      m_nodes.put(node, result);
+      Set<T> predecessors = m_incoming.get(node);
+      if (predecessors != null) {
+        for (T from : predecessors) {
+          addToUnfinishedEdgeCount(from, m_outgoing.get(from).get(node).size());
+        }
+      }
+      List<Barrier<T>> barriers = m_barriersByMember.get(node);
+      if (barriers != null) {
+        for (Barrier<T> barrier : barriers) {
+          if (barrier.unfinishedCount++ == 0) {
+            for (T from : barrier.froms) {
+              addToUnfinishedEdgeCount(from, 1);
+            }
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private void removeOutgoingEdges(T node) {
+    Set<Barrier<T>> barriers = m_outgoingBarriers.remove(node);
+    if (barriers != null) {
+      for (Barrier<T> barrier : barriers) {
+        barrier.froms.remove(node);
+      }
+    }
+    Map<T, List<Edge<T>>> edges = m_outgoing.remove(node);
+    m_unfinishedEdgeCount.remove(node);
+    if (edges == null) {
+      return;
+    }
+    for (T to : edges.keySet()) {
+      Set<T> predecessors = m_incoming.get(to);
+      if (predecessors != null) {
+        predecessors.remove(node);
+        if (predecessors.isEmpty()) {
+          m_incoming.remove(to);
+        }
+      }
+    }
+  }
+
+  private void releasePredecessors(T node) {
+    List<Barrier<T>> barriers = m_barriersByMember.get(node);
+    if (barriers != null) {
+      for (Barrier<T> barrier : Lists.newArrayList(barriers)) {
+        barrier.pendingCount--;
+        if (--barrier.unfinishedCount == 0) {
+          for (T from : barrier.froms) {
+            addToUnfinishedEdgeCount(from, -1);
+          }
+        }
+        if (barrier.pendingCount == 0) {
+          removeBarrier(barrier);
+        }
+      }
+    }
+    Set<T> predecessors = m_incoming.remove(node);
+    if (predecessors == null) {
+      return;
+    }
+    for (T from : predecessors) {
+      Map<T, List<Edge<T>>> edges = m_outgoing.get(from);
+      List<Edge<T>> removed = edges.remove(node);
+      if (edges.isEmpty()) {
+        m_outgoing.remove(from);
+      }
+      if (removed != null) {
+        addToUnfinishedEdgeCount(from, -removed.size());
+      }
+    }
+  }
+
+  private void removeBarrier(Barrier<T> barrier) {
+    for (T from : barrier.froms) {
+      Set<Barrier<T>> barriers = m_outgoingBarriers.get(from);
+      barriers.remove(barrier);
+      if (barriers.isEmpty()) {
+        m_outgoingBarriers.remove(from);
+      }
+    }
+    for (T member : barrier.members) {
+      List<Barrier<T>> barriers = m_barriersByMember.get(member);
+      barriers.remove(barrier);
+      if (barriers.isEmpty()) {
+        m_barriersByMember.remove(member);
+      }
+    }
+  }
+
+  private void addToUnfinishedEdgeCount(T node, int delta) {
+    Integer current = m_unfinishedEdgeCount.get(node);
+    int count = (current == null ? 0 : current) + delta;
+    if (count == 0) {
+      m_unfinishedEdgeCount.remove(node);
+    } else {
+      m_unfinishedEdgeCount.put(node, count);
+    }
+    updateFreeState(node);
+  }
+
+  private void updateFreeState(T node) {
+    Node n = m_nodes.get(node);
+    if (n != null && !n.readyIndices.isEmpty() && !m_unfinishedEdgeCount.containsKey(node)) {
+      m_freeNodes.add(node);
+    } else {
+      m_freeNodes.remove(node);
+    }
+  }
+
   /**
    * @return the number of nodes in this graph.
    */
   public int getNodeCount() {
-    int result = m_nodesReady.size() + m_nodesRunning.size() + m_nodesFinished.size();
+    int result = m_readyCount + m_runningCount + m_finishedCount;
+    return result;
+  }
+
+  /**
+   * @return the nodes with the given status, a node that was added several times
+   * is returned as many times.
+   */
+  public List<T> getNodesWithStatus(Status status) {
+    switch(status) {
+      case READY:
+        return inAdditionOrder(m_nodesReady);
+      case RUNNING:
+      case FINISHED:
+        List<T> result = Lists.newArrayList();
+        for (T node : status == Status.RUNNING ? m_nodesRunning : m_nodesFinished) {
+          Node n = m_nodes.get(node);
+          for (int i = 0; i < (status == Status.RUNNING ? n.running : n.finished); i++) {
+            result.add(node);
+          }
+        }
+        return result;
+      default: throw new IllegalArgumentException();
+    }
+  }
+
+  /**
+   * @return the nodes that the given node depends on through an edge and that haven't
+   * finished yet, see {@link #getBarriers(Object)} for the other ones.
+   */
+  public Set<T> getDependencies(T node) {
+    Set<T> result = Sets.newIdentityHashSet();
+    Map<T, List<Edge<T>>> edges = m_outgoing.get(node);
+    if (edges != null) {
+      for (T to : edges.keySet()) {
+        Node target = m_nodes.get(to);
+        if (target != null && target.isUnfinished()) {
+          result.add(to);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the barriers that the given node waits for and that still have unfinished members.
+   */
+  public List<Barrier<T>> getBarriers(T node) {
+    List<Barrier<T>> result = Lists.newArrayList();
+    Set<Barrier<T>> barriers = m_outgoingBarriers.get(node);
+    if (barriers != null) {
+      for (Barrier<T> barrier : barriers) {
+        if (barrier.unfinishedCount > 0) {
+          result.add(barrier);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the members of the barrier that were added to this graph and haven't finished yet.
+   */
+  public Set<T> getUnfinishedMembers(Barrier<T> barrier) {
+    Set<T> result = Sets.newIdentityHashSet();
+    for (T member : barrier.members) {
+      Node n = m_nodes.get(member);
+      if (n != null && n.isUnfinished()) {
+        result.add(member);
+      }
+    }
     return result;
   }
 
   public int getNodeCountWithStatus(Status status) {
     switch(status) {
-      case READY: return m_nodesReady.size();
-      case RUNNING: return m_nodesRunning.size();
-      case FINISHED: return m_nodesFinished.size();
+      case READY: return m_readyCount;
+      case RUNNING: return m_runningCount;
+      case FINISHED: return m_finishedCount;
       default: throw new IllegalArgumentException();
     }
   }
@@ -216,12 +652,16 @@ public class DynamicGraph<T> {
     result.append("\n  Running:" + m_nodesRunning);
     result.append("\n  Finished:" + m_nodesFinished);
     result.append("\n  Edges:\n");
-    for (Map.Entry<T, List<Edge<T>>> es : m_edges.entrySet()) {
+    for (Map.Entry<T, Map<T, List<Edge<T>>>> es : m_outgoing.entrySet()) {
       result.append("     " + es.getKey() + "\n");
-      for (Edge<T> t : es.getValue()) {
-        result.append("        " + t.to + "\n");
+      for (T t : es.getValue().keySet()) {
+        result.append("        " + t + "\n");
       }
     }
+    result.append("\n  Barriers:\n");
+    for (Barrier<T> barrier : getAllBarriers()) {
+      result.append("     " + barrier + "\n");
+    }
     result.append("]");
     return result.toString();
   }
@@ -256,18 +696,48 @@ public class DynamicGraph<T> {
     }
     result.append("\n");
 
-    for (List<Edge<T>> edges : m_edges.values()) {
-      for (Edge<T> edge : edges) {
+    for (Map.Entry<T, List<Edge<T>>> es : getEdges().entrySet()) {
+      for (Edge<T> edge : es.getValue()) {
         String dotted = m_nodesFinished.contains(edge.from) ? "style=dotted" : "";
         result.append("  " + getName(edge.from) + " -> " + getName(edge.to) + " [dir=back " + dotted + "]\n");
       }
     }
+    int barrierIndex = 0;
+    for (Barrier<T> barrier : getAllBarriers()) {
+      String name = "barrier" + barrierIndex++;
+      result.append("  " + name + " [shape=point]\n");
+      for (T from : barrier.froms) {
+        result.append("  " + getName(from) + " -> " + name + " [dir=back]\n");
+      }
+      for (T member : barrier.members) {
+        result.append("  " + name + " -> " + getName(member) + " [dir=back]\n");
+      }
+    }
     result.append("}\n");
 
     return result.toString();
   }
 
+  private Set<Barrier<T>> getAllBarriers() {
+    Set<Barrier<T>> result = new LinkedHashSet<>();
+    for (List<Barrier<T>> barriers : m_barriersByMember.values()) {
+      result.addAll(barriers);
+    }
+    return result;
+  }
+
+  /**
+   * @return a snapshot of the remaining edges, keyed by their origin.
+   */
   public ListMultiMap<T, Edge<T>> getEdges() {
-    return m_edges;
+    ListMultiMap<T, Edge<T>> result = Maps.newListMultiMap();
+    for (Map.Entry<T, Map<T, List<Edge<T>>>> es : m_outgoing.entrySet()) {
+      for (List<Edge<T>> sameTarget : es.getValue().values()) {
+        for (Edge<T> edge : sameTarget) {
+          result.put(es.getKey(), edge);
+        }
+      }
+    }
+    return result;
   }
 }
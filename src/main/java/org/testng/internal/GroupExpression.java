@@ -0,0 +1,543 @@
+package org.testng.internal;
+
+import org.testng.ITestNGMethod;
+import org.testng.TestNGException;
+import org.testng.collections.Lists;
+import org.testng.collections.Maps;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A method selector expression parsed once into a tree of predicates, which can then be
+ * evaluated against any number of methods, from any number of threads, without locking.
+ *
+ * The language is a subset of the BeanShell expressions, so that an expression means the same
+ * whether it's compiled or evaluated by BeanShell:
+ * <ul>
+ * <li><code>&amp;&amp;</code>, <code>||</code>, <code>!</code>, parentheses,
+ * <code>true</code> and <code>false</code>,</li>
+ * <li><code>groups.containsKey("name")</code> and <code>groups.isEmpty()</code>,</li>
+ * <li><code>equals</code>, <code>matches</code>, <code>startsWith</code>, <code>endsWith</code>
+ * and <code>contains</code> with a string literal on <code>method.getName()</code>,
+ * <code>method.getDeclaringClass().getName()</code>, <code>testngMethod.getMethodName()</code>,
+ * <code>testngMethod.getRealClass().getName()</code> and
+ * <code>testngMethod.getDescription()</code>,</li>
+ * <li>the comparison of <code>testngMethod.getPriority()</code> or
+ * <code>testngMethod.getInvocationCount()</code> with an integer literal,</li>
+ * <li><code>testngMethod.getEnabled()</code> and <code>testngMethod.isAlwaysRun()</code>.</li>
+ * </ul>
+ * It adds <code>hasGroup("regexp")</code>, which is true if one of the groups of the method
+ * matches the regular expression. Since BeanShell doesn't know it, an expression using it must
+ * be entirely part of the language.
+ */
+public abstract class GroupExpression {
+
+  private static final Pattern HAS_GROUP = Pattern.compile("\\bhasGroup\\s*\\(");
+
+  /**
+   * Thrown when an expression can't be evaluated, e.g. when a method is called on a null
+   * attribute. Like the failure of BeanShell, it makes the whole expression false rather than
+   * only the predicate it was thrown by, so that it is not reversed by an enclosing negation.
+   */
+  private static class EvaluationException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    EvaluationException() {
+      super(null, null, false /* no suppression */, false /* no stack trace */);
+    }
+  }
+
+  private static final EvaluationException EVALUATION_FAILED = new EvaluationException();
+
+  /**
+   * @return true if the method is selected by this expression.
+   */
+  public boolean matches(ITestNGMethod tm) {
+    try {
+      return evaluate(tm);
+    } catch (EvaluationException ex) {
+      return false;
+    }
+  }
+
+  abstract boolean evaluate(ITestNGMethod tm);
+
+  /**
+   * @return the compiled expression, or null if the expression is not part of the language
+   * and has to be evaluated by BeanShell.
+   * @throws TestNGException if the expression uses <code>hasGroup()</code> but is not part of
+   * the language.
+   */
+  public static GroupExpression compile(String expression) {
+    try {
+      return new Parser(expression).parse();
+    } catch (UnsupportedExpressionException | PatternSyntaxException ex) {
+      if (HAS_GROUP.matcher(expression).find()) {
+        throw new TestNGException("The method selector expression \"" + expression
+            + "\" uses hasGroup(), which BeanShell can't evaluate, and isn't supported: "
+            + ex.getMessage());
+      }
+      return null;
+    }
+  }
+
+  private interface StringAttribute {
+    String get(ITestNGMethod tm);
+  }
+
+  private interface IntAttribute {
+    int get(ITestNGMethod tm);
+  }
+
+  private static final Map<String, StringAttribute> STRING_ATTRIBUTES = Maps.newHashMap();
+  private static final Map<String, IntAttribute> INT_ATTRIBUTES = Maps.newHashMap();
+  private static final Map<String, GroupExpression> BOOLEAN_ATTRIBUTES = Maps.newHashMap();
+
+  static {
+    STRING_ATTRIBUTES.put("method.getName", new StringAttribute() {
+      @Override
+      public String get(ITestNGMethod tm) {
+        return tm.getConstructorOrMethod().getName();
+      }
+    });
+    STRING_ATTRIBUTES.put("method.getDeclaringClass.getName", new StringAttribute() {
+      @Override
+      public String get(ITestNGMethod tm) {
+        return tm.getConstructorOrMethod().getDeclaringClass().getName();
+      }
+    });
+    STRING_ATTRIBUTES.put("testngMethod.getMethodName", new StringAttribute() {
+      @Override
+      public String get(ITestNGMethod tm) {
+        return tm.getMethodName();
+      }
+    });
+    STRING_ATTRIBUTES.put("testngMethod.getRealClass.getName", new StringAttribute() {
+      @Override
+      public String get(ITestNGMethod tm) {
+        return tm.getRealClass().getName();
+      }
+    });
+    STRING_ATTRIBUTES.put("testngMethod.getDescription", new StringAttribute() {
+      @Override
+      public String get(ITestNGMethod tm) {
+        return tm.getDescription();
+      }
+    });
+    INT_ATTRIBUTES.put("testngMethod.getPriority", new IntAttribute() {
+      @Override
+      public int get(ITestNGMethod tm) {
+        return tm.getPriority();
+      }
+    });
+    INT_ATTRIBUTES.put("testngMethod.getInvocationCount", new IntAttribute() {
+      @Override
+      public int get(ITestNGMethod tm) {
+        return tm.getInvocationCount();
+      }
+    });
+    BOOLEAN_ATTRIBUTES.put("testngMethod.getEnabled", new GroupExpression() {
+      @Override
+      boolean evaluate(ITestNGMethod tm) {
+        return tm.getEnabled();
+      }
+    });
+    BOOLEAN_ATTRIBUTES.put("testngMethod.isAlwaysRun", new GroupExpression() {
+      @Override
+      boolean evaluate(ITestNGMethod tm) {
+        return tm.isAlwaysRun();
+      }
+    });
+    BOOLEAN_ATTRIBUTES.put("groups.isEmpty", new GroupExpression() {
+      @Override
+      boolean evaluate(ITestNGMethod tm) {
+        return tm.getGroups().length == 0;
+      }
+    });
+  }
+
+  private static GroupExpression constant(final boolean value) {
+    return new GroupExpression() {
+      @Override
+      boolean evaluate(ITestNGMethod tm) {
+        return value;
+      }
+    };
+  }
+
+  private static GroupExpression not(final GroupExpression expression) {
+    return new GroupExpression() {
+      @Override
+      boolean evaluate(ITestNGMethod tm) {
+        return !expression.evaluate(tm);
+      }
+    };
+  }
+
+  private static GroupExpression and(final GroupExpression left, final GroupExpression right) {
+    return new GroupExpression() {
+      @Override
+      boolean evaluate(ITestNGMethod tm) {
+        return left.evaluate(tm) && right.evaluate(tm);
+      }
+    };
+  }
+
+  private static GroupExpression or(final GroupExpression left, final GroupExpression right) {
+    return new GroupExpression() {
+      @Override
+      boolean evaluate(ITestNGMethod tm) {
+        return left.evaluate(tm) || right.evaluate(tm);
+      }
+    };
+  }
+
+  private static GroupExpression hasGroup(final String group) {
+    return new GroupExpression() {
+      @Override
+      boolean evaluate(ITestNGMethod tm) {
+        for (String g : tm.getGroups()) {
+          if (g.equals(group)) {
+            return true;
+          }
+        }
+        return false;
+      }
+    };
+  }
+
+  private static GroupExpression hasGroupMatching(final Pattern pattern) {
+    return new GroupExpression() {
+      @Override
+      boolean evaluate(ITestNGMethod tm) {
+        for (String g : tm.getGroups()) {
+          if (pattern.matcher(g).matches()) {
+            return true;
+          }
+        }
+        return false;
+      }
+    };
+  }
+
+  private static GroupExpression stringTest(final StringAttribute attribute, String operation,
+      final String value) {
+    if ("matches".equals(operation)) {
+      final Pattern pattern = Pattern.compile(value);
+      return new GroupExpression() {
+        @Override
+        boolean evaluate(ITestNGMethod tm) {
+          String s = attribute.get(tm);
+          if (s == null) {
+            throw EVALUATION_FAILED;
+          }
+          return pattern.matcher(s).matches();
+        }
+      };
+    }
+    final int op;
+    switch (operation) {
+      case "equals": op = 0; break;
+      case "startsWith": op = 1; break;
+      case "endsWith": op = 2; break;
+      case "contains": op = 3; break;
+      default: throw new UnsupportedExpressionException("the call " + operation + "()");
+    }
+    return new GroupExpression() {
+      @Override
+      boolean evaluate(ITestNGMethod tm) {
+        String s = attribute.get(tm);
+        if (s == null) {
+          throw EVALUATION_FAILED;
+        }
+        switch (op) {
+          case 0: return s.equals(value);
+          case 1: return s.startsWith(value);
+          case 2: return s.endsWith(value);
+          default: return s.contains(value);
+        }
+      }
+    };
+  }
+
+  private static GroupExpression intTest(final IntAttribute attribute, String operator,
+      final int value) {
+    final int op;
+    switch (operator) {
+      case "==": op = 0; break;
+      case "!=": op = 1; break;
+      case "<": op = 2; break;
+      case "<=": op = 3; break;
+      case ">": op = 4; break;
+      case ">=": op = 5; break;
+      default: throw new UnsupportedExpressionException("the operator " + operator);
+    }
+    return new GroupExpression() {
+      @Override
+      boolean evaluate(ITestNGMethod tm) {
+        int n = attribute.get(tm);
+        switch (op) {
+          case 0: return n == value;
+          case 1: return n != value;
+          case 2: return n < value;
+          case 3: return n <= value;
+          case 4: return n > value;
+          default: return n >= value;
+        }
+      }
+    };
+  }
+
+  /**
+   * Thrown when the expression is not part of the language, with the construct that isn't.
+   */
+  private static class UnsupportedExpressionException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    UnsupportedExpressionException(String construct) {
+      super(construct);
+    }
+  }
+
+  private enum TokenType { IDENTIFIER, STRING, INTEGER, OPERATOR, END }
+
+  private static class Token {
+    final TokenType m_type;
+    final String m_value;
+
+    Token(TokenType type, String value) {
+      m_type = type;
+      m_value = value;
+    }
+
+    boolean is(String operator) {
+      return m_type == TokenType.OPERATOR && m_value.equals(operator);
+    }
+
+    @Override
+    public String toString() {
+      return m_type == TokenType.END ? "the end of the expression" : "'" + m_value + "'";
+    }
+  }
+
+  /**
+   * A recursive descent parser, from the lowest to the highest precedence:
+   * <pre>
+   * or         := and ("||" and)*
+   * and        := not ("&amp;&amp;" not)*
+   * not        := "!" not | primary
+   * primary    := "(" or ")" | "true" | "false" | "hasGroup" "(" STRING ")"
+   *             | IDENTIFIER ("." IDENTIFIER "(" STRING? ")")+ (COMPARISON INTEGER)?
+   * </pre>
+   */
+  private static class Parser {
+    private final List<Token> m_tokens;
+    private int m_position;
+
+    Parser(String expression) {
+      m_tokens = tokenize(expression);
+    }
+
+    GroupExpression parse() {
+      GroupExpression result = parseOr();
+      if (next().is(";")) {
+        m_position++;
+      }
+      expect(TokenType.END);
+      return result;
+    }
+
+    private GroupExpression parseOr() {
+      GroupExpression result = parseAnd();
+      while (next().is("||")) {
+        m_position++;
+        result = or(result, parseAnd());
+      }
+      return result;
+    }
+
+    private GroupExpression parseAnd() {
+      GroupExpression result = parseNot();
+      while (next().is("&&")) {
+        m_position++;
+        result = and(result, parseNot());
+      }
+      return result;
+    }
+
+    private GroupExpression parseNot() {
+      if (next().is("!")) {
+        m_position++;
+        return not(parseNot());
+      }
+      return parsePrimary();
+    }
+
+    private GroupExpression parsePrimary() {
+      if (next().is("(")) {
+        m_position++;
+        GroupExpression result = parseOr();
+        expectOperator(")");
+        return result;
+      }
+      String identifier = expect(TokenType.IDENTIFIER);
+      if ("true".equals(identifier) || "false".equals(identifier)) {
+        return constant(Boolean.parseBoolean(identifier));
+      }
+      if ("hasGroup".equals(identifier)) {
+        expectOperator("(");
+        String regexp = expect(TokenType.STRING);
+        expectOperator(")");
+        return hasGroupMatching(Pattern.compile(regexp));
+      }
+
+      // A chain of calls, e.g. method.getName().equals("test")
+      StringBuilder path = new StringBuilder(identifier);
+      while (next().is(".")) {
+        m_position++;
+        String call = expect(TokenType.IDENTIFIER);
+        expectOperator("(");
+        if (next().m_type == TokenType.STRING) {
+          String argument = expect(TokenType.STRING);
+          expectOperator(")");
+          return parseCallWithArgument(path.toString(), call, argument);
+        }
+        expectOperator(")");
+        path.append('.').append(call);
+      }
+
+      String attribute = path.toString();
+      GroupExpression booleanAttribute = BOOLEAN_ATTRIBUTES.get(attribute);
+      if (booleanAttribute != null) {
+        return booleanAttribute;
+      }
+      IntAttribute intAttribute = INT_ATTRIBUTES.get(attribute);
+      if (intAttribute != null && next().m_type == TokenType.OPERATOR) {
+        String operator = next().m_value;
+        m_position++;
+        return intTest(intAttribute, operator, Integer.parseInt(expect(TokenType.INTEGER)));
+      }
+      throw new UnsupportedExpressionException("the attribute " + attribute);
+    }
+
+    /**
+     * The call with a string argument ends the chain, since none of them returns an object.
+     */
+    private GroupExpression parseCallWithArgument(String attribute, String call,
+        String argument) {
+      if ("groups".equals(attribute) && "containsKey".equals(call)) {
+        return hasGroup(argument);
+      }
+      StringAttribute stringAttribute = STRING_ATTRIBUTES.get(attribute);
+      if (stringAttribute != null) {
+        return stringTest(stringAttribute, call, argument);
+      }
+      throw new UnsupportedExpressionException("the call " + attribute + "." + call + "()");
+    }
+
+    private Token next() {
+      return m_tokens.get(m_position);
+    }
+
+    private String expect(TokenType type) {
+      Token token = next();
+      if (token.m_type != type) {
+        throw new UnsupportedExpressionException("unexpected " + token);
+      }
+      m_position++;
+      return token.m_value;
+    }
+
+    private void expectOperator(String operator) {
+      if (!next().is(operator)) {
+        throw new UnsupportedExpressionException("unexpected " + next() + " instead of '"
+            + operator + "'");
+      }
+      m_position++;
+    }
+  }
+
+  private static final String[] OPERATORS = {
+    "&&", "||", "==", "!=", "<=", ">=", "!", "<", ">", "(", ")", ".", ";"
+  };
+
+  private static List<Token> tokenize(String expression) {
+    List<Token> result = Lists.newArrayList();
+    int i = 0;
+    int length = expression.length();
+    while (i < length) {
+      char c = expression.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (Character.isJavaIdentifierStart(c)) {
+        int start = i;
+        while (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+          i++;
+        }
+        result.add(new Token(TokenType.IDENTIFIER, expression.substring(start, i)));
+      } else if ((c >= '0' && c <= '9') || c == '-') {
+        int start = i++;
+        while (i < length && expression.charAt(i) >= '0' && expression.charAt(i) <= '9') {
+          i++;
+        }
+        if (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+          // e.g. a long, a float or an hexadecimal literal
+          throw new UnsupportedExpressionException("the number literal at offset " + start);
+        }
+        try {
+          result.add(new Token(TokenType.INTEGER,
+              String.valueOf(Integer.parseInt(expression.substring(start, i)))));
+        } catch (NumberFormatException ex) {
+          throw new UnsupportedExpressionException("the number " + expression.substring(start, i));
+        }
+      } else if (c == '"') {
+        StringBuilder value = new StringBuilder();
+        i++;
+        while (true) {
+          if (i >= length) {
+            throw new UnsupportedExpressionException("an unterminated string");
+          }
+          char s = expression.charAt(i++);
+          if (s == '"') {
+            break;
+          }
+          if (s == '\\') {
+            if (i >= length) {
+              throw new UnsupportedExpressionException("an unterminated string");
+            }
+            char escaped = expression.charAt(i++);
+            switch (escaped) {
+              case '"': case '\\': case '\'': value.append(escaped); break;
+              case 'n': value.append('\n'); break;
+              case 't': value.append('\t'); break;
+              default: throw new UnsupportedExpressionException("the escape sequence \\" + escaped);
+            }
+          } else if (s == '\n' || s == '\r') {
+            throw new UnsupportedExpressionException("a line break in a string");
+          } else {
+            value.append(s);
+          }
+        }
+        result.add(new Token(TokenType.STRING, value.toString()));
+      } else {
+        String operator = null;
+        for (String o : OPERATORS) {
+          if (expression.startsWith(o, i)) {
+            operator = o;
+            break;
+          }
+        }
+        if (operator == null) {
+          throw new UnsupportedExpressionException("the character '" + c + "'");
+        }
+        result.add(new Token(TokenType.OPERATOR, operator));
+        i += operator.length();
+      }
+    }
+    result.add(new Token(TokenType.END, null));
+    return result;
+  }
+}
@@ -25,4 +25,10 @@ public interface IConfiguration {
   void addConfigurationListener(IConfigurationListener cl);
 
   List<IAlterSuiteListener> getAlterSuiteListeners();
+
+  ClassPathIndex getClassPathIndex();
+  void setClassPathIndex(ClassPathIndex index);
+
+  boolean getPreFilterClasses();
+  void setPreFilterClasses(boolean preFilterClasses);
 }
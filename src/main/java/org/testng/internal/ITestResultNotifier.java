@@ -39,4 +39,10 @@ public interface ITestResultNotifier {
   List<ITestListener> getTestListeners();
 
   List<IConfigurationListener> getConfigurationListeners();
+
+  /**
+   * @return the dependencies of the test methods, resolved once before they start running, or
+   * null if they haven't been resolved.
+   */
+  DependencyIndex getDependencyIndex();
 }
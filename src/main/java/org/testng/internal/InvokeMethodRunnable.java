@@ -51,9 +51,9 @@ public class InvokeMethodRunnable implements Runnable {
       try {
         ConstructorOrMethod m = m_method.getConstructorOrMethod();
         if (m_hookable == null) {
-          MethodInvocationHelper.invokeMethod(m.getMethod(), m_instance, m_parameters);
+          MethodInvocationHelper.invokeMethod(m, m_instance, m_parameters);
         } else {
-          MethodInvocationHelper.invokeHookable(m_instance, m_parameters, m_hookable, m.getMethod(),
+          MethodInvocationHelper.invokeHookable(m_instance, m_parameters, m_hookable, m,
                                                 m_testResult);
         }
       }
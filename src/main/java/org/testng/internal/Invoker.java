@@ -2,11 +2,13 @@ package org.testng.internal;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.testng.IClass;
@@ -25,6 +27,7 @@ import org.testng.ITestNGMethod;
 import org.testng.ITestResult;
 import org.testng.Reporter;
 import org.testng.SkipException;
+import org.testng.SuiteRunner;
 import org.testng.SuiteRunState;
 import org.testng.TestException;
 import org.testng.TestNGException;
@@ -504,7 +507,7 @@ public class Invoker implements IInvoker {
           IConfigurable.class.isAssignableFrom(method.getDeclaringClass()) ?
           (IConfigurable) targetInstance : m_configuration.getConfigurable();
         if (configurableInstance != null) {
-          MethodInvocationHelper.invokeConfigurable(targetInstance, params, configurableInstance, method.getMethod(),
+          MethodInvocationHelper.invokeConfigurable(targetInstance, params, configurableInstance, method,
               testResult);
         }
         else {
@@ -512,7 +515,7 @@ public class Invoker implements IInvoker {
           // Not a IConfigurable, invoke directly
           //
           if (MethodHelper.calculateTimeOut(tm) <= 0) {
-            MethodInvocationHelper.invokeMethod(method.getMethod(), targetInstance, params);
+            MethodInvocationHelper.invokeMethod(method, targetInstance, params);
           }
           else {
             MethodInvocationHelper.invokeWithTimeout(tm, targetInstance, params, testResult);
@@ -626,7 +629,7 @@ public class Invoker implements IInvoker {
 
       m_notifier.addInvokedMethod(invokedMethod);
 
-      Method thisMethod = tm.getConstructorOrMethod().getMethod();
+      ConstructorOrMethod thisMethod = tm.getConstructorOrMethod();
 
       if(confInvocationPassed(tm, tm, testClass, instance)) {
         log(3, "Invoking " + tm.getQualifiedName());
@@ -825,34 +828,48 @@ public class Invoker implements IInvoker {
                                                 Map<String, String> params,
                                                 Object instance)
   {
-    synchronized(groupMethods) {
-      List<ITestNGMethod> filteredMethods = Lists.newArrayList();
-      String[] groups = currentTestMethod.getGroups();
-      Map<String, List<ITestNGMethod>> beforeGroupMap = groupMethods.getBeforeGroupsMap();
+    String[] groups = currentTestMethod.getGroups();
+    if (groups.length == 0) {
+      return;
+    }
+    // Only the first method of a group invokes its methods, the other ones wait until it's
+    // done. The groups are started in the same order by all the threads, so that two methods
+    // with the same groups can't wait for each other.
+    String[] sortedGroups = groups.clone();
+    Arrays.sort(sortedGroups);
+    Map<String, List<ITestNGMethod>> startedGroups = Maps.newHashMap();
+    for (int i = 0; i < sortedGroups.length; i++) {
+      String group = sortedGroups[i];
+      if (i > 0 && group.equals(sortedGroups[i - 1])) {
+        continue;
+      }
+      List<ITestNGMethod> methods = groupMethods.startBeforeGroups(group);
+      if (methods != null) {
+        startedGroups.put(group, methods);
+      }
+    }
+    if (startedGroups.isEmpty()) {
+      return;
+    }
 
+    try {
+      List<ITestNGMethod> filteredMethods = Lists.newArrayList();
       for (String group : groups) {
-        List<ITestNGMethod> methods = beforeGroupMap.get(group);
+        List<ITestNGMethod> methods = startedGroups.get(group);
         if (methods != null) {
           filteredMethods.addAll(methods);
         }
       }
-
-      ITestNGMethod[] beforeMethodsArray = filteredMethods.toArray(new ITestNGMethod[filteredMethods.size()]);
-      //
-      // Invoke the right groups methods
-      //
-      if(beforeMethodsArray.length > 0) {
-        // don't pass the IClass or the instance as the method may be external
-        // the invocation must be similar to @BeforeTest/@BeforeSuite
-        invokeConfigurations(null, beforeMethodsArray, suite, params,
-            null, /* no parameter values */
-            null);
+      // don't pass the IClass or the instance as the method may be external
+      // the invocation must be similar to @BeforeTest/@BeforeSuite
+      invokeConfigurations(null, filteredMethods.toArray(new ITestNGMethod[filteredMethods.size()]),
+          suite, params,
+          null, /* no parameter values */
+          null);
+    } finally {
+      for (String group : startedGroups.keySet()) {
+        groupMethods.beforeGroupsInvoked(group);
       }
-
-      //
-      // Remove them so they don't get run again
-      //
-      groupMethods.removeBeforeGroups(groups);
     }
   }
 
@@ -872,47 +889,44 @@ public class Invoker implements IInvoker {
 
     // See if the currentMethod is the last method in any of the groups
     // it belongs to
+    // Only one method is the last of its group, so the afterGroups methods run once
     Map<String, String> filteredGroups = Maps.newHashMap();
     String[] groups = currentTestMethod.getGroups();
-    synchronized(groupMethods) {
-      for (String group : groups) {
-        if (groupMethods.isLastMethodForGroup(group, currentTestMethod)) {
-          filteredGroups.put(group, group);
-        }
-      }
-
-      if(filteredGroups.isEmpty()) {
-        return;
+    for (String group : groups) {
+      if (groupMethods.hasAfterGroupsMethods(group)
+          && groupMethods.isLastMethodForGroup(group, currentTestMethod)) {
+        filteredGroups.put(group, group);
       }
+    }
 
-      // The list of afterMethods to run
-      Map<ITestNGMethod, ITestNGMethod> afterMethods = Maps.newHashMap();
+    if(filteredGroups.isEmpty()) {
+      return;
+    }
 
-      // Now filteredGroups contains all the groups for which we need to run the afterGroups
-      // method.  Find all the methods that correspond to these groups and invoke them.
-      Map<String, List<ITestNGMethod>> map = groupMethods.getAfterGroupsMap();
-      for (String g : filteredGroups.values()) {
-        List<ITestNGMethod> methods = map.get(g);
-        // Note:  should put them in a map if we want to make sure the same afterGroups
-        // doesn't get run twice
-        if (methods != null) {
-          for (ITestNGMethod m : methods) {
-            afterMethods.put(m, m);
-          }
+    // The list of afterMethods to run
+    Map<ITestNGMethod, ITestNGMethod> afterMethods = Maps.newHashMap();
+
+    // Now filteredGroups contains all the groups for which we need to run the afterGroups
+    // method.  Find all the methods that correspond to these groups and invoke them.
+    Map<String, List<ITestNGMethod>> map = groupMethods.getAfterGroupsMethods();
+    for (String g : filteredGroups.values()) {
+      List<ITestNGMethod> methods = map.get(g);
+      // Note:  should put them in a map if we want to make sure the same afterGroups
+      // doesn't get run twice
+      if (methods != null) {
+        for (ITestNGMethod m : methods) {
+          afterMethods.put(m, m);
         }
       }
-
-      // Got our afterMethods, invoke them
-      ITestNGMethod[] afterMethodsArray = afterMethods.keySet().toArray(new ITestNGMethod[afterMethods.size()]);
-      // don't pass the IClass or the instance as the method may be external
-      // the invocation must be similar to @BeforeTest/@BeforeSuite
-      invokeConfigurations(null, afterMethodsArray, suite, params,
-          null, /* no parameter values */
-          null);
-
-      // Remove the groups so they don't get run again
-      groupMethods.removeAfterGroups(filteredGroups.keySet());
     }
+
+    // Got our afterMethods, invoke them
+    ITestNGMethod[] afterMethodsArray = afterMethods.keySet().toArray(new ITestNGMethod[afterMethods.size()]);
+    // don't pass the IClass or the instance as the method may be external
+    // the invocation must be similar to @BeforeTest/@BeforeSuite
+    invokeConfigurations(null, afterMethodsArray, suite, params,
+        null, /* no parameter values */
+        null);
   }
 
   private Object[] getParametersFromIndex(Iterator<Object[]> parametersValues, int index) {
@@ -1090,30 +1104,18 @@ public class Invoker implements IInvoker {
         try {
           if (bag.parameterHolder.origin == ParameterOrigin.ORIGIN_DATA_PROVIDER &&
               bag.parameterHolder.dataProviderHolder.annotation.isParallel()) {
-            List<TestMethodWithDataProviderMethodWorker> workers = Lists.newArrayList();
-            while (allParameterValues.hasNext()) {
-              Object[] next = allParameterValues.next();
-              if (next == null) {
-                // skipped value
-                parametersIndex++;
-                continue;
-              }
-              Object[] parameterValues = injectParameters(next,
-                  testMethod.getConstructorOrMethod().getMethod(), testContext, null /* test result */);
-
-              TestMethodWithDataProviderMethodWorker w =
-                new TestMethodWithDataProviderMethodWorker(this,
-                    testMethod, parametersIndex,
-                    parameterValues, instance, suite, parameters, testClass,
-                    beforeMethods, afterMethods, groupMethods,
-                    expectedExceptionHolder, testContext, m_skipFailedInvocationCounts,
-                    invocationCount, failure.count, m_notifier);
-              workers.add(w);
-              // testng387: increment the param index in the bag.
-              parametersIndex++;
+            // The rows are pulled from the data provider as the workers need them,
+            // so huge data providers don't have to fit in memory
+            Iterator<TestMethodWithDataProviderMethodWorker> workers =
+                createDataProviderWorkers(allParameterValues, testMethod, instance, suite,
+                    parameters, testClass, beforeMethods, afterMethods, groupMethods,
+                    expectedExceptionHolder, testContext, invocationCount, failure);
+            PoolService<List<ITestResult>> ps;
+            if (testContext.getSuite() instanceof SuiteRunner) {
+              ps = new PoolService<>(((SuiteRunner) testContext.getSuite()).getDataProviderThreadPool());
+            } else {
+              ps = new PoolService<>(suite.getDataProviderThreadCount(), suite.getThreadFactory());
             }
-            PoolService<List<ITestResult>> ps =
-                    new PoolService<>(suite.getDataProviderThreadCount());
             List<List<ITestResult>> r = ps.submitTasksAndWait(workers);
             for (List<ITestResult> l2 : r) {
               result.addAll(l2);
@@ -1202,6 +1204,61 @@ public class Invoker implements IInvoker {
 
   } // invokeTestMethod
 
+  /**
+   * @return the workers running each row of the data provider, created lazily
+   * when the next row is requested
+   */
+  private Iterator<TestMethodWithDataProviderMethodWorker> createDataProviderWorkers(
+      final Iterator<Object[]> allParameterValues, final ITestNGMethod testMethod,
+      final Object instance, final XmlSuite suite, final Map<String, String> parameters,
+      final ITestClass testClass, final ITestNGMethod[] beforeMethods,
+      final ITestNGMethod[] afterMethods, final ConfigurationGroupMethods groupMethods,
+      final ExpectedExceptionsHolder expectedExceptionHolder, final ITestContext testContext,
+      final int invocationCount, final FailureContext failure) {
+    return new Iterator<TestMethodWithDataProviderMethodWorker>() {
+      private int m_parametersIndex = 0;
+      private Object[] m_next;
+
+      @Override
+      public boolean hasNext() {
+        while (m_next == null && allParameterValues.hasNext()) {
+          m_next = allParameterValues.next();
+          if (m_next == null) {
+            // skipped value
+            m_parametersIndex++;
+          }
+        }
+        return m_next != null;
+      }
+
+      @Override
+      public TestMethodWithDataProviderMethodWorker next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        Object[] parameterValues = injectParameters(m_next,
+            testMethod.getConstructorOrMethod().getMethod(), testContext, null /* test result */);
+        m_next = null;
+
+        TestMethodWithDataProviderMethodWorker w =
+          new TestMethodWithDataProviderMethodWorker(Invoker.this,
+              testMethod, m_parametersIndex,
+              parameterValues, instance, suite, parameters, testClass,
+              beforeMethods, afterMethods, groupMethods,
+              expectedExceptionHolder, testContext, m_skipFailedInvocationCounts,
+              invocationCount, failure.count, m_notifier);
+        // testng387: increment the param index in the bag.
+        m_parametersIndex++;
+        return w;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
   private ITestResult registerSkippedTestResult(ITestNGMethod testMethod, Object instance,
       long start, Throwable throwable) {
     ITestResult result =
@@ -1429,7 +1486,7 @@ public class Invoker implements IInvoker {
       }
     }
 
-    ThreadUtil.execute(workers, threadPoolSize, maxTimeOut, true);
+    ThreadUtil.execute(workers, threadPoolSize, maxTimeOut, true, suite.getThreadFactory());
 
     //
     // Collect all the TestResults
@@ -1468,16 +1525,26 @@ public class Invoker implements IInvoker {
       return "Method " + testMethod + " depends on nonexistent group \"" + testMethod.getMissingGroup() + "\"";
     }
 
+    final String[] groups = testMethod.getGroupsDependedUpon();
+    boolean dependsOnGroups = null != groups && groups.length > 0;
+    if (!dependsOnGroups && !dependsOnMethods(testMethod)) {
+      return null;
+    }
+
+    DependencyIndex index = m_notifier.getDependencyIndex();
+    if (index == null || index.getMethods() != allTestMethods) {
+      // Not run from the graph of a TestRunner
+      index = new DependencyIndex(allTestMethods);
+    }
+
     // If this method depends on groups, collect all the methods that
     // belong to these groups and make sure they have been run successfully
-    final String[] groups = testMethod.getGroupsDependedUpon();
-    if (null != groups && groups.length > 0) {
+    if (dependsOnGroups) {
       // Get all the methods that belong to the group depended upon
-      for (String element : groups) {
-        ITestNGMethod[] methods =
-            MethodGroupsHelper.findMethodsThatBelongToGroup(testMethod,
-                m_testContext.getAllTestMethods(),
-                element);
+      ITestNGMethod[][] groupMethods = index.getGroupsDependedUpon(testMethod);
+      for (int i = 0; i < groups.length; i++) {
+        String element = groups[i];
+        ITestNGMethod[] methods = groupMethods[i];
         if (methods.length == 0 && !testMethod.ignoreMissingDependencies()) {
           // Group is missing
           return "Method " + testMethod + " depends on nonexistent group \"" + element + "\"";
@@ -1492,8 +1559,7 @@ public class Invoker implements IInvoker {
     // If this method depends on other methods, make sure all these other
     // methods have been run successfully
     if (dependsOnMethods(testMethod)) {
-      ITestNGMethod[] methods =
-          MethodHelper.findDependedUponMethods(testMethod, allTestMethods);
+      ITestNGMethod[] methods = index.getMethodsDependedUpon(testMethod);
 
       if (!haveBeenRunSuccessfully(testMethod, methods)) {
         return "Method " + testMethod + " depends on not successfully finished methods";
@@ -5,7 +5,6 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.testng.ITestClass;
@@ -16,6 +15,7 @@ import org.testng.collections.Lists;
 import org.testng.collections.Maps;
 import org.testng.internal.annotations.AnnotationHelper;
 import org.testng.internal.annotations.IAnnotationFinder;
+import org.testng.internal.collections.Cache;
 import org.testng.internal.collections.Pair;
 
 /**
@@ -27,9 +27,10 @@ import org.testng.internal.collections.Pair;
  */
 public class MethodGroupsHelper {
 
-  private static final Map<String, Pattern> PATTERN_CACHE = new ConcurrentHashMap<>();
-  private static final Map<Pair<String, String>, Boolean> MATCH_CACHE =
-          new ConcurrentHashMap<>();
+  private static final Cache<String, Pattern> PATTERN_CACHE =
+          Cache.newCache("MethodGroupsHelper.patterns", 1000);
+  private static final Cache<Pair<String, String>, Boolean> MATCH_CACHE =
+          Cache.newCache("MethodGroupsHelper.matches", 10000);
 
     /**
    * Collect all the methods that belong to the included groups and exclude all
@@ -3,9 +3,7 @@ package org.testng.internal;
 import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.testng.ITestNGMethod;
@@ -16,6 +14,7 @@ import org.testng.collections.Lists;
 import org.testng.collections.Sets;
 import org.testng.internal.annotations.AnnotationHelper;
 import org.testng.internal.annotations.IAnnotationFinder;
+import org.testng.internal.collections.Cache;
 import org.testng.internal.collections.Pair;
 
 /**
@@ -25,11 +24,15 @@ import org.testng.internal.collections.Pair;
  * @author <a href='mailto:the_mindstorm[at]evolva[dot]ro'>Alexandru Popescu</a>
  */
 public class MethodHelper {
-  private static final Map<ITestNGMethod[], Graph<ITestNGMethod>> GRAPH_CACHE =
-          new ConcurrentHashMap<>();
-  private static final Map<Method, String> CANONICAL_NAME_CACHE = new ConcurrentHashMap<>();
-  private static final Map<Pair<String, String>, Boolean> MATCH_CACHE =
-          new ConcurrentHashMap<>();
+  // Arrays are compared by identity
+  private static final Cache<ITestNGMethod[], Graph<ITestNGMethod>> GRAPH_CACHE =
+          Cache.newCache("MethodHelper.graphs", 100);
+  // Keyed by the declaring class and the name, since reflection returns a new copy of a
+  // Method every time
+  private static final Cache<Pair<Class<?>, String>, String> CANONICAL_NAME_CACHE =
+          Cache.newCache("MethodHelper.canonicalNames", 10000);
+  private static final Cache<Pair<String, String>, Boolean> MATCH_CACHE =
+          Cache.newCache("MethodHelper.matches", 10000);
 
   /**
    * Collects and orders test or configuration methods
@@ -196,27 +199,19 @@ public class MethodHelper {
     //
     // Create the graph
     //
+    DependencyIndex index = new DependencyIndex(methods);
+    index.setMissingGroups();
     for (ITestNGMethod m : methods) {
       result.addNode(m);
 
       List<ITestNGMethod> predecessors = Lists.newArrayList();
 
-      String[] methodsDependedUpon = m.getMethodsDependedUpon();
-      String[] groupsDependedUpon = m.getGroupsDependedUpon();
-      if (methodsDependedUpon.length > 0) {
-        ITestNGMethod[] methodsNamed =
-          MethodHelper.findDependedUponMethods(m, methods);
-        for (ITestNGMethod pred : methodsNamed) {
-          predecessors.add(pred);
-        }
+      for (ITestNGMethod pred : index.getMethodsDependedUpon(m)) {
+        predecessors.add(pred);
       }
-      if (groupsDependedUpon.length > 0) {
-        for (String group : groupsDependedUpon) {
-          ITestNGMethod[] methodsThatBelongToGroup =
-            MethodGroupsHelper.findMethodsThatBelongToGroup(m, methods, group);
-          for (ITestNGMethod pred : methodsThatBelongToGroup) {
-            predecessors.add(pred);
-          }
+      for (ITestNGMethod[] methodsThatBelongToGroup : index.getGroupsDependedUpon(m)) {
+        for (ITestNGMethod pred : methodsThatBelongToGroup) {
+          predecessors.add(pred);
         }
       }
 
@@ -237,7 +232,9 @@ public class MethodHelper {
   }
 
   private static String calculateMethodCanonicalName(Method m) {
-    String result = CANONICAL_NAME_CACHE.get(m);
+    Pair<Class<?>, String> cacheKey = Pair.<Class<?>, String>create(m.getDeclaringClass(),
+        m.getName());
+    String result = CANONICAL_NAME_CACHE.get(cacheKey);
     if (result != null) {
       return result;
     }
@@ -260,7 +257,7 @@ public class MethodHelper {
     }
 
     result = packageName + "." + m.getName();
-    CANONICAL_NAME_CACHE.put(m, result);
+    CANONICAL_NAME_CACHE.put(cacheKey, result);
     return result;
   }
 
@@ -7,6 +7,7 @@ import org.testng.IHookable;
 import org.testng.ITestContext;
 import org.testng.ITestNGMethod;
 import org.testng.ITestResult;
+import org.testng.SuiteRunner;
 import org.testng.TestNGException;
 import org.testng.internal.annotations.IAnnotationFinder;
 import org.testng.internal.collections.ArrayIterator;
@@ -18,6 +19,7 @@ import org.testng.internal.thread.IFutureResult;
 import org.testng.internal.thread.ThreadExecutionException;
 import org.testng.internal.thread.ThreadTimeoutException;
 import org.testng.internal.thread.ThreadUtil;
+import org.testng.internal.thread.TimeOutWatchdog;
 import org.testng.xml.XmlSuite;
 
 import java.lang.reflect.Constructor;
@@ -59,6 +61,36 @@ public class MethodInvocationHelper {
       throws InvocationTargetException, IllegalAccessException {
     Utils.checkInstanceOrStatic(instance, thisMethod);
 
+    thisMethod = findMethodForInstance(thisMethod, instance);
+
+    synchronized(thisMethod) {
+      if (! Modifier.isPublic(thisMethod.getModifiers()) || !thisMethod.isAccessible()) {
+        thisMethod.setAccessible(true);
+      }
+    }
+    return thisMethod.invoke(instance, parameters);
+  }
+
+  /**
+   * Invoke the method through an invoker cached by the method for each class of the instances
+   * it is invoked on.
+   */
+  protected static Object invokeMethod(ConstructorOrMethod method, Object instance,
+      Object[] parameters) throws InvocationTargetException, IllegalAccessException {
+    Class<?> instanceClass = instance == null ? null : instance.getClass();
+    MethodInvoker invoker = method.getInvoker(instanceClass);
+    if (invoker == null) {
+      Utils.checkInstanceOrStatic(instance, method.getMethod());
+      invoker = MethodInvoker.create(method.getMethod(), instance);
+      method.setInvoker(instanceClass, invoker);
+    }
+    return invoker.invoke(instance, parameters);
+  }
+
+  /**
+   * @return the method to invoke on this instance in place of thisMethod.
+   */
+  static Method findMethodForInstance(Method thisMethod, Object instance) {
     // TESTNG-326, allow IObjectFactory to load from non-standard classloader
     // If the instance has a different classloader, its class won't match the
     // method's class
@@ -95,13 +127,7 @@ public class MethodInvocationHelper {
         }
       }
     }
-
-    synchronized(thisMethod) {
-      if (! Modifier.isPublic(thisMethod.getModifiers()) || !thisMethod.isAccessible()) {
-        thisMethod.setAccessible(true);
-      }
-    }
-    return thisMethod.invoke(instance, parameters);
+    return thisMethod;
   }
 
   protected static Iterator<Object[]> invokeDataProvider(Object instance, Method dataProvider,
@@ -194,7 +220,7 @@ public class MethodInvocationHelper {
    *           <tt>thisMethod</code> results in an exception
    */
   protected static void invokeHookable(final Object testInstance, final Object[] parameters,
-                                       final IHookable hookable, final Method thisMethod,
+                                       final IHookable hookable, final ConstructorOrMethod thisMethod,
                                        final ITestResult testResult) throws Throwable {
     final Throwable[] error = new Throwable[1];
 
@@ -238,11 +264,41 @@ public class MethodInvocationHelper {
       // We are already running in our own executor, don't create another one (or we will
       // lose the time out of the enclosing executor).
       invokeWithTimeoutWithNoExecutor(tm, instance, parameterValues, testResult, hookable);
+    } else if (testResult.getTestContext().getSuite() instanceof SuiteRunner) {
+      TimeOutWatchdog watchdog =
+          ((SuiteRunner) testResult.getTestContext().getSuite()).getTimeOutWatchdog();
+      invokeWithTimeoutWithWatchdog(tm, instance, parameterValues, testResult, hookable, watchdog);
     } else {
       invokeWithTimeoutWithNewExecutor(tm, instance, parameterValues, testResult, hookable);
     }
   }
 
+  /**
+   * Run the method on a thread started by the watchdog of the suite, which abandons it
+   * if it doesn't finish within its time out.
+   */
+  private static void invokeWithTimeoutWithWatchdog(ITestNGMethod tm, Object instance,
+      Object[] parameterValues, ITestResult testResult, IHookable hookable,
+      TimeOutWatchdog watchdog) throws InterruptedException, ThreadExecutionException {
+    InvokeMethodRunnable imr = new InvokeMethodRunnable(tm, instance, parameterValues, hookable, testResult);
+    long realTimeOut = MethodHelper.calculateTimeOut(tm);
+    TimeOutWatchdog.Invocation invocation = watchdog.submit(imr, realTimeOut);
+    Throwable failure = invocation.await() ? null : invocation.getFailure();
+
+    if (invocation.getStackTrace() != null) {
+      ThreadTimeoutException exception = new ThreadTimeoutException("Method "
+          + tm.getQualifiedName() + "()"
+          + " didn't finish within the time-out " + realTimeOut);
+      exception.setStackTrace(invocation.getStackTrace());
+      testResult.setThrowable(exception);
+      testResult.setStatus(ITestResult.FAILURE);
+    } else if (failure != null) {
+      throw new ThreadExecutionException(failure);
+    } else {
+      testResult.setStatus(ITestResult.SUCCESS);
+    }
+  }
+
   private static void invokeWithTimeoutWithNoExecutor(ITestNGMethod tm, Object instance,
       Object[] parameterValues, ITestResult testResult, IHookable hookable) {
 
@@ -259,7 +315,8 @@ public class MethodInvocationHelper {
   private static void invokeWithTimeoutWithNewExecutor(ITestNGMethod tm, Object instance,
       Object[] parameterValues, ITestResult testResult, IHookable hookable)
       throws InterruptedException, ThreadExecutionException {
-    IExecutor exec = ThreadUtil.createExecutor(1, tm.getMethodName());
+    IExecutor exec = ThreadUtil.createExecutor(1, tm.getMethodName(),
+        testResult.getTestContext().getCurrentXmlTest().getSuite().getThreadFactory());
 
     InvokeMethodRunnable imr = new InvokeMethodRunnable(tm, instance, parameterValues, hookable, testResult);
     IFutureResult future = exec.submitRunnable(imr);
@@ -290,7 +347,7 @@ public class MethodInvocationHelper {
   }
 
   protected static void invokeConfigurable(final Object instance, final Object[] parameters,
-                                           final IConfigurable configurableInstance, final Method thisMethod,
+                                           final IConfigurable configurableInstance, final ConstructorOrMethod thisMethod,
                                            final ITestResult testResult) throws Throwable {
     final Throwable[] error = new Throwable[1];
 
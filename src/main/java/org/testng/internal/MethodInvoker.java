@@ -0,0 +1,103 @@
+package org.testng.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invokes a method on the instances of a given class. The method to invoke is looked up and
+ * made accessible once, and then called through a {@link MethodHandle}, so that invoking it
+ * doesn't cost more than a call through an interface.
+ *
+ * Calls whose instance or parameters don't match the exact types of the method (e.g. because
+ * they need a widening conversion) are delegated to {@link Method#invoke(Object, Object...)}, so
+ * that they behave and fail exactly as they would through reflection.
+ */
+public class MethodInvoker {
+  private final Method m_method;
+  private final boolean m_static;
+  /** The types of the parameters, primitive ones being replaced by their wrapper */
+  private final Class<?>[] m_parameterTypes;
+  private final boolean[] m_primitive;
+  private final MethodHandle m_handle;
+
+  private MethodInvoker(Method method, MethodHandle handle) {
+    m_method = method;
+    m_static = Modifier.isStatic(method.getModifiers());
+    m_handle = handle;
+    m_parameterTypes = method.getParameterTypes();
+    m_primitive = new boolean[m_parameterTypes.length];
+    for (int i = 0; i < m_parameterTypes.length; i++) {
+      m_primitive[i] = m_parameterTypes[i].isPrimitive();
+      m_parameterTypes[i] = MethodType.methodType(m_parameterTypes[i]).wrap().returnType();
+    }
+  }
+
+  /**
+   * @param method the method to invoke
+   * @param instance an instance of the class the method will be invoked on, or null
+   * if it is static
+   */
+  public static MethodInvoker create(Method method, Object instance) {
+    Method target = MethodInvocationHelper.findMethodForInstance(method, instance);
+    synchronized(target) {
+      if (!Modifier.isPublic(target.getModifiers()) || !target.isAccessible()) {
+        target.setAccessible(true);
+      }
+    }
+    MethodHandle handle;
+    try {
+      handle = MethodHandles.lookup().unreflect(target).asFixedArity();
+      if (Modifier.isStatic(target.getModifiers())) {
+        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+      }
+      handle = handle.asSpreader(Object[].class, target.getParameterTypes().length)
+          .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+    } catch (IllegalAccessException | RuntimeException e) {
+      // Let reflection report the problem when the method is invoked
+      Utils.log("MethodInvoker", 3, "Can't create a method handle for " + target + ": " + e);
+      handle = null;
+    }
+    return new MethodInvoker(target, handle);
+  }
+
+  public Object invoke(Object instance, Object[] parameters)
+      throws InvocationTargetException, IllegalAccessException {
+    if (m_handle == null || !matchesInstance(instance) || !matchesParameterTypes(parameters)) {
+      return m_method.invoke(instance, parameters);
+    }
+    Object[] arguments = parameters == null ? new Object[0] : parameters;
+    try {
+      return (Object) m_handle.invokeExact(instance, arguments);
+    } catch (Throwable t) {
+      // The instance and the parameters match the types of the method, so t was thrown by
+      // the method itself
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  private boolean matchesInstance(Object instance) {
+    return m_static || m_method.getDeclaringClass().isInstance(instance);
+  }
+
+  private boolean matchesParameterTypes(Object[] parameters) {
+    int length = parameters == null ? 0 : parameters.length;
+    if (length != m_parameterTypes.length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      Object parameter = parameters[i];
+      if (parameter == null) {
+        if (m_primitive[i]) {
+          return false;
+        }
+      } else if (!m_parameterTypes[i].isInstance(parameter)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -1,7 +1,6 @@
 package org.testng.internal;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Method;
@@ -27,16 +26,49 @@ import org.testng.collections.Lists;
  * @author <a href="mailto:cedric@beust.com">Cedric Beust</a>
  */
 public class PackageUtils {
+  /** The name of the file, in the output directory, the index of the class path is saved to */
+  public static final String SCAN_INDEX_FILE_NAME = ".testng-scan-index";
+
   private static String[] s_testClassPaths;
 
   /** The additional class loaders to find classes in. */
   private static final List<ClassLoader> m_classLoaders = new Vector<>();
 
+
   /** Add a class loader to the searchable loaders. */
   public static void addClassLoader(final ClassLoader loader) {
     m_classLoaders.add(loader);
   }
 
+  /**
+   * @return an index of the class path with the entries saved to the given file, if it can
+   * be read.
+   */
+  public static ClassPathIndex loadScanIndex(File file) {
+    ClassPathIndex result = new ClassPathIndex();
+    if (file.exists()) {
+      try {
+        result.load(file);
+      } catch (IOException e) {
+        Utils.log("PackageUtils", 2, "Ignoring the class path index " + file
+            + ": " + e.getMessage());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Save an index of the class path to a file, if it changed.
+   */
+  public static void saveScanIndex(ClassPathIndex scanIndex, File file) {
+    try {
+      scanIndex.save(file);
+    } catch (IOException e) {
+      Utils.log("PackageUtils", 2, "Couldn't save the class path index to " + file
+          + ": " + e.getMessage());
+    }
+  }
+
   /**
    *
    * @param packageName
@@ -46,6 +78,21 @@ public class PackageUtils {
   public static String[] findClassesInPackage(String packageName,
       List<String> included, List<String> excluded)
     throws IOException
+  {
+    return findClassesInPackage(packageName, included, excluded, null, true);
+  }
+
+  /**
+   * @param scanIndex the index of the class path of the current run, or null to scan the
+   * class path again
+   * @param preFilterClasses whether the class files are read to only return the classes that
+   * can be test classes, so that the other ones are never loaded
+   * @return The list of all the classes inside this package
+   */
+  public static String[] findClassesInPackage(String packageName,
+      List<String> included, List<String> excluded, ClassPathIndex scanIndex,
+      boolean preFilterClasses)
+    throws IOException
   {
     String packageOnly = packageName;
     boolean recursive = false;
@@ -82,6 +129,22 @@ public class PackageUtils {
       }
     }
 
+    // Scan the jars that aren't indexed yet or changed all at once, so that it's done concurrently
+    if (scanIndex == null) {
+      scanIndex = new ClassPathIndex();
+    }
+    List<File> jarFiles = Lists.newArrayList();
+    for (URL url : dirs) {
+      if ("jar".equals(url.getProtocol()) && matchTestClasspath(url, packageDirName, recursive)) {
+        File jarFile = getJarFile(url);
+        if (jarFile != null) {
+          jarFiles.add(jarFile);
+        }
+      }
+    }
+    scanIndex.update(jarFiles);
+    TestClassPreFilter filter = preFilterClasses ? new TestClassPreFilter(allClassLoaders) : null;
+
     Iterator<URL> dirIterator = dirs.iterator();
     while (dirIterator.hasNext()) {
       URL url = dirIterator.next();
@@ -91,12 +154,39 @@ public class PackageUtils {
       }
 
       if ("file".equals(protocol)) {
-        findClassesInDirPackage(packageOnly, included, excluded,
+        findClassesInDirPackage(scanIndex, filter, packageOnly, included, excluded,
                                 URLDecoder.decode(url.getFile(), "UTF-8"),
                                 recursive,
                                 vResult);
       }
+      else if ("jar".equals(protocol) && getJarFile(url) != null) {
+        File jarFile = getJarFile(url);
+        JarFile jar = null;
+        try {
+          for (String name : scanIndex.findClasses(jarFile, packageOnly, recursive)) {
+            int idx = name.lastIndexOf('/');
+            String classPackage = idx != -1 ? name.substring(0, idx).replace('/', '.') : "";
+            String className = name.substring(idx + 1);
+            Utils.log("PackageUtils", 4, "Found class " + className + ", seeing it if it's included or excluded");
+            if (filter != null && isIncluded(classPackage, included, excluded)) {
+              if (jar == null) {
+                jar = new JarFile(jarFile);
+              }
+              if (!filter.isCandidate(jar, name + ".class")) {
+                Utils.log("PackageUtils", 4, "... Skipping class " + className + ", it can't be a test class");
+                continue;
+              }
+            }
+            includeOrExcludeClass(classPackage, className, included, excluded, vResult);
+          }
+        } finally {
+          if (jar != null) {
+            jar.close();
+          }
+        }
+      }
       else if ("jar".equals(protocol)) {
+        // Not a local file, so not indexed
         JarFile jar = ((JarURLConnection) url.openConnection()).getJarFile();
         Enumeration<JarEntry> entries = jar.entries();
         while (entries.hasMoreElements()) {
@@ -132,7 +222,7 @@ public class PackageUtils {
               .getDeclaredMethod("getFileURL", params);
           Object paramsObj[] = {};
           URL fileUrl = (URL) thisMethod.invoke(connection, paramsObj);
-          findClassesInDirPackage(packageOnly, included, excluded,
+          findClassesInDirPackage(scanIndex, filter, packageOnly, included, excluded,
               URLDecoder.decode(fileUrl.getFile(), "UTF-8"), recursive, vResult);
         } catch (Exception ex) {
           // ignore - probably not an Eclipse OSGi bundle
@@ -144,6 +234,17 @@ public class PackageUtils {
     return result;
   }
 
+  /**
+   * @return the jar file of a "jar:" URL if it is a local file, null otherwise.
+   */
+  private static File getJarFile(URL url) throws IOException {
+    URL jarFileUrl = ((JarURLConnection) url.openConnection()).getJarFileURL();
+    if (!"file".equals(jarFileUrl.getProtocol())) {
+      return null;
+    }
+    return new File(URLDecoder.decode(jarFileUrl.getFile(), "UTF-8"));
+  }
+
   private static String[] getTestClasspath() {
     if (null != s_testClassPaths) {
       return s_testClassPaths;
@@ -207,7 +308,9 @@ public class PackageUtils {
     return false;
   }
 
-  private static void findClassesInDirPackage(String packageName,
+  private static void findClassesInDirPackage(ClassPathIndex scanIndex,
+                                              TestClassPreFilter filter,
+                                              String packageName,
                                               List<String> included,
                                               List<String> excluded,
                                               String packagePath,
@@ -215,33 +318,41 @@ public class PackageUtils {
                                               List<String> classes) {
     File dir = new File(packagePath);
 
-    if (!dir.exists() || !dir.isDirectory()) {
+    if (!dir.isDirectory()) {
       return;
     }
 
-    File[] dirfiles = dir.listFiles(new FileFilter() {
-          @Override
-          public boolean accept(File file) {
-            return (recursive && file.isDirectory())
-              || (file.getName().endsWith(".class"))
-              || (file.getName().endsWith(".groovy"));
-          }
-        });
+    ClassPathIndex.DirectoryListing listing = scanIndex.listDirectory(dir);
 
     Utils.log("PackageUtils", 4, "Looking for test classes in the directory: " + dir);
-    for (File file : dirfiles) {
-      if (file.isDirectory()) {
-        findClassesInDirPackage(makeFullClassName(packageName, file.getName()),
+    for (int i = 0; i < listing.m_names.length; i++) {
+      String fileName = listing.m_names[i];
+      boolean isDirectory = listing.m_directories[i];
+      if (!(recursive && isDirectory)
+          && !fileName.endsWith(".class")
+          && !fileName.endsWith(".groovy")) {
+        continue;
+      }
+      if (isDirectory) {
+        findClassesInDirPackage(scanIndex,
+                                filter,
+                                makeFullClassName(packageName, fileName),
                                 included,
                                 excluded,
-                                file.getAbsolutePath(),
+                                new File(dir, fileName).getAbsolutePath(),
                                 recursive,
                                 classes);
       }
       else {
-        String className = file.getName().substring(0, file.getName().lastIndexOf("."));
+        String className = fileName.substring(0, fileName.lastIndexOf("."));
         Utils.log("PackageUtils", 4, "Found class " + className
             + ", seeing it if it's included or excluded");
+        if (filter != null && fileName.endsWith(".class")
+            && isIncluded(packageName, included, excluded)
+            && !filter.isCandidate(new File(dir, fileName))) {
+          Utils.log("PackageUtils", 4, "... Skipping class " + className + ", it can't be a test class");
+          continue;
+        }
         includeOrExcludeClass(packageName, className, included, excluded, classes);
       }
     }
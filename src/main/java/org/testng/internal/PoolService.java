@@ -1,8 +1,12 @@
 package org.testng.internal;
 
+import org.testng.ITestNGThreadFactory;
 import org.testng.TestNGException;
 import org.testng.collections.Lists;
+import org.testng.internal.thread.DataProviderThreadPool;
+import org.testng.internal.thread.ThreadUtil;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -20,39 +24,77 @@ public class PoolService<FutureType> {
   private ExecutorCompletionService<FutureType> m_completionService;
   private ThreadFactory m_threadFactory;
   private ExecutorService m_executor;
+  private int m_maxPendingTasks;
 
   public PoolService(int threadPoolSize) {
+    this(threadPoolSize, null);
+  }
+
+  /**
+   * @param threadFactory the factory of the threads, or null for the default one
+   */
+  public PoolService(int threadPoolSize, ITestNGThreadFactory threadFactory) {
+    final ITestNGThreadFactory factory = ThreadUtil.getThreadFactory(threadFactory);
     m_threadFactory = new ThreadFactory() {
       private int m_threadIndex = 0;
 
       @Override
       public Thread newThread(Runnable r) {
-        Thread result = new Thread(r);
-        result.setName("PoolService-" + m_threadIndex);
+        Thread result = factory.newThread(r, "PoolService-" + m_threadIndex);
         m_threadIndex++;
         return result;
       }
     };
     m_executor = Executors.newFixedThreadPool(threadPoolSize, m_threadFactory);
+    // Keep one task queued per thread so that a thread that finishes doesn't
+    // have to wait for the producer to create the next one.
+    m_maxPendingTasks = 2 * threadPoolSize;
     m_completionService = new ExecutorCompletionService<>(m_executor);
   }
 
+  /**
+   * Run the tasks on a pool shared with other callers, which is left running once they
+   * are over.
+   */
+  public PoolService(DataProviderThreadPool pool) {
+    m_maxPendingTasks = pool.getMaxPendingTasks();
+    m_completionService = new ExecutorCompletionService<>(pool);
+  }
+
   public List<FutureType> submitTasksAndWait(List<? extends Callable<FutureType>> tasks) {
+    return submitTasksAndWait(tasks.iterator());
+  }
+
+  /**
+   * Pull the tasks lazily from the iterator, never keeping more than twice the
+   * number of threads of them submitted but not completed. The next task is only created
+   * once a previous one has completed, so the tasks don't need to fit in memory
+   * at once.
+   *
+   * @return the results, in the order of completion
+   */
+  public List<FutureType> submitTasksAndWait(Iterator<? extends Callable<FutureType>> tasks) {
     List<FutureType> result = Lists.newArrayList();
 
-    for (Callable<FutureType> callable : tasks) {
-      m_completionService.submit(callable);
-    }
-    for (int i = 0; i < tasks.size(); i++) {
-      try {
+    try {
+      int pending = 0;
+      while (tasks.hasNext() || pending > 0) {
+        while (pending < m_maxPendingTasks && tasks.hasNext()) {
+          m_completionService.submit(tasks.next());
+          pending++;
+        }
         Future<FutureType> take = m_completionService.take();
+        pending--;
         result.add(take.get());
-      } catch (InterruptedException | ExecutionException e) {
-        throw new TestNGException(e);
+      }
+    } catch (InterruptedException | ExecutionException e) {
+      throw new TestNGException(e);
+    } finally {
+      if (m_executor != null) {
+        m_executor.shutdown();
       }
     }
 
-    m_executor.shutdown();
     return result;
   }
 }
@@ -0,0 +1,144 @@
+package org.testng.internal;
+
+import org.testng.IReporter;
+import org.testng.IShardedReporter;
+import org.testng.ISuite;
+import org.testng.ITestNGThreadFactory;
+import org.testng.internal.thread.ThreadUtil;
+import org.testng.xml.XmlSuite;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the reporters at the end of a run, one after the other or concurrently on a pool of
+ * threads. On a pool, the shards of the {@link IShardedReporter}s run concurrently too and
+ * the last shard of a reporter to complete finishes its report.
+ *
+ * The failure of a reporter is logged and doesn't prevent the other ones from running.
+ */
+public class ReportGenerator {
+  private final int m_threadCount;
+  private final ITestNGThreadFactory m_threadFactory;
+
+  public ReportGenerator(int threadCount, ITestNGThreadFactory threadFactory) {
+    m_threadCount = threadCount;
+    m_threadFactory = threadFactory;
+  }
+
+  public void generateReports(Collection<IReporter> reporters, List<XmlSuite> xmlSuites,
+      List<ISuite> suites, String outputDirectory) {
+    if (m_threadCount <= 1) {
+      for (IReporter reporter : reporters) {
+        long start = System.currentTimeMillis();
+        try {
+          reporter.generateReport(xmlSuites, suites, outputDirectory);
+          logTime(reporter, start);
+        } catch (Exception ex) {
+          logFailure(reporter, ex);
+        }
+      }
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(m_threadCount,
+        ThreadUtil.createThreadFactory(ThreadUtil.getThreadFactory(m_threadFactory), "TestNG-Reporter-"));
+    try {
+      for (IReporter reporter : reporters) {
+        if (reporter instanceof IShardedReporter) {
+          submitShards(executor, (IShardedReporter) reporter, xmlSuites, suites, outputDirectory);
+        } else {
+          submit(executor, reporter, xmlSuites, suites, outputDirectory);
+        }
+      }
+    } finally {
+      // The tasks finishing the sharded reports run on the thread of their last shard, so no
+      // task is submitted after this point
+      executor.shutdown();
+      try {
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static void submit(ExecutorService executor, final IReporter reporter,
+      final List<XmlSuite> xmlSuites, final List<ISuite> suites, final String outputDirectory) {
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        long start = System.currentTimeMillis();
+        try {
+          reporter.generateReport(xmlSuites, suites, outputDirectory);
+          logTime(reporter, start);
+        } catch (Exception ex) {
+          logFailure(reporter, ex);
+        }
+      }
+    });
+  }
+
+  private static void submitShards(ExecutorService executor, final IShardedReporter reporter,
+      final List<XmlSuite> xmlSuites, final List<ISuite> suites, final String outputDirectory) {
+    final long start = System.currentTimeMillis();
+    final List<Runnable> shards;
+    try {
+      shards = reporter.createShards(xmlSuites, suites, outputDirectory);
+    } catch (Exception ex) {
+      logFailure(reporter, ex);
+      return;
+    }
+    final Runnable finish = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          reporter.finishReport(xmlSuites, suites, outputDirectory);
+          logTime(reporter, start);
+        } catch (Exception ex) {
+          logFailure(reporter, ex);
+        }
+      }
+    };
+    if (shards.isEmpty()) {
+      executor.execute(finish);
+      return;
+    }
+
+    final AtomicInteger remaining = new AtomicInteger(shards.size());
+    final AtomicBoolean failed = new AtomicBoolean();
+    for (final Runnable shard : shards) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            shard.run();
+          } catch (Exception ex) {
+            // Only report the first failure of the reporter
+            if (failed.compareAndSet(false, true)) {
+              logFailure(reporter, ex);
+            }
+          }
+          if (remaining.decrementAndGet() == 0 && !failed.get()) {
+            finish.run();
+          }
+        }
+      });
+    }
+  }
+
+  private static void logTime(IReporter reporter, long start) {
+    Utils.log("TestNG", 2, "Time taken by " + reporter + ": "
+        + (System.currentTimeMillis() - start) + " ms");
+  }
+
+  private static void logFailure(IReporter reporter, Exception ex) {
+    System.err.println("[TestNG] Reporter " + reporter + " failed");
+    ex.printStackTrace(System.err);
+  }
+}
@@ -0,0 +1,230 @@
+package org.testng.internal;
+
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.TestNGException;
+import org.testng.collections.Lists;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The output logged with {@link Reporter}. Each test result has its own append-only buffer,
+ * so that logging from several threads doesn't contend on a lock and the output of a result
+ * is found without going through the output of the other ones.
+ *
+ * The number of lines kept in memory can be limited per result and in total. Once a limit is
+ * reached, the next lines of the result are either dropped or written to a file, depending on
+ * the {@link Reporter.OverflowPolicy}.
+ */
+public class ReporterOutputStore {
+
+  private final ConcurrentMap<ITestResult, ResultOutput> m_outputs = new ConcurrentHashMap<>();
+
+  /** The lines kept in memory, in the order they were logged */
+  private final Queue<String> m_output = new ConcurrentLinkedQueue<>();
+  private final AtomicLong m_lineCount = new AtomicLong();
+
+  private volatile int m_maxLinesPerResult = Integer.MAX_VALUE;
+  private volatile long m_maxLines = Long.MAX_VALUE;
+  private volatile Reporter.OverflowPolicy m_overflowPolicy = Reporter.OverflowPolicy.TRUNCATE;
+  private File m_spillDirectory;
+
+  public void setMaxLinesPerResult(int maxLinesPerResult) {
+    m_maxLinesPerResult = maxLinesPerResult;
+  }
+
+  public void setMaxLines(long maxLines) {
+    m_maxLines = maxLines;
+  }
+
+  public void setOverflowPolicy(Reporter.OverflowPolicy overflowPolicy) {
+    m_overflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * Append lines to the output of a result.
+   */
+  public void add(ITestResult result, Collection<String> lines) {
+    ResultOutput output = m_outputs.get(result);
+    if (output == null) {
+      output = new ResultOutput();
+      ResultOutput previous = m_outputs.putIfAbsent(result, output);
+      if (previous != null) {
+        output = previous;
+      }
+    }
+    for (String line : lines) {
+      output.add(line);
+    }
+  }
+
+  /**
+   * @return the lines of all the results that were kept in memory, in the order they
+   * were logged.
+   */
+  public List<String> getOutput() {
+    return Lists.newArrayList(m_output);
+  }
+
+  /**
+   * @return the lines logged for this result, including the ones written to a file, but
+   * not the truncated ones.
+   */
+  public List<String> getOutput(ITestResult result) {
+    ResultOutput output = m_outputs.get(result);
+    return output == null ? Lists.<String>newArrayList() : output.getLines();
+  }
+
+  /**
+   * Close the file the output of this result was written to, if any. It is opened again if
+   * more lines are written to it.
+   */
+  public void finish(ITestResult result) {
+    ResultOutput output = m_outputs.get(result);
+    if (output != null) {
+      output.closeSpillFile();
+    }
+  }
+
+  public synchronized void clear() {
+    for (ResultOutput output : m_outputs.values()) {
+      output.deleteSpillFile();
+    }
+    m_outputs.clear();
+    m_output.clear();
+    m_lineCount.set(0);
+  }
+
+  private synchronized File createSpillFile() throws IOException {
+    if (m_spillDirectory == null) {
+      m_spillDirectory = Files.createTempDirectory("testng-reporter").toFile();
+      m_spillDirectory.deleteOnExit();
+    }
+    File result = File.createTempFile("output", ".bin", m_spillDirectory);
+    result.deleteOnExit();
+    return result;
+  }
+
+  private class ResultOutput {
+    private final Queue<String> m_lines = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger m_size = new AtomicInteger();
+    private final AtomicInteger m_truncatedCount = new AtomicInteger();
+    /** Once a line was written to the file, all the next ones are too to keep their order */
+    private volatile boolean m_spilling;
+    private File m_spillFile;
+    /** Kept open while the lines are written, until the result is finished or read */
+    private DataOutputStream m_spillOut;
+
+    void add(String line) {
+      if (!m_spilling && reserveLine()) {
+        m_lines.add(line);
+        m_output.add(line);
+      } else if (m_overflowPolicy == Reporter.OverflowPolicy.SPILL) {
+        spill(line);
+      } else if (m_truncatedCount.getAndIncrement() == 0) {
+        Utils.log("Reporter", 2, "Truncating the output of a test result after "
+            + m_size.get() + " lines");
+      }
+    }
+
+    private boolean reserveLine() {
+      if (m_size.incrementAndGet() > m_maxLinesPerResult) {
+        m_size.decrementAndGet();
+        return false;
+      }
+      if (m_lineCount.incrementAndGet() > m_maxLines) {
+        m_lineCount.decrementAndGet();
+        m_size.decrementAndGet();
+        return false;
+      }
+      return true;
+    }
+
+    private synchronized void spill(String line) {
+      m_spilling = true;
+      try {
+        if (m_spillFile == null) {
+          m_spillFile = createSpillFile();
+        }
+        if (m_spillOut == null) {
+          m_spillOut = new DataOutputStream(new BufferedOutputStream(
+              new FileOutputStream(m_spillFile, true /* append */)));
+        }
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        m_spillOut.writeInt(bytes.length);
+        m_spillOut.write(bytes);
+      } catch (IOException e) {
+        throw new TestNGException("Couldn't write the output of a test result to "
+            + m_spillFile, e);
+      }
+    }
+
+    synchronized void closeSpillFile() {
+      if (m_spillOut != null) {
+        try {
+          m_spillOut.close();
+        } catch (IOException e) {
+          throw new TestNGException("Couldn't write the output of a test result to "
+              + m_spillFile, e);
+        } finally {
+          m_spillOut = null;
+        }
+      }
+    }
+
+    synchronized List<String> getLines() {
+      List<String> result = Lists.newArrayList(m_lines);
+      closeSpillFile();
+      if (m_spillFile != null) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new FileInputStream(m_spillFile)))) {
+          while (true) {
+            int length;
+            try {
+              length = in.readInt();
+            } catch (EOFException e) {
+              break;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            result.add(new String(bytes, StandardCharsets.UTF_8));
+          }
+        } catch (IOException e) {
+          throw new TestNGException("Couldn't read the output of a test result from "
+              + m_spillFile, e);
+        }
+      }
+      return result;
+    }
+
+    synchronized void deleteSpillFile() {
+      try {
+        closeSpillFile();
+      } catch (TestNGException e) {
+        // The file is deleted anyway
+      }
+      if (m_spillFile != null) {
+        m_spillFile.delete();
+        m_spillFile = null;
+      }
+    }
+  }
+}
@@ -6,42 +6,63 @@ import org.testng.ITestResult;
 import org.testng.collections.Objects;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * The results are also indexed by method, so that looking up the results of a method
+ * doesn't depend on the total number of results.
+ */
 public class ResultMap implements IResultMap {
   /**
    *
    */
   private static final long serialVersionUID = 80134376515999093L;
-  private Map<ITestResult, ITestNGMethod> m_map = new ConcurrentHashMap<>();
+  private ConcurrentMap<ITestResult, ITestNGMethod> m_map = new ConcurrentHashMap<>();
+  /** method -> its results. The sets are never removed so that adding a result needs no lock. */
+  private ConcurrentMap<ITestNGMethod, Set<ITestResult>> m_resultsByMethod =
+      new ConcurrentHashMap<>();
 
   @Override
   public void addResult(ITestResult result, ITestNGMethod method) {
-    m_map.put(result, method);
+    ITestNGMethod previous = m_map.put(result, method);
+    if (previous != null && !previous.equals(method)) {
+      getResultSet(previous).remove(result);
+    }
+    getResultSet(method).add(result);
   }
 
-  @Override
-  public Set<ITestResult> getResults(ITestNGMethod method) {
-    Set<ITestResult> result = new HashSet<>();
-
-    for (Map.Entry<ITestResult, ITestNGMethod> entry : m_map.entrySet()) {
-      if (entry.getValue().equals(method)) {
-        result.add(entry.getKey());
+  private Set<ITestResult> getResultSet(ITestNGMethod method) {
+    Set<ITestResult> result = m_resultsByMethod.get(method);
+    if (result == null) {
+      Set<ITestResult> newSet =
+          Collections.newSetFromMap(new ConcurrentHashMap<ITestResult, Boolean>());
+      result = m_resultsByMethod.putIfAbsent(method, newSet);
+      if (result == null) {
+        result = newSet;
       }
     }
-
     return result;
   }
 
+  @Override
+  public Set<ITestResult> getResults(ITestNGMethod method) {
+    Set<ITestResult> results = m_resultsByMethod.get(method);
+    return results == null ? new HashSet<ITestResult>() : new HashSet<>(results);
+  }
+
   @Override
   public void removeResult(ITestNGMethod m) {
-    for (Entry<ITestResult, ITestNGMethod> entry : m_map.entrySet()) {
-      if (entry.getValue().equals(m)) {
-        m_map.remove(entry.getKey());
+    Set<ITestResult> results = m_resultsByMethod.get(m);
+    if (results == null) {
+      return;
+    }
+    for (ITestResult r : results) {
+      if (results.remove(r)) {
+        m_map.remove(r);
         return;
       }
     }
@@ -49,7 +70,10 @@ public class ResultMap implements IResultMap {
 
   @Override
   public void removeResult(ITestResult r) {
-    m_map.remove(r);
+    ITestNGMethod method = m_map.remove(r);
+    if (method != null) {
+      getResultSet(method).remove(r);
+    }
   }
 
   @Override
@@ -0,0 +1,232 @@
+package org.testng.internal;
+
+import org.testng.collections.Maps;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Tells whether a class can be a test class by reading its class file instead of loading it,
+ * so that the classes of a package that can't be test classes are never loaded and their
+ * static initializers never run.
+ *
+ * A class is a candidate if its constant pool refers to the TestNG annotations or to JUnit,
+ * or if its superclass is a candidate. A class file that can't be read or parsed is always a
+ * candidate.
+ *
+ * This class is not multi thread safe.
+ */
+class TestClassPreFilter {
+  private static final byte[][] MARKERS = {
+      "org/testng/annotations/".getBytes(StandardCharsets.US_ASCII),
+      "org/junit/".getBytes(StandardCharsets.US_ASCII),
+      "junit/framework/".getBytes(StandardCharsets.US_ASCII),
+  };
+
+  private static final int MAGIC = 0xCAFEBABE;
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_FLOAT = 4;
+  private static final int CONSTANT_LONG = 5;
+  private static final int CONSTANT_DOUBLE = 6;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_FIELD_REF = 9;
+  private static final int CONSTANT_METHOD_REF = 10;
+  private static final int CONSTANT_INTERFACE_METHOD_REF = 11;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+  private static final int CONSTANT_METHOD_HANDLE = 15;
+  private static final int CONSTANT_METHOD_TYPE = 16;
+  private static final int CONSTANT_DYNAMIC = 17;
+  private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+  private static final int CONSTANT_MODULE = 19;
+  private static final int CONSTANT_PACKAGE = 20;
+
+  private final List<ClassLoader> m_classLoaders;
+  /** Whether the superclasses seen so far are candidates, by internal name */
+  private final Map<String, Boolean> m_superClasses = Maps.newHashMap();
+
+  /**
+   * @param classLoaders the class loaders to read the class files of the superclasses from
+   */
+  TestClassPreFilter(List<ClassLoader> classLoaders) {
+    m_classLoaders = classLoaders;
+  }
+
+  boolean isCandidate(File classFile) {
+    try {
+      return isCandidate(Files.readAllBytes(classFile.toPath()));
+    } catch (IOException e) {
+      return true;
+    }
+  }
+
+  boolean isCandidate(JarFile jar, String entryName) {
+    JarEntry entry = jar.getJarEntry(entryName);
+    if (entry == null) {
+      return true;
+    }
+    try (InputStream in = jar.getInputStream(entry)) {
+      return isCandidate(readFully(in));
+    } catch (IOException e) {
+      return true;
+    }
+  }
+
+  private boolean isCandidate(byte[] classFile) {
+    ConstantPool pool = ConstantPool.parse(classFile);
+    if (pool == null || pool.m_hasMarker) {
+      return true;
+    }
+    return pool.m_superClass != null && isSuperClassCandidate(pool.m_superClass);
+  }
+
+  private boolean isSuperClassCandidate(String internalName) {
+    if (internalName.startsWith("java/")) {
+      return false;
+    }
+    Boolean result = m_superClasses.get(internalName);
+    if (result == null) {
+      // A cycle can only come from broken class files, which are candidates anyway
+      m_superClasses.put(internalName, Boolean.TRUE);
+      byte[] classFile = readClassFile(internalName);
+      result = classFile == null || isCandidate(classFile);
+      m_superClasses.put(internalName, result);
+    }
+    return result;
+  }
+
+  private byte[] readClassFile(String internalName) {
+    for (ClassLoader classLoader : m_classLoaders) {
+      if (classLoader == null) {
+        continue;
+      }
+      try (InputStream in = classLoader.getResourceAsStream(internalName + ".class")) {
+        if (in != null) {
+          return readFully(in);
+        }
+      } catch (IOException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int length;
+    while ((length = in.read(buffer)) != -1) {
+      result.write(buffer, 0, length);
+    }
+    return result.toByteArray();
+  }
+
+  /**
+   * What the filter needs from the constant pool of a class file.
+   */
+  private static class ConstantPool {
+    boolean m_hasMarker;
+    /** The internal name of the superclass, null for java.lang.Object */
+    String m_superClass;
+
+    /**
+     * @return the constant pool of a class file, or null if it isn't a valid class file.
+     */
+    static ConstantPool parse(byte[] bytes) {
+      try {
+        ConstantPool result = new ConstantPool();
+        if (readInt(bytes, 0) != MAGIC) {
+          return null;
+        }
+        int count = readUnsignedShort(bytes, 8);
+        // The offsets of the entries, to find the name of the superclass once the pool is read
+        int[] offsets = new int[count];
+        int offset = 10;
+        for (int i = 1; i < count; i++) {
+          offsets[i] = offset;
+          int tag = bytes[offset] & 0xFF;
+          switch (tag) {
+            case CONSTANT_UTF8:
+              int length = readUnsignedShort(bytes, offset + 1);
+              if (!result.m_hasMarker && containsMarker(bytes, offset + 3, length)) {
+                result.m_hasMarker = true;
+              }
+              offset += 3 + length;
+              break;
+            case CONSTANT_CLASS:
+            case CONSTANT_STRING:
+            case CONSTANT_METHOD_TYPE:
+            case CONSTANT_MODULE:
+            case CONSTANT_PACKAGE:
+              offset += 3;
+              break;
+            case CONSTANT_METHOD_HANDLE:
+              offset += 4;
+              break;
+            case CONSTANT_INTEGER:
+            case CONSTANT_FLOAT:
+            case CONSTANT_FIELD_REF:
+            case CONSTANT_METHOD_REF:
+            case CONSTANT_INTERFACE_METHOD_REF:
+            case CONSTANT_NAME_AND_TYPE:
+            case CONSTANT_DYNAMIC:
+            case CONSTANT_INVOKE_DYNAMIC:
+              offset += 5;
+              break;
+            case CONSTANT_LONG:
+            case CONSTANT_DOUBLE:
+              // They take two entries
+              offset += 9;
+              i++;
+              break;
+            default:
+              return null;
+          }
+        }
+        int superClassIndex = readUnsignedShort(bytes, offset + 4);
+        if (superClassIndex != 0) {
+          int nameOffset = offsets[readUnsignedShort(bytes, offsets[superClassIndex] + 1)];
+          int length = readUnsignedShort(bytes, nameOffset + 1);
+          result.m_superClass = new String(bytes, nameOffset + 3, length, StandardCharsets.UTF_8);
+        }
+        return result;
+      } catch (ArrayIndexOutOfBoundsException e) {
+        return null;
+      }
+    }
+
+    private static boolean containsMarker(byte[] bytes, int start, int length) {
+      for (byte[] marker : MARKERS) {
+        int last = start + length - marker.length;
+        for (int i = start; i <= last; i++) {
+          int j = 0;
+          while (j < marker.length && bytes[i + j] == marker[j]) {
+            j++;
+          }
+          if (j == marker.length) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    private static int readUnsignedShort(byte[] bytes, int offset) {
+      return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+      return (readUnsignedShort(bytes, offset) << 16) | readUnsignedShort(bytes, offset + 2);
+    }
+  }
+}
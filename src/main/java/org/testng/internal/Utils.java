@@ -15,6 +15,7 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -30,6 +31,8 @@ import org.testng.annotations.ITestAnnotation;
 import org.testng.collections.Lists;
 import org.testng.internal.annotations.AnnotationHelper;
 import org.testng.internal.annotations.IAnnotationFinder;
+import org.testng.reporters.IBuffer;
+import org.testng.reporters.NioFileStringBuffer;
 import org.testng.reporters.XMLStringBuffer;
 import org.testng.xml.XmlClass;
 
@@ -106,11 +109,22 @@ public final class Utils {
       if (!file.exists()) {
         file.createNewFile();
       }
-      try (final OutputStreamWriter w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
-        if (prefix != null) {
-          w.append(prefix);
+      IBuffer buffer = xsb.getStringBuffer();
+      if (buffer instanceof NioFileStringBuffer) {
+        // Copy the content without decoding it
+        try (final FileOutputStream out = new FileOutputStream(file)) {
+          if (prefix != null) {
+            out.write(prefix.getBytes(StandardCharsets.UTF_8));
+          }
+          ((NioFileStringBuffer) buffer).toChannel(out.getChannel());
+        }
+      } else {
+        try (final OutputStreamWriter w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+          if (prefix != null) {
+            w.append(prefix);
+          }
+          xsb.toWriter(w);
         }
-        xsb.toWriter(w);
       }
     } catch(IOException ex) {
       ex.printStackTrace();
@@ -231,6 +245,21 @@ public final class Utils {
     return openWriter(outputFile, null, false);
   }
 
+  /**
+   * Open a writer encoding to UTF-8 the file named fileName in outputDir, like
+   * {@link #writeUtf8File(String, String, String)} would write it. If outputDir does not
+   * exist, it is created.
+   */
+  public static BufferedWriter openUtf8Writer(@Nullable String outputDir, String fileName) throws IOException {
+    File outDir = new File(outputDir != null ? outputDir : "");
+    if (!outDir.exists()) {
+      outDir.mkdirs();
+    }
+    File outputFile = new File(outDir, replaceSpecialCharacters(fileName));
+    outputFile.delete();
+    return openWriter(outputFile, "UTF-8", false);
+  }
+
   private static BufferedWriter openWriter(File outputFile, @Nullable String encoding, boolean append) throws IOException {
     if (!outputFile.exists()) {
       outputFile.createNewFile();
@@ -3,6 +3,7 @@ package org.testng.internal;
 import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -38,7 +39,13 @@ public class XmlMethodSelector implements IMethodSelector {
   private String m_expression = null;
   // List of methods included implicitly
   private ListMultiMap<String, XmlInclude> m_includedMethods = Maps.newListMultiMap();
-  private IBsh m_bsh = Dynamic.hasBsh() ? new Bsh() : new BshMock();
+  private IBsh m_bsh = new CompilingBsh(Dynamic.hasBsh() ? new Bsh() : new BshMock());
+  // The regular expressions of the groups and methods, compiled once
+  private Map<String, Pattern> m_patterns = Maps.newHashMap();
+  // The included and excluded methods of each XmlClass, compared by identity
+  private Map<XmlClass, ClassMatcher> m_xmlClassMatchers = new IdentityHashMap<>();
+  // The matchers of the XmlClasses that apply to the methods declared in a class
+  private Map<Class<?>, List<ClassMatcher>> m_classMatchers = Maps.newHashMap();
 
   @Override
   public boolean includeMethod(IMethodSelectorContext context,
@@ -129,26 +136,15 @@ public class XmlMethodSelector implements IMethodSelector {
                 + "."
                 + method.getName();
 
-        String[] fullyQualifiedMethodName = new String[] { fullMethodName };
-
         //
         // Iterate through all the classes so we can gather all the included and
-        // excluded methods
+        // excluded methods. Only consider included/excluded methods that belong
+        // to the same class we are looking at
         //
-        for (XmlClass xmlClass : m_classes) {
-          // Only consider included/excluded methods that belong to the same class
-          // we are looking at
-          Class cls = xmlClass.getSupportClass();
-          if(!assignable(methodClass, cls)) {
-            continue;
-          }
-
-          List<String> includedMethods =
-              createQualifiedMethodNames(xmlClass, toStringList(xmlClass.getIncludedMethods()));
-          boolean isIncludedInMethods = isIncluded(fullyQualifiedMethodName, includedMethods);
-          List<String> excludedMethods = createQualifiedMethodNames(xmlClass,
-              xmlClass.getExcludedMethods());
-          boolean isExcludedInMethods = isExcluded(fullyQualifiedMethodName, excludedMethods);
+        for (ClassMatcher matcher : getClassMatchers(methodClass)) {
+          boolean isIncludedInMethods = matcher.m_includedMethods.isEmpty()
+              || matcher.m_includedMethods.matches(fullMethodName);
+          boolean isExcludedInMethods = matcher.m_excludedMethods.matches(fullMethodName);
           if (result) {
             // If we're about to include this method by group, make sure
             // it's included by method and not excluded by method
@@ -209,19 +205,71 @@ public class XmlMethodSelector implements IMethodSelector {
     return result;
   }
 
-  private List<String> createQualifiedMethodNames(XmlClass xmlClass,
+  /**
+   * @return the matchers of the XmlClasses that the class is assignable from or to, created
+   * the first time the class is looked up.
+   */
+  private List<ClassMatcher> getClassMatchers(Class<?> methodClass) {
+    List<ClassMatcher> result = m_classMatchers.get(methodClass);
+    if (result == null) {
+      result = Lists.newArrayList();
+      for (XmlClass xmlClass : m_classes) {
+        if (assignable(methodClass, xmlClass.getSupportClass())) {
+          result.add(getClassMatcher(xmlClass));
+        }
+      }
+      m_classMatchers.put(methodClass, result);
+    }
+    return result;
+  }
+
+  private ClassMatcher getClassMatcher(XmlClass xmlClass) {
+    ClassMatcher result = m_xmlClassMatchers.get(xmlClass);
+    if (result == null) {
+      result = new ClassMatcher(
+          new MethodNameMatcher(createQualifiedMethodNames(xmlClass,
+              toStringList(xmlClass.getIncludedMethods()))),
+          new MethodNameMatcher(createQualifiedMethodNames(xmlClass,
+              xmlClass.getExcludedMethods())));
+      m_xmlClassMatchers.put(xmlClass, result);
+    }
+    return result;
+  }
+
+  private Set<String> createQualifiedMethodNames(XmlClass xmlClass,
       List<String> methods) {
-    List<String> vResult = Lists.newArrayList();
+    Set<String> vResult = new HashSet<>();
+    if (methods.isEmpty()) {
+      return vResult;
+    }
     Class cls = xmlClass.getSupportClass();
 
     while (null != cls) {
+      Map<String, List<Method>> methodsByName = Maps.newHashMap();
+      for (Method m : ReflectionHelper.getLocalMethods(cls)) {
+        List<Method> l = methodsByName.get(m.getName());
+        if (l == null) {
+          l = Lists.newArrayList();
+          methodsByName.put(m.getName(), l);
+        }
+        l.add(m);
+      }
       for (String im : methods) {
-        String methodName = im;
-        Method[] allMethods = ReflectionHelper.getLocalMethods(cls);
-        Pattern pattern = Pattern.compile(methodName);
-        for (Method m : allMethods) {
-          if (pattern.matcher(m.getName()).matches()) {
-            vResult.add(makeMethodName(m.getDeclaringClass().getName(), m.getName()));
+        if (isLiteral(im)) {
+          List<Method> l = methodsByName.get(im);
+          if (l != null) {
+            for (Method m : l) {
+              vResult.add(makeMethodName(m.getDeclaringClass().getName(), m.getName()));
+            }
+          }
+        } else {
+          Pattern pattern = getPattern(im);
+          for (Map.Entry<String, List<Method>> es : methodsByName.entrySet()) {
+            if (pattern.matcher(es.getKey()).matches()) {
+              for (Method m : es.getValue()) {
+                vResult.add(makeMethodName(m.getDeclaringClass().getName(), m.getName()));
+              }
+            }
           }
         }
       }
@@ -231,16 +279,44 @@ public class XmlMethodSelector implements IMethodSelector {
     return vResult;
   }
 
+  /**
+   * @return true if the regular expression only matches itself.
+   */
+  private static boolean isLiteral(String regexp) {
+    for (int i = 0; i < regexp.length(); i++) {
+      char c = regexp.charAt(i);
+      if (!Character.isLetterOrDigit(c) && c != '_') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Pattern getPattern(String regexp) {
+    Pattern result = m_patterns.get(regexp);
+    if (result == null) {
+      result = Pattern.compile(regexp);
+      m_patterns.put(regexp, result);
+    }
+    return result;
+  }
+
   private String makeMethodName(String className, String methodName) {
     return className + "." + methodName;
   }
 
-  private void checkMethod(Class<?> c, String methodName) {
-    Pattern p = Pattern.compile(methodName);
-    for (Method m : c.getMethods()) {
-      if (p.matcher(m.getName()).matches()) {
+  private void checkMethod(Class<?> c, Set<String> methodNames, String methodName) {
+    if (isLiteral(methodName)) {
+      if (methodNames.contains(methodName)) {
         return;
       }
+    } else {
+      Pattern p = getPattern(methodName);
+      for (String name : methodNames) {
+        if (p.matcher(name).matches()) {
+          return;
+        }
+      }
     }
     Utils.log("Warning", 2, "The regular expression \"" + methodName + "\" didn't match any" +
               " method in class " + c.getName());
@@ -248,9 +324,18 @@ public class XmlMethodSelector implements IMethodSelector {
 
   public void setXmlClasses(List<XmlClass> classes) {
     m_classes = classes;
+    m_classMatchers.clear();
+    m_xmlClassMatchers.clear();
     for (XmlClass c : classes) {
+      if (c.getIncludedMethods().isEmpty()) {
+        continue;
+      }
+      Set<String> methodNames = new HashSet<>();
+      for (Method m : c.getSupportClass().getMethods()) {
+        methodNames.add(m.getName());
+      }
       for (XmlInclude m : c.getIncludedMethods()) {
-        checkMethod(c.getSupportClass(), m.getName());
+        checkMethod(c.getSupportClass(), methodNames, m.getName());
         String methodName = makeMethodName(c.getName(), m.getName());
         m_includedMethods.put(methodName, m);
       }
@@ -285,7 +370,7 @@ public class XmlMethodSelector implements IMethodSelector {
     m_includedGroups = includedGroups;
   }
 
-  private static boolean isIncluded(String[] groups, Collection<String> includedGroups) {
+  private boolean isIncluded(String[] groups, Collection<String> includedGroups) {
     if (includedGroups.size() == 0) {
       return true;
     }
@@ -294,7 +379,7 @@ public class XmlMethodSelector implements IMethodSelector {
     }
   }
 
-  private static boolean isExcluded(String[] groups, Collection<String> excludedGroups) {
+  private boolean isExcluded(String[] groups, Collection<String> excludedGroups) {
     return isMemberOf(groups, excludedGroups);
   }
 
@@ -303,11 +388,11 @@ public class XmlMethodSelector implements IMethodSelector {
    * @param groups Array of groups on the method
    * @param list Map of regexps of groups to be run
    */
-  private static boolean isMemberOf(String[] groups, Collection<String> list) {
+  private boolean isMemberOf(String[] groups, Collection<String> list) {
     for (String group : groups) {
       for (Object o : list) {
         String regexpStr = o.toString();
-        boolean match = Pattern.matches(regexpStr, group);
+        boolean match = getPattern(regexpStr).matcher(group).matches();
         if (match) {
           return true;
         }
@@ -379,4 +464,63 @@ public class XmlMethodSelector implements IMethodSelector {
       }
     }
   }
+
+  /**
+   * The methods included and excluded by an XmlClass.
+   */
+  private static class ClassMatcher {
+    final MethodNameMatcher m_includedMethods;
+    final MethodNameMatcher m_excludedMethods;
+
+    ClassMatcher(MethodNameMatcher includedMethods, MethodNameMatcher excludedMethods) {
+      m_includedMethods = includedMethods;
+      m_excludedMethods = excludedMethods;
+    }
+  }
+
+  /**
+   * Matches the qualified names of methods against a list of regular expressions. The
+   * expressions that are plain qualified names are looked up in a hash set, the dots of these
+   * names being taken for themselves, and only the other ones are matched one by one.
+   */
+  private static class MethodNameMatcher {
+    private final Set<String> m_names = new HashSet<>();
+    private final List<Pattern> m_patterns = Lists.newArrayList();
+
+    MethodNameMatcher(Collection<String> regexps) {
+      for (String regexp : regexps) {
+        if (isQualifiedName(regexp)) {
+          m_names.add(regexp);
+        } else {
+          m_patterns.add(Pattern.compile(regexp));
+        }
+      }
+    }
+
+    private static boolean isQualifiedName(String regexp) {
+      for (int i = 0; i < regexp.length(); i++) {
+        char c = regexp.charAt(i);
+        if (!Character.isLetterOrDigit(c) && c != '_' && c != '.') {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    boolean isEmpty() {
+      return m_names.isEmpty() && m_patterns.isEmpty();
+    }
+
+    boolean matches(String name) {
+      if (m_names.contains(name)) {
+        return true;
+      }
+      for (Pattern pattern : m_patterns) {
+        if (pattern.matcher(name).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
 }
@@ -2,6 +2,7 @@ package org.testng.internal.annotations;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.util.Collection;
 
 import org.testng.ITestNGMethod;
 import org.testng.annotations.IAnnotation;
@@ -60,4 +61,11 @@ public interface IAnnotationFinder {
    * if the parameter isn't optional)
    */
   public String[] findOptionalValues(Constructor ctor);
+
+  /**
+   * Resolve ahead of time the annotations that are looked up while these methods run: the
+   * test and configuration annotations of the methods and the test annotations of their
+   * classes. The later lookups of these annotations are then answered from the cache.
+   */
+  void resolveAnnotations(Collection<ITestNGMethod> methods);
 }
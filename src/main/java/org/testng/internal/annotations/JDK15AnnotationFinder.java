@@ -3,8 +3,14 @@ package org.testng.internal.annotations;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.testng.IAnnotationTransformer;
 import org.testng.IAnnotationTransformer2;
@@ -39,12 +45,20 @@ import org.testng.annotations.Optional;
 import org.testng.annotations.Parameters;
 import org.testng.annotations.Test;
 import org.testng.annotations.TestInstance;
+import org.testng.collections.Lists;
+import org.testng.internal.ClassHelper;
 import org.testng.internal.ConstructorOrMethod;
+import org.testng.internal.Utils;
 import org.testng.internal.collections.Pair;
+import org.testng.internal.thread.ThreadUtil;
 
 /**
  * This class implements IAnnotationFinder with JDK5 annotations
  *
+ * The result of each lookup, including the lookups that find nothing, is cached for the
+ * whole run, so that looking up the same annotation again doesn't walk the superclasses nor
+ * hash the Java annotations.
+ *
  * Created on Dec 20, 2005
  * @author <a href="mailto:cedric@beust.com">Cedric Beust</a>
  */
@@ -54,6 +68,16 @@ public class JDK15AnnotationFinder implements IAnnotationFinder {
       new ConcurrentHashMap<>();
   private Map<Pair<Annotation, ?>, IAnnotation> m_annotations = new ConcurrentHashMap<>();
 
+  /** The number of methods resolved by each task of {@link #resolveAnnotations(Collection)} */
+  private static final int RESOLVE_CHUNK_SIZE = 256;
+  /** Cached for the lookups that find no annotation */
+  private static final Object NOT_FOUND = new Object();
+
+  /** The results of the lookups, {@link #NOT_FOUND} if there is no annotation */
+  private final ConcurrentMap<LookupKey, Object> m_lookups = new ConcurrentHashMap<>();
+  private final AtomicLong m_cacheHits = new AtomicLong();
+  private final AtomicLong m_cacheMisses = new AtomicLong();
+
   private IAnnotationTransformer m_transformer = null;
 
   @SuppressWarnings({"deprecation"})
@@ -103,6 +127,15 @@ public class JDK15AnnotationFinder implements IAnnotationFinder {
 
   @Override
   public <A extends IAnnotation> A findAnnotation(Method m, Class<A> annotationClass) {
+    LookupKey key = new LookupKey(m, null, annotationClass);
+    Object result = getCached(key);
+    if (result == null) {
+      result = cache(key, resolveAnnotation(m, annotationClass));
+    }
+    return found(result);
+  }
+
+  private <A extends IAnnotation> A resolveAnnotation(Method m, Class<A> annotationClass) {
     final Class<? extends Annotation> a = m_annotationMap.get(annotationClass);
     if (a == null) {
       throw new IllegalArgumentException("Java @Annotation class for '"
@@ -115,11 +148,6 @@ public class JDK15AnnotationFinder implements IAnnotationFinder {
 
   @Override
   public <A extends IAnnotation> A findAnnotation(ITestNGMethod tm, Class<A> annotationClass) {
-    final Class<? extends Annotation> a = m_annotationMap.get(annotationClass);
-    if (a == null) {
-      throw new IllegalArgumentException("Java @Annotation class for '"
-            + annotationClass + "' not found.");
-    }
     Method m = tm.getConstructorOrMethod().getMethod();
     Class<?> testClass;
     if (tm.getInstance() == null) {
@@ -127,6 +155,21 @@ public class JDK15AnnotationFinder implements IAnnotationFinder {
     } else {
       testClass = tm.getInstance().getClass();
     }
+    LookupKey key = new LookupKey(m, testClass, annotationClass);
+    Object result = getCached(key);
+    if (result == null) {
+      result = cache(key, resolveAnnotation(m, testClass, annotationClass));
+    }
+    return found(result);
+  }
+
+  private <A extends IAnnotation> A resolveAnnotation(Method m, Class<?> testClass,
+      Class<A> annotationClass) {
+    final Class<? extends Annotation> a = m_annotationMap.get(annotationClass);
+    if (a == null) {
+      throw new IllegalArgumentException("Java @Annotation class for '"
+            + annotationClass + "' not found.");
+    }
     Annotation annotation = m.getAnnotation(a);
     if (annotation == null) {
       annotation = testClass.getAnnotation(a);
@@ -195,6 +238,15 @@ public class JDK15AnnotationFinder implements IAnnotationFinder {
 
   @Override
   public <A extends IAnnotation> A findAnnotation(Class<?> cls, Class<A> annotationClass) {
+    LookupKey key = new LookupKey(cls, null, annotationClass);
+    Object result = getCached(key);
+    if (result == null) {
+      result = cache(key, resolveAnnotation(cls, annotationClass));
+    }
+    return found(result);
+  }
+
+  private <A extends IAnnotation> A resolveAnnotation(Class<?> cls, Class<A> annotationClass) {
     final Class<? extends Annotation> a = m_annotationMap.get(annotationClass);
     if (a == null) {
       throw new IllegalArgumentException("Java @Annotation class for '"
@@ -207,6 +259,15 @@ public class JDK15AnnotationFinder implements IAnnotationFinder {
 
   @Override
   public <A extends IAnnotation> A findAnnotation(Constructor<?> cons, Class<A> annotationClass) {
+    LookupKey key = new LookupKey(cons, null, annotationClass);
+    Object result = getCached(key);
+    if (result == null) {
+      result = cache(key, resolveAnnotation(cons, annotationClass));
+    }
+    return found(result);
+  }
+
+  private <A extends IAnnotation> A resolveAnnotation(Constructor<?> cons, Class<A> annotationClass) {
     final Class<? extends Annotation> a = m_annotationMap.get(annotationClass);
     if (a == null) {
       throw new IllegalArgumentException("Java @Annotation class for '"
@@ -217,6 +278,7 @@ public class JDK15AnnotationFinder implements IAnnotationFinder {
         new Pair<>(annotation, cons));
   }
 
+  @SuppressWarnings("unchecked")
   private <A extends IAnnotation> A findAnnotation(Class cls, Annotation a,
       Class<A> annotationClass, Class<?> testClass,
       Constructor<?> testConstructor, Method testMethod, Pair<Annotation, ?> p) {
@@ -230,10 +292,143 @@ public class JDK15AnnotationFinder implements IAnnotationFinder {
       m_annotations.put(p, result);
       transform(result, testClass, testConstructor, testMethod);
     }
-    //noinspection unchecked
     return (A) result;
   }
 
+  /**
+   * @return the cached result of a lookup, or null if it wasn't cached yet.
+   */
+  private Object getCached(LookupKey key) {
+    Object result = m_lookups.get(key);
+    if (result == null) {
+      m_cacheMisses.incrementAndGet();
+    } else {
+      m_cacheHits.incrementAndGet();
+    }
+    return result;
+  }
+
+  private Object cache(LookupKey key, IAnnotation annotation) {
+    Object result = annotation == null ? NOT_FOUND : annotation;
+    Object previous = m_lookups.putIfAbsent(key, result);
+    return previous == null ? result : previous;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <A extends IAnnotation> A found(Object result) {
+    return result == NOT_FOUND ? null : (A) result;
+  }
+
+  /**
+   * @return the number of lookups that were answered from the cache.
+   */
+  public long getCacheHits() {
+    return m_cacheHits.get();
+  }
+
+  /**
+   * @return the number of lookups that had to resolve the annotation.
+   */
+  public long getCacheMisses() {
+    return m_cacheMisses.get();
+  }
+
+  @Override
+  public void resolveAnnotations(Collection<ITestNGMethod> methods) {
+    if (!(m_transformer instanceof DefaultAnnotationTransformer)) {
+      // The transformers of the users may not be thread safe, and they would see annotations
+      // that are otherwise never looked up, so they are left to the lookups made during the run
+      return;
+    }
+    // The classes whose @Listeners and @DataProvider annotations are looked up by the run
+    final Set<Class<?>> testClasses =
+        Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+    final Set<Class<?>> dataProviderClasses =
+        Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+    List<ITestNGMethod> allMethods = Lists.newArrayList(methods);
+    List<Runnable> tasks = Lists.newArrayList();
+    for (int i = 0; i < allMethods.size(); i += RESOLVE_CHUNK_SIZE) {
+      final List<ITestNGMethod> chunk =
+          allMethods.subList(i, Math.min(i + RESOLVE_CHUNK_SIZE, allMethods.size()));
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          for (ITestNGMethod method : chunk) {
+            resolveAnnotations(method, testClasses, dataProviderClasses);
+          }
+        }
+      });
+    }
+    execute(tasks);
+
+    tasks = Lists.newArrayList();
+    for (final Class<?> cls : testClasses) {
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          // TestRunner looks up the @Listeners of the superclasses too
+          for (Class<?> c = cls; c != null && c != Object.class; c = c.getSuperclass()) {
+            findAnnotation(c, IListenersAnnotation.class);
+          }
+        }
+      });
+    }
+    for (final Class<?> cls : dataProviderClasses) {
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          for (Method m : ClassHelper.getAvailableMethods(cls)) {
+            findAnnotation(m, IDataProviderAnnotation.class);
+          }
+        }
+      });
+    }
+    execute(tasks);
+  }
+
+  private void execute(List<Runnable> tasks) {
+    if (tasks.size() == 1) {
+      tasks.get(0).run();
+    } else if (tasks.size() > 1) {
+      int threadCount = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+      ThreadUtil.execute(tasks, threadCount, 0 /* no timeout */, false /* not at once */);
+    }
+  }
+
+  private void resolveAnnotations(ITestNGMethod tm, Set<Class<?>> testClasses,
+      Set<Class<?>> dataProviderClasses) {
+    ConstructorOrMethod com = tm.getConstructorOrMethod();
+    testClasses.add(tm.getRealClass());
+    ITestAnnotation classAnnotation = findAnnotation(tm.getRealClass(), ITestAnnotation.class);
+    findAnnotation(com.getDeclaringClass(), ITestAnnotation.class);
+    Method m = com.getMethod();
+    if (m == null) {
+      return;
+    }
+    ITestAnnotation methodAnnotation = findAnnotation(m, ITestAnnotation.class);
+    if (tm.isTest()) {
+      addDataProviderClass(tm, methodAnnotation, classAnnotation, dataProviderClasses);
+    } else {
+      for (Class<?> annotationClass : AnnotationHelper.CONFIGURATION_CLASSES) {
+        findAnnotation(m, annotationClass.asSubclass(IAnnotation.class));
+      }
+    }
+  }
+
+  /**
+   * Add the class searched for the data provider of this test method, if it has one, the same
+   * way {@link org.testng.internal.Parameters} finds it.
+   */
+  private static void addDataProviderClass(ITestNGMethod tm, ITestAnnotation methodAnnotation,
+      ITestAnnotation classAnnotation, Set<Class<?>> dataProviderClasses) {
+    ITestAnnotation annotation = methodAnnotation != null ? methodAnnotation : classAnnotation;
+    if (annotation == null || Utils.isStringEmpty(annotation.getDataProvider())) {
+      return;
+    }
+    Class<?> dataProviderClass = annotation.getDataProviderClass();
+    dataProviderClasses.add(dataProviderClass != null ? dataProviderClass : tm.getRealClass());
+  }
+
   @Override
   public boolean hasTestInstance(Method method, int i) {
     final Annotation[][] annotations = method.getParameterAnnotations();
@@ -270,4 +465,44 @@ public class JDK15AnnotationFinder implements IAnnotationFinder {
     }
     return result;
   }
+
+  /**
+   * The key of a lookup: the class, method or constructor, the test class for the lookups
+   * of an {@link ITestNGMethod} and the type of the annotation.
+   */
+  private static final class LookupKey {
+    private final Object m_element;
+    private final Class<?> m_testClass;
+    private final Class<?> m_annotationClass;
+    private final int m_hashCode;
+
+    LookupKey(Object element, Class<?> testClass, Class<?> annotationClass) {
+      m_element = element;
+      m_testClass = testClass;
+      m_annotationClass = annotationClass;
+      int hashCode = element.hashCode();
+      hashCode = 31 * hashCode + (testClass == null ? 0 : testClass.hashCode());
+      m_hashCode = 31 * hashCode + annotationClass.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return m_hashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof LookupKey)) {
+        return false;
+      }
+      LookupKey other = (LookupKey) o;
+      return m_hashCode == other.m_hashCode
+          && m_annotationClass == other.m_annotationClass
+          && m_testClass == other.m_testClass
+          && m_element.equals(other.m_element);
+    }
+  }
 }
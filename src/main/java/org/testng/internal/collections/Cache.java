@@ -0,0 +1,120 @@
+package org.testng.internal.collections;
+
+import org.testng.collections.Lists;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache for the lookups TestNG repeats during a run. Its size is limited, and it is
+ * emptied when it is full, so that it can't grow without bound. All the caches are also
+ * emptied by {@link #clearAll()} at the end of a run, so that a JVM that runs TestNG many
+ * times doesn't keep the classes, methods and class loaders of the finished runs.
+ *
+ * The entries are kept in a {@link ConcurrentHashMap}, so lookups don't take a lock.
+ *
+ * The number of hits and misses and the size of all the caches are returned by
+ * {@link #getCaches()}.
+ *
+ * This class is thread safe.
+ */
+public class Cache<K, V> {
+  private static final List<Cache<?, ?>> CACHES =
+      Collections.synchronizedList(Lists.<Cache<?, ?>>newArrayList());
+
+  private final String m_name;
+  private final int m_maxSize;
+  private final ConcurrentMap<K, V> m_map = new ConcurrentHashMap<>();
+  private final AtomicLong m_hits = new AtomicLong();
+  private final AtomicLong m_misses = new AtomicLong();
+
+  private Cache(String name, int maxSize) {
+    m_name = name;
+    m_maxSize = maxSize;
+    CACHES.add(this);
+  }
+
+  /**
+   * @return a cache keeping at most about maxSize entries.
+   */
+  public static <K, V> Cache<K, V> newCache(String name, int maxSize) {
+    return new Cache<>(name, maxSize);
+  }
+
+  /**
+   * @return all the caches created so far, e.g. to report their hit rate and size.
+   */
+  public static List<Cache<?, ?>> getCaches() {
+    synchronized (CACHES) {
+      return Lists.newArrayList(CACHES);
+    }
+  }
+
+  /**
+   * Empty all the caches, once a run is over.
+   */
+  public static void clearAll() {
+    for (Cache<?, ?> cache : getCaches()) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * @return the value of this key, or null if it's not in the cache.
+   */
+  public V get(K key) {
+    V result = m_map.get(key);
+    if (result != null) {
+      m_hits.incrementAndGet();
+    } else {
+      m_misses.incrementAndGet();
+    }
+    return result;
+  }
+
+  public void put(K key, V value) {
+    if (m_map.size() >= m_maxSize) {
+      // Cheaper than tracking the use of every entry, and rare for the sizes used
+      m_map.clear();
+    }
+    m_map.put(key, value);
+  }
+
+  public void clear() {
+    m_map.clear();
+  }
+
+  public int size() {
+    return m_map.size();
+  }
+
+  public String getName() {
+    return m_name;
+  }
+
+  public long getHits() {
+    return m_hits.get();
+  }
+
+  public long getMisses() {
+    return m_misses.get();
+  }
+
+  /**
+   * @return the proportion of the lookups that were hits, or 0 if there was no lookup.
+   */
+  public double getHitRate() {
+    long hits = getHits();
+    long lookups = hits + getMisses();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  @Override
+  public String toString() {
+    return m_name + ": " + size() + " entries, " + getHits() + " hits, " + getMisses()
+        + " misses";
+  }
+}
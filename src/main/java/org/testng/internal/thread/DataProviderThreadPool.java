@@ -0,0 +1,104 @@
+package org.testng.internal.thread;
+
+import org.testng.ITestNGThreadFactory;
+import org.testng.internal.Utils;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The threads running the rows of the parallel data providers of a suite. They are shared by
+ * all the methods of the suite, so that the threads are only created once.
+ *
+ * The tasks are run in the order they are submitted. Since each method only keeps a bounded
+ * number of rows submitted at once (see {@link #getMaxPendingTasks()}), and submits the next
+ * one when one of them completes, the methods running at the same time get a fair share of
+ * the threads.
+ */
+public class DataProviderThreadPool implements Executor {
+  /**
+   * The prefix of the names of the threads. It doesn't contain the name of the suite, which
+   * could make {@link ThreadUtil#isTestNGThread()} take them for threads of TestNG.
+   */
+  private static final String THREAD_NAME_PREFIX = "DataProviderPool-";
+
+  private final ThreadPoolExecutor m_executor;
+  private final int m_threadCount;
+  private final AtomicLong m_taskCount = new AtomicLong();
+  private final AtomicLong m_waitNanos = new AtomicLong();
+
+  public DataProviderThreadPool(int threadCount, ITestNGThreadFactory threadFactory) {
+    m_threadCount = threadCount;
+    m_executor = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        ThreadUtil.createThreadFactory(ThreadUtil.getThreadFactory(threadFactory),
+            THREAD_NAME_PREFIX));
+  }
+
+  @Override
+  public void execute(final Runnable command) {
+    final long submitted = System.nanoTime();
+    m_executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        m_taskCount.incrementAndGet();
+        m_waitNanos.addAndGet(System.nanoTime() - submitted);
+        command.run();
+      }
+    });
+  }
+
+  public int getThreadCount() {
+    return m_threadCount;
+  }
+
+  /**
+   * @return how many tasks a method may have submitted and not yet completed.
+   */
+  public int getMaxPendingTasks() {
+    // Keep one task queued per thread so that a thread that finishes doesn't
+    // have to wait for the method to submit the next one.
+    return 2 * m_threadCount;
+  }
+
+  /**
+   * @return the number of tasks waiting for a thread.
+   */
+  public int getQueueDepth() {
+    return m_executor.getQueue().size();
+  }
+
+  /**
+   * @return the number of threads running a task.
+   */
+  public int getActiveWorkers() {
+    return m_executor.getActiveCount();
+  }
+
+  /**
+   * @return the number of tasks that were started.
+   */
+  public long getTaskCount() {
+    return m_taskCount.get();
+  }
+
+  /**
+   * @return the average time the tasks waited for a thread.
+   */
+  public long getAverageWaitNanos() {
+    long count = m_taskCount.get();
+    return count == 0 ? 0 : m_waitNanos.get() / count;
+  }
+
+  public void shutdown() {
+    m_executor.shutdown();
+    if (getTaskCount() > 0) {
+      Utils.log("DataProviderThreadPool", 2, "Ran " + getTaskCount() + " data provider rows on "
+          + m_threadCount + " threads, waiting on average "
+          + TimeUnit.NANOSECONDS.toMicros(getAverageWaitNanos()) + " microseconds for a thread");
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package org.testng.internal.thread;
+
+import org.testng.ITestNGThreadFactory;
+
+/**
+ * The default thread factory, which creates ordinary platform threads.
+ */
+public class PlatformThreadFactory implements ITestNGThreadFactory {
+  private static final long serialVersionUID = 1L;
+
+  @Override
+  public Thread newThread(Runnable target, String name) {
+    return new Thread(target, name);
+  }
+}
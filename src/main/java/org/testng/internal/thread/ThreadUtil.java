@@ -1,16 +1,21 @@
 package org.testng.internal.thread;
 
+import org.testng.ITestNGThreadFactory;
+import org.testng.TestNGException;
 import org.testng.collections.Lists;
+import org.testng.internal.ClassHelper;
 import org.testng.internal.Utils;
 
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A helper class to interface TestNG concurrency usage.
@@ -19,6 +24,7 @@ import java.util.concurrent.TimeUnit;
  */
 public class ThreadUtil {
   private static final String THREAD_NAME = "TestNG";
+  private static final ITestNGThreadFactory DEFAULT_THREAD_FACTORY = new PlatformThreadFactory();
 
   /**
    * @return true if the current thread was created by TestNG.
@@ -37,6 +43,16 @@ public class ThreadUtil {
    */
   public static final void execute(List<? extends Runnable> tasks, int threadPoolSize,
       long timeout, boolean triggerAtOnce) {
+    execute(tasks, threadPoolSize, timeout, triggerAtOnce, null);
+  }
+
+  /**
+   * Same as {@link #execute(List, int, long, boolean)} with the threads created by the given
+   * factory, or by the default one if it is null.
+   */
+  public static final void execute(List<? extends Runnable> tasks, int threadPoolSize,
+      long timeout, boolean triggerAtOnce, ITestNGThreadFactory threadFactory) {
+    final ITestNGThreadFactory factory = getThreadFactory(threadFactory);
     final CountDownLatch startGate= new CountDownLatch(1);
     final CountDownLatch endGate= new CountDownLatch(tasks.size());
 
@@ -49,9 +65,7 @@ public class ThreadUtil {
         new ThreadFactory() {
           @Override
           public Thread newThread(Runnable r) {
-            Thread result = new Thread(r);
-            result.setName(THREAD_NAME);
-            return result;
+            return factory.newThread(r, THREAD_NAME);
           }
         });
 
@@ -90,11 +104,58 @@ public class ThreadUtil {
   }
 
   public static final IExecutor createExecutor(int threadCount, String threadFactoryName) {
-    return new ExecutorAdapter(threadCount, createFactory(threadFactoryName));
+    return createExecutor(threadCount, threadFactoryName, null);
   }
 
-  private static final IThreadFactory createFactory(String name) {
-    return new ThreadFactoryImpl(name);
+  public static final IExecutor createExecutor(int threadCount, String threadFactoryName,
+      ITestNGThreadFactory threadFactory) {
+    return new ExecutorAdapter(threadCount, new ThreadFactoryImpl(threadFactoryName,
+        getThreadFactory(threadFactory)));
+  }
+
+  /**
+   * @return the given thread factory, or the default one if it is null.
+   */
+  public static ITestNGThreadFactory getThreadFactory(ITestNGThreadFactory threadFactory) {
+    return threadFactory != null ? threadFactory : DEFAULT_THREAD_FACTORY;
+  }
+
+  /**
+   * @return a factory for an executor that names its threads with the given prefix followed by
+   * an index, or the default factory of the JDK if no thread factory was configured.
+   */
+  public static ThreadFactory createThreadFactory(final ITestNGThreadFactory threadFactory,
+      final String prefix) {
+    if (threadFactory == null) {
+      return Executors.defaultThreadFactory();
+    }
+    return new ThreadFactory() {
+      private final AtomicInteger m_index = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        return threadFactory.newThread(r, prefix + m_index.getAndIncrement());
+      }
+    };
+  }
+
+  /**
+   * @param name "platform", "virtual" or the name of a class implementing
+   * {@link ITestNGThreadFactory}
+   */
+  public static ITestNGThreadFactory createThreadFactory(String name) {
+    if ("platform".equalsIgnoreCase(name)) {
+      return new PlatformThreadFactory();
+    }
+    if ("virtual".equalsIgnoreCase(name)) {
+      return new VirtualThreadFactory();
+    }
+    Class<?> cls = ClassHelper.forName(name);
+    if (cls == null || !ITestNGThreadFactory.class.isAssignableFrom(cls)) {
+      throw new TestNGException("\"" + name + "\" is not a valid thread factory, expected "
+          + "platform, virtual or a class implementing " + ITestNGThreadFactory.class.getName());
+    }
+    return (ITestNGThreadFactory) ClassHelper.newInstance(cls);
   }
 
   private static void log(int level, String msg) {
@@ -103,15 +164,21 @@ public class ThreadUtil {
 
   public static class ThreadFactoryImpl implements IThreadFactory, ThreadFactory {
     private String m_methodName;
+    private ITestNGThreadFactory m_threadFactory;
     private List<Thread> m_threads = Lists.newArrayList();
 
     public ThreadFactoryImpl(String name) {
+      this(name, DEFAULT_THREAD_FACTORY);
+    }
+
+    public ThreadFactoryImpl(String name, ITestNGThreadFactory threadFactory) {
       m_methodName= name;
+      m_threadFactory = threadFactory;
     }
 
     @Override
     public Thread newThread(Runnable run) {
-      Thread result = new TestNGThread(run, m_methodName);
+      Thread result = m_threadFactory.newThread(run, "TestNGInvoker-" + m_methodName + "()");
       m_threads.add(result);
       return result;
     }
@@ -0,0 +1,183 @@
+package org.testng.internal.thread;
+
+import org.testng.ITestNGThreadFactory;
+import org.testng.internal.Utils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enforces the time out of methods. Each invocation runs on its own thread, and a single
+ * scheduled thread captures the stack trace of the invocations that are still running when their
+ * time out expires. Those invocations are interrupted and abandoned: the caller doesn't wait for
+ * them.
+ *
+ * The thread of an invocation is started by the caller, so that it inherits the
+ * InheritableThreadLocals of the caller at that time, and it is never reused, so that the
+ * ThreadLocals set by a method don't leak to the next one.
+ */
+public class TimeOutWatchdog {
+  private static final int RUNNING = 0;
+  private static final int FINISHED = 1;
+  private static final int EXPIRED = 2;
+
+  private final ITestNGThreadFactory m_threadFactory;
+  private final String m_name;
+  private final ScheduledThreadPoolExecutor m_executor;
+  private final AtomicInteger m_threadCount = new AtomicInteger();
+  private final AtomicLong m_invocationCount = new AtomicLong();
+  private final AtomicLong m_overheadNanos = new AtomicLong();
+
+  public TimeOutWatchdog(final ITestNGThreadFactory threadFactory, final String name) {
+    m_threadFactory = ThreadUtil.getThreadFactory(threadFactory);
+    m_name = name;
+    m_executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        return newDaemonThread(r, "TimeOutWatchdog-" + name);
+      }
+    });
+    m_executor.setRemoveOnCancelPolicy(true);
+  }
+
+  private Thread newDaemonThread(Runnable r, String name) {
+    Thread result = m_threadFactory.newThread(r, name);
+    if (!result.isDaemon()) {
+      result.setDaemon(true);
+    }
+    return result;
+  }
+
+  /**
+   * Run the task on a new thread, the caller must wait for its outcome with
+   * {@link Invocation#await()}.
+   */
+  public Invocation submit(Runnable task, long timeOut) {
+    long start = System.nanoTime();
+    Invocation result = new Invocation(task,
+        "TestNGInvoker-" + m_name + "-" + m_threadCount.getAndIncrement());
+    result.m_future = m_executor.schedule(result, timeOut, TimeUnit.MILLISECONDS);
+    m_overheadNanos.addAndGet(System.nanoTime() - start);
+    result.m_thread.start();
+    return result;
+  }
+
+  /**
+   * @return the number of invocations that were watched.
+   */
+  public long getInvocationCount() {
+    return m_invocationCount.get();
+  }
+
+  /**
+   * @return the number of threads that were started.
+   */
+  public int getThreadCount() {
+    return m_threadCount.get();
+  }
+
+  /**
+   * @return the average time spent scheduling and cancelling the time out of an invocation.
+   */
+  public long getAverageOverheadNanos() {
+    long count = m_invocationCount.get();
+    return count == 0 ? 0 : m_overheadNanos.get() / count;
+  }
+
+  public void shutdown() {
+    m_executor.shutdownNow();
+    if (getInvocationCount() > 0) {
+      Utils.log("TimeOutWatchdog", 2, "Watched " + getInvocationCount() + " invocations with an "
+          + "average overhead of " + TimeUnit.NANOSECONDS.toMicros(getAverageOverheadNanos())
+          + " microseconds");
+    }
+  }
+
+  public class Invocation implements Runnable {
+    private final Runnable m_task;
+    private final Thread m_thread;
+    private final AtomicInteger m_state = new AtomicInteger(RUNNING);
+    private final CountDownLatch m_done = new CountDownLatch(1);
+    private ScheduledFuture<?> m_future;
+    private Throwable m_failure;
+    private StackTraceElement[] m_stackTrace;
+
+    private Invocation(Runnable task, String threadName) {
+      m_task = task;
+      m_thread = newDaemonThread(new Runnable() {
+        @Override
+        public void run() {
+          execute();
+        }
+      }, threadName);
+    }
+
+    /**
+     * Called on the thread of the invocation.
+     */
+    private void execute() {
+      if (m_state.get() == RUNNING) {
+        try {
+          m_task.run();
+        } catch (Throwable t) {
+          m_failure = t;
+        }
+      }
+      if (m_state.compareAndSet(RUNNING, FINISHED)) {
+        long start = System.nanoTime();
+        m_future.cancel(false);
+        m_overheadNanos.addAndGet(System.nanoTime() - start);
+        m_invocationCount.incrementAndGet();
+        m_done.countDown();
+      }
+    }
+
+    /**
+     * Called by the watchdog when the time out expires, or by the caller when it stops waiting.
+     */
+    @Override
+    public void run() {
+      if (m_state.compareAndSet(RUNNING, EXPIRED)) {
+        m_stackTrace = m_thread.getStackTrace();
+        m_thread.interrupt();
+        m_invocationCount.incrementAndGet();
+        m_done.countDown();
+      }
+    }
+
+    /**
+     * Wait until the task finishes or its time out expires, whichever comes first.
+     * @return true if the invocation timed out
+     */
+    public boolean await() throws InterruptedException {
+      try {
+        m_done.await();
+      } catch (InterruptedException ex) {
+        m_future.cancel(false);
+        run();
+        throw ex;
+      }
+      return m_state.get() == EXPIRED;
+    }
+
+    /**
+     * @return the exception thrown by the task if it finished in time, null otherwise.
+     */
+    public Throwable getFailure() {
+      return m_state.get() == FINISHED ? m_failure : null;
+    }
+
+    /**
+     * @return the stack trace of the thread when the time out expired, null if it didn't. Only
+     * valid once {@link #await()} returned.
+     */
+    public StackTraceElement[] getStackTrace() {
+      return m_state.get() == EXPIRED ? m_stackTrace : null;
+    }
+  }
+}
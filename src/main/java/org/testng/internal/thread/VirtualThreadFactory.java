@@ -0,0 +1,67 @@
+package org.testng.internal.thread;
+
+import org.testng.ITestNGThreadFactory;
+import org.testng.TestNGException;
+import org.testng.internal.Utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Creates virtual threads on a JDK that supports them, and platform threads otherwise.
+ *
+ * The JDK API is looked up by reflection since TestNG is compiled for older JDKs. The
+ * builder gives the thread its name and lets it inherit the inheritable thread locals,
+ * just like a platform thread.
+ */
+public class VirtualThreadFactory implements ITestNGThreadFactory {
+  private static final long serialVersionUID = 1L;
+
+  private static final Method OF_VIRTUAL;
+  private static final Method NAME;
+  private static final Method UNSTARTED;
+
+  static {
+    Method ofVirtual = null;
+    Method name = null;
+    Method unstarted = null;
+    try {
+      Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      name = builder.getMethod("name", String.class);
+      unstarted = builder.getMethod("unstarted", Runnable.class);
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      Utils.log("VirtualThreadFactory", 2, "Virtual threads are not supported by this JDK");
+    }
+    OF_VIRTUAL = ofVirtual;
+    NAME = name;
+    UNSTARTED = unstarted;
+  }
+
+  private transient boolean m_warned;
+
+  /**
+   * @return true if the running JDK supports virtual threads.
+   */
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  @Override
+  public Thread newThread(Runnable target, String name) {
+    if (!isSupported()) {
+      if (!m_warned) {
+        m_warned = true;
+        Utils.log("VirtualThreadFactory", 1, "[WARN] Virtual threads are not supported by this "
+            + "JDK, using platform threads instead");
+      }
+      return new Thread(target, name);
+    }
+    try {
+      Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name);
+      return (Thread) UNSTARTED.invoke(builder, target);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new TestNGException("Couldn't create a virtual thread", e);
+    }
+  }
+}
@@ -0,0 +1,428 @@
+package org.testng.internal.thread.graph;
+
+import org.testng.TestNGException;
+import org.testng.collections.Lists;
+import org.testng.collections.Maps;
+import org.testng.internal.DynamicGraph;
+import org.testng.internal.DynamicGraph.Barrier;
+import org.testng.internal.DynamicGraph.Status;
+import org.testng.internal.Utils;
+
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An Executor that runs the tasks of a {@code DynamicGraph} on a work-stealing pool.
+ *
+ * The dependencies of the graph are copied into atomic counters when the executor is
+ * created. When a worker finishes, the thread that ran it releases the tasks depending
+ * on it and pushes their workers onto its own deque, where idle threads can steal them,
+ * so no lock is taken between two tasks. The graph itself is only updated when no worker
+ * is left running while some tasks are still blocked, in which case it is asked which of
+ * its lowest priority edges can be ignored.
+ */
+public class WorkStealingGraphExecutor<T> extends AbstractExecutorService {
+
+  private final DynamicGraph<T> m_graph;
+  private final IThreadWorkerFactory<T> m_factory;
+
+  // The nodes are keyed by identity, like in the graph
+  /** node -> the nodes depending on it. */
+  private final Map<T, List<T>> m_dependents = Maps.newIdentityHashMap();
+  /** barrier -> the nodes waiting for it. */
+  private final Map<Barrier<T>, List<T>> m_barrierDependents = Maps.newHashMap();
+  /** barrier -> the number of its members that haven't finished yet. */
+  private final Map<Barrier<T>, AtomicInteger> m_unfinishedMembers = Maps.newHashMap();
+  /** node -> the barriers it belongs to. */
+  private final Map<T, List<Barrier<T>>> m_barriers = Maps.newIdentityHashMap();
+  /** node -> the number of its dependencies and barriers that haven't finished yet. */
+  private final Map<T, AtomicInteger> m_unfinishedDependencies = Maps.newIdentityHashMap();
+  /** node -> the number of its occurrences that haven't been dispatched yet. */
+  private final Map<T, AtomicInteger> m_pendingOccurrences = Maps.newIdentityHashMap();
+  private final AtomicInteger m_pendingCount = new AtomicInteger();
+  private final AtomicInteger m_activeWorkers = new AtomicInteger();
+
+  /** node -> whether one of its occurrences has finished, filled once by the constructor. */
+  private final Map<T, AtomicBoolean> m_finished = Maps.newIdentityHashMap();
+  /** The tasks that finished since the graph was last updated. */
+  private final Queue<T> m_finishedSinceLastStall = new ConcurrentLinkedQueue<>();
+
+  private final List<PoolThread> m_threads = Lists.newArrayList();
+  private final ThreadLocal<PoolThread> m_currentThread = new ThreadLocal<>();
+  /** The tasks submitted from outside the pool once every thread has received its first one. */
+  private final Queue<Runnable> m_submissions = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger m_nextThread = new AtomicInteger();
+  private final AtomicInteger m_idleThreads = new AtomicInteger();
+  private final Object m_idleLock = new Object();
+  private final CountDownLatch m_terminated;
+  private volatile boolean m_shutdown;
+  private volatile boolean m_stopped;
+
+  public WorkStealingGraphExecutor(DynamicGraph<T> graph, IThreadWorkerFactory<T> factory,
+      int threadCount) {
+    this(graph, factory, threadCount, Executors.defaultThreadFactory());
+  }
+
+  public WorkStealingGraphExecutor(DynamicGraph<T> graph, IThreadWorkerFactory<T> factory,
+      int threadCount, ThreadFactory threadFactory) {
+    m_graph = graph;
+    m_factory = factory;
+
+    if (m_graph.getFreeNodes().isEmpty()) {
+      throw new TestNGException("The graph of methods contains a cycle:" + graph.getEdges());
+    }
+
+    for (T node : m_graph.getNodesWithStatus(Status.READY)) {
+      AtomicInteger pending = m_pendingOccurrences.get(node);
+      if (pending == null) {
+        pending = new AtomicInteger();
+        m_pendingOccurrences.put(node, pending);
+        m_finished.put(node, new AtomicBoolean());
+      }
+      pending.incrementAndGet();
+      m_pendingCount.incrementAndGet();
+    }
+    for (T node : m_pendingOccurrences.keySet()) {
+      Set<T> dependencies = m_graph.getDependencies(node);
+      List<Barrier<T>> barriers = m_graph.getBarriers(node);
+      m_unfinishedDependencies.put(node,
+          new AtomicInteger(dependencies.size() + barriers.size()));
+      for (T dependency : dependencies) {
+        List<T> dependents = m_dependents.get(dependency);
+        if (dependents == null) {
+          dependents = Lists.newArrayList();
+          m_dependents.put(dependency, dependents);
+        }
+        dependents.add(node);
+      }
+      for (Barrier<T> barrier : barriers) {
+        List<T> dependents = m_barrierDependents.get(barrier);
+        if (dependents == null) {
+          dependents = Lists.newArrayList();
+          m_barrierDependents.put(barrier, dependents);
+          addBarrier(barrier);
+        }
+        dependents.add(node);
+      }
+    }
+
+    m_terminated = new CountDownLatch(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      PoolThread poolThread = new PoolThread();
+      poolThread.m_thread = threadFactory.newThread(poolThread);
+      m_threads.add(poolThread);
+    }
+  }
+
+  private void addBarrier(Barrier<T> barrier) {
+    Set<T> members = m_graph.getUnfinishedMembers(barrier);
+    m_unfinishedMembers.put(barrier, new AtomicInteger(members.size()));
+    for (T member : members) {
+      List<Barrier<T>> barriers = m_barriers.get(member);
+      if (barriers == null) {
+        barriers = Lists.newArrayList();
+        m_barriers.put(member, barriers);
+      }
+      barriers.add(barrier);
+    }
+  }
+
+  /**
+   * Submit the workers of the free nodes and start the threads.
+   */
+  public void run() {
+    List<T> freeNodes = Lists.newArrayList();
+    synchronized(m_graph) {
+      for (T node : m_graph.getFreeNodes()) {
+        claim(node, freeNodes);
+      }
+    }
+    for (IWorker<T> worker : m_factory.createWorkers(freeNodes)) {
+      m_activeWorkers.incrementAndGet();
+      execute(new GraphTask(worker));
+    }
+    for (PoolThread poolThread : m_threads) {
+      poolThread.m_thread.start();
+    }
+  }
+
+  /**
+   * Take all the occurrences of a node that haven't been dispatched yet.
+   */
+  private void claim(T node, List<T> result) {
+    int count = m_pendingOccurrences.get(node).getAndSet(0);
+    if (count > 0) {
+      m_pendingCount.addAndGet(-count);
+      for (int i = 0; i < count; i++) {
+        result.add(node);
+      }
+    }
+  }
+
+  /**
+   * Called on the thread that ran the worker.
+   */
+  private void afterExecute(IWorker<T> worker) {
+    List<T> released = Lists.newArrayList();
+    for (T task : worker.getTasks()) {
+      m_finishedSinceLastStall.add(task);
+      if (m_finished.get(task).compareAndSet(false, true)) {
+        List<T> dependents = m_dependents.get(task);
+        if (dependents != null) {
+          release(dependents, released);
+        }
+        List<Barrier<T>> barriers = m_barriers.get(task);
+        if (barriers != null) {
+          for (Barrier<T> barrier : barriers) {
+            if (m_unfinishedMembers.get(barrier).decrementAndGet() == 0) {
+              release(m_barrierDependents.get(barrier), released);
+            }
+          }
+        }
+      }
+    }
+    runNodes(released);
+
+    if (m_activeWorkers.decrementAndGet() == 0) {
+      if (m_pendingCount.get() == 0) {
+        shutdown();
+      } else {
+        resolveStall();
+      }
+    }
+  }
+
+  private void release(List<T> dependents, List<T> released) {
+    for (T dependent : dependents) {
+      if (m_unfinishedDependencies.get(dependent).decrementAndGet() == 0) {
+        claim(dependent, released);
+      }
+    }
+  }
+
+  private void runNodes(List<T> nodes) {
+    if (nodes.isEmpty()) {
+      return;
+    }
+    for (IWorker<T> worker : m_factory.createWorkers(nodes)) {
+      m_activeWorkers.incrementAndGet();
+      execute(new GraphTask(worker));
+    }
+  }
+
+  /**
+   * Nothing is running but some tasks are still blocked: bring the graph up to date and
+   * let it decide which nodes can ignore their lowest priority edges.
+   */
+  private void resolveStall() {
+    List<T> released = Lists.newArrayList();
+    synchronized(m_graph) {
+      for (T task = m_finishedSinceLastStall.poll(); task != null;
+          task = m_finishedSinceLastStall.poll()) {
+        m_graph.setStatus(task, Status.FINISHED);
+      }
+      for (T node : m_graph.getFreeNodes()) {
+        claim(node, released);
+      }
+    }
+    if (released.isEmpty()) {
+      Utils.log("WorkStealingGraphExecutor", 1, "[WARN] No method can be released, the graph of "
+          + "methods contains a cycle:" + m_graph.getEdges());
+      shutdown();
+    } else {
+      runNodes(released);
+    }
+  }
+
+  /**
+   * Tasks submitted from one of our threads go to the end of its own deque. Like in a
+   * {@code ThreadPoolExecutor}, the first task submitted from outside goes to each thread
+   * and the following ones are queued for the first thread that becomes idle.
+   */
+  @Override
+  public void execute(Runnable command) {
+    if (m_shutdown) {
+      throw new RejectedExecutionException("Executor has been shut down");
+    }
+    PoolThread current = m_currentThread.get();
+    if (current != null) {
+      current.m_deque.addLast(command);
+    } else {
+      int next = m_nextThread.getAndIncrement();
+      if (next < m_threads.size()) {
+        m_threads.get(next).m_deque.addLast(command);
+      } else {
+        m_submissions.add(command);
+      }
+    }
+    signalIdleThreads();
+  }
+
+  private void signalIdleThreads() {
+    if (m_idleThreads.get() > 0) {
+      synchronized(m_idleLock) {
+        m_idleLock.notifyAll();
+      }
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    m_shutdown = true;
+    synchronized(m_idleLock) {
+      m_idleLock.notifyAll();
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    m_stopped = true;
+    shutdown();
+    List<Runnable> result = Lists.newArrayList();
+    for (Runnable r = m_submissions.poll(); r != null; r = m_submissions.poll()) {
+      result.add(r);
+    }
+    for (PoolThread poolThread : m_threads) {
+      for (Runnable r = poolThread.m_deque.pollFirst(); r != null; r = poolThread.m_deque.pollFirst()) {
+        result.add(r);
+      }
+      poolThread.m_thread.interrupt();
+    }
+    return result;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return m_shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return m_terminated.getCount() == 0;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return m_terminated.await(timeout, unit);
+  }
+
+  private class GraphTask implements Runnable {
+    private final IWorker<T> m_worker;
+
+    private GraphTask(IWorker<T> worker) {
+      m_worker = worker;
+    }
+
+    @Override
+    public void run() {
+      try {
+        m_worker.run();
+      } finally {
+        afterExecute(m_worker);
+      }
+    }
+  }
+
+  private class PoolThread implements Runnable {
+    private final Deque<Runnable> m_deque = new ConcurrentLinkedDeque<>();
+    /** Only the deques of busy threads are stolen from, an idle thread empties its own. */
+    private volatile boolean m_busy;
+    private Thread m_thread;
+
+    @Override
+    public void run() {
+      m_currentThread.set(this);
+      try {
+        for (Runnable task = nextTask(); task != null; task = nextTask()) {
+          try {
+            task.run();
+          } catch (Throwable t) {
+            // Keep the thread for the next tasks, the graph was already told the task finished
+            Utils.log("WorkStealingGraphExecutor", 1, "[WARN] A task failed: "
+                + Utils.longStackTrace(t, false));
+          } finally {
+            m_busy = false;
+            if (!m_stopped) {
+              // Don't let an interrupt from the task leak into the next one
+              Thread.interrupted();
+            }
+          }
+        }
+      } finally {
+        m_terminated.countDown();
+      }
+    }
+
+    private Runnable nextTask() {
+      while (!m_stopped) {
+        Runnable result = m_deque.pollFirst();
+        if (result == null) {
+          result = m_submissions.poll();
+        }
+        if (result == null) {
+          result = steal();
+        }
+        if (result != null) {
+          m_busy = true;
+          if (!m_deque.isEmpty()) {
+            signalIdleThreads();
+          }
+          return result;
+        }
+        if (m_shutdown) {
+          return null;
+        }
+        synchronized(m_idleLock) {
+          m_idleThreads.incrementAndGet();
+          try {
+            while (!m_shutdown && !hasWork()) {
+              m_idleLock.wait();
+            }
+          } catch (InterruptedException handled) {
+            // shutdownNow() sets m_stopped before interrupting
+          } finally {
+            m_idleThreads.decrementAndGet();
+          }
+        }
+      }
+      return null;
+    }
+
+    private Runnable steal() {
+      for (PoolThread victim : m_threads) {
+        if (victim != this && victim.m_busy) {
+          Runnable result = victim.m_deque.pollLast();
+          if (result != null) {
+            return result;
+          }
+        }
+      }
+      return null;
+    }
+
+    private boolean hasWork() {
+      if (!m_deque.isEmpty() || !m_submissions.isEmpty()) {
+        return true;
+      }
+      for (PoolThread other : m_threads) {
+        if (other != this && other.m_busy && !other.m_deque.isEmpty()) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
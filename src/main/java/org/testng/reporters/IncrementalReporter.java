@@ -0,0 +1,323 @@
+package org.testng.reporters;
+
+import org.testng.IClassListener;
+import org.testng.IReporter;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestClass;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.TestNGException;
+import org.testng.collections.ListMultiMap;
+import org.testng.collections.Lists;
+import org.testng.collections.Maps;
+import org.testng.internal.IResultListener2;
+import org.testng.internal.Utils;
+import org.testng.xml.XmlSuite;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A reporter that writes the results while the tests run instead of once all the suites
+ * have finished, so that the results of a run that is killed or times out are not lost and
+ * most of the reporting overlaps with the tests.
+ *
+ * It writes the files of {@link XMLReporter}, with the file fragmentation level
+ * <code>FF_LEVEL_SUITE_RESULT</code>, and of {@link JUnitReportReporter}:
+ * <ul>
+ * <li>the JUnit report of a class, once the class has run,</li>
+ * <li>the XML file of a test, once the test has finished,</li>
+ * <li>the XML file of a suite and the main testng-results.xml file, once a suite has
+ * finished. The main file references the suites that have finished so far and is written
+ * one last time at the end of the run.</li>
+ * </ul>
+ * The files are written by a background thread. When more than <code>queueSize</code>
+ * files are waiting to be written, the tests wait for the writer to catch up.
+ *
+ * Since it writes the same files, it is meant to be used instead of XMLReporter and
+ * JUnitReportReporter, e.g. with <code>-usedefaultlisteners false</code>.
+ */
+public class IncrementalReporter implements IResultListener2, IClassListener, ISuiteListener, IReporter {
+  private static final String JUNIT_REPORTS = "junitreports";
+
+  private final XMLReporter m_xmlReporter = new XMLReporter();
+  private final JUnitReportReporter m_junitReporter = new JUnitReportReporter();
+  private final ConcurrentMap<Class<?>, ClassResults> m_classResults = new ConcurrentHashMap<>();
+  private final List<ISuite> m_finishedSuites = Collections.synchronizedList(Lists.<ISuite>newArrayList());
+  private int m_queueSize = 1000;
+  private ThreadPoolExecutor m_writer;
+
+  public IncrementalReporter() {
+    m_xmlReporter.setFileFragmentationLevel(XMLReporterConfig.FF_LEVEL_SUITE_RESULT);
+    m_xmlReporter.setStreaming(true);
+  }
+
+  public String getOutputDirectory() {
+    return m_xmlReporter.getOutputDirectory();
+  }
+
+  public void setOutputDirectory(String outputDirectory) {
+    m_xmlReporter.setOutputDirectory(outputDirectory);
+  }
+
+  public int getQueueSize() {
+    return m_queueSize;
+  }
+
+  public void setQueueSize(int queueSize) {
+    m_queueSize = queueSize;
+  }
+
+  @Override
+  public void onStart(ISuite suite) {
+    if (Utils.isStringEmpty(getOutputDirectory())) {
+      setOutputDirectory(new File(suite.getOutputDirectory()).getParent());
+    }
+  }
+
+  @Override
+  public void onStart(ITestContext context) {
+  }
+
+  @Override
+  public void onTestStart(ITestResult result) {
+  }
+
+  @Override
+  public void onTestSuccess(ITestResult result) {
+    addResult(result);
+  }
+
+  @Override
+  public void onTestFailure(ITestResult result) {
+    addResult(result);
+  }
+
+  @Override
+  public void onTestSkipped(ITestResult result) {
+    addResult(result);
+  }
+
+  @Override
+  public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+    addResult(result);
+  }
+
+  @Override
+  public void beforeConfiguration(ITestResult result) {
+  }
+
+  @Override
+  public void onConfigurationSuccess(ITestResult result) {
+    ITestNGMethod method = result.getMethod();
+    if (method.isBeforeMethodConfiguration() || method.isAfterMethodConfiguration()) {
+      // Their time is added to the test methods in the JUnit reports
+      ClassResults results = getClassResults(result);
+      results.m_configurations.add(result);
+      results.m_changed.set(true);
+    }
+  }
+
+  @Override
+  public void onConfigurationFailure(ITestResult result) {
+    addResult(result);
+  }
+
+  @Override
+  public void onConfigurationSkip(ITestResult result) {
+  }
+
+  @Override
+  public void onBeforeClass(ITestClass testClass) {
+  }
+
+  @Override
+  public void onAfterClass(ITestClass testClass) {
+    ClassResults results = m_classResults.get(testClass.getRealClass());
+    if (results != null && results.m_changed.get()) {
+      writeClassReport(testClass.getRealClass(), results);
+    }
+  }
+
+  @Override
+  public void onFinish(final ITestContext context) {
+    // Some results, e.g. of @AfterClass methods, only come after their class has finished
+    for (Map.Entry<Class<?>, ClassResults> entry : m_classResults.entrySet()) {
+      if (entry.getValue().m_changed.get()) {
+        writeClassReport(entry.getKey(), entry.getValue());
+      }
+    }
+    write("test " + context.getName(), new Runnable() {
+      @Override
+      public void run() {
+        m_xmlReporter.writeTestFile(context);
+      }
+    });
+  }
+
+  @Override
+  public void onFinish(final ISuite suite) {
+    final List<ISuite> finishedSuites;
+    synchronized (m_finishedSuites) {
+      m_finishedSuites.add(suite);
+      finishedSuites = Lists.newArrayList(m_finishedSuites);
+    }
+    write("suite " + suite.getName(), new Runnable() {
+      @Override
+      public void run() {
+        m_xmlReporter.writeSuiteFile(suite);
+        m_xmlReporter.writeResultsFile(finishedSuites);
+      }
+    });
+    // Don't let the reporters that run at the end of the run find the files half written
+    waitForWriter();
+  }
+
+  @Override
+  public void generateReport(List<XmlSuite> xmlSuites, final List<ISuite> suites,
+      String outputDirectory) {
+    if (Utils.isStringEmpty(getOutputDirectory())) {
+      setOutputDirectory(outputDirectory);
+    }
+    write("results", new Runnable() {
+      @Override
+      public void run() {
+        m_xmlReporter.writeResultsFile(suites);
+      }
+    });
+    waitForWriter();
+    synchronized (this) {
+      m_writer.shutdown();
+      m_writer = null;
+    }
+    m_classResults.clear();
+    m_finishedSuites.clear();
+  }
+
+  private void addResult(ITestResult result) {
+    ClassResults results = getClassResults(result);
+    results.m_results.add(result);
+    results.m_changed.set(true);
+  }
+
+  private ClassResults getClassResults(ITestResult result) {
+    Class<?> cls = result.getTestClass().getRealClass();
+    ClassResults results = m_classResults.get(cls);
+    if (results == null) {
+      results = new ClassResults();
+      ClassResults previous = m_classResults.putIfAbsent(cls, results);
+      if (previous != null) {
+        results = previous;
+      }
+    }
+    return results;
+  }
+
+  private void writeClassReport(final Class<?> cls, final ClassResults results) {
+    write("class " + cls.getName(), new Runnable() {
+      @Override
+      public void run() {
+        if (!results.m_changed.getAndSet(false)) {
+          // Already written by a previous event
+          return;
+        }
+        ListMultiMap<Object, ITestResult> befores = Maps.newListMultiMap();
+        ListMultiMap<Object, ITestResult> afters = Maps.newListMultiMap();
+        for (ITestResult tr : results.m_configurations) {
+          if (tr.getMethod().isBeforeMethodConfiguration()) {
+            befores.put(tr.getInstance(), tr);
+          }
+          if (tr.getMethod().isAfterMethodConfiguration()) {
+            afters.put(tr.getInstance(), tr);
+          }
+        }
+        m_junitReporter.writeClassReport(getOutputDirectory() + File.separator + JUNIT_REPORTS, cls,
+            Lists.newArrayList(results.m_results), befores, afters);
+      }
+    });
+  }
+
+  private void write(final String name, final Runnable task) {
+    getWriter().execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          task.run();
+        } catch (RuntimeException ex) {
+          System.err.println("[IncrementalReporter] Couldn't write the report of the " + name);
+          ex.printStackTrace(System.err);
+        }
+      }
+    });
+  }
+
+  private void waitForWriter() {
+    try {
+      getWriter().submit(new Runnable() {
+        @Override
+        public void run() {
+        }
+      }).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new TestNGException(e.getCause());
+    }
+  }
+
+  private synchronized ThreadPoolExecutor getWriter() {
+    if (m_writer == null) {
+      m_writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<Runnable>(m_queueSize),
+          new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+              Thread result = new Thread(r, "TestNG-IncrementalReporter");
+              // Don't keep the JVM alive if the run ends without generating the reports
+              result.setDaemon(true);
+              return result;
+            }
+          },
+          new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+              if (executor.isShutdown()) {
+                throw new RejectedExecutionException("The reports were already generated");
+              }
+              // Wait for the writer to catch up rather than dropping or reordering the files
+              try {
+                executor.getQueue().put(r);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+          });
+    }
+    return m_writer;
+  }
+
+  private static class ClassResults {
+    final Set<ITestResult> m_results =
+        Collections.newSetFromMap(new ConcurrentHashMap<ITestResult, Boolean>());
+    final Queue<ITestResult> m_configurations = new ConcurrentLinkedQueue<>();
+    /** Whether results were added since the report of the class was last written */
+    final AtomicBoolean m_changed = new AtomicBoolean();
+  }
+}
@@ -21,6 +21,7 @@ import java.net.UnknownHostException;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -80,109 +81,120 @@ public class JUnitReportReporter implements IReporter {
 //      afters.put(es.getKey(), es.getValue().iterator());
 //    }
 
+    String outputDirectory = defaultOutputDirectory + File.separator + "junitreports";
     for (Map.Entry<Class<?>, Set<ITestResult>> entry : results.entrySet()) {
-      Class<?> cls = entry.getKey();
-      Properties p1 = new Properties();
-      p1.setProperty("name", cls.getName());
-      Date timeStamp = Calendar.getInstance().getTime();
-      p1.setProperty(XMLConstants.ATTR_TIMESTAMP, timeStamp.toGMTString());
-
-      List<TestTag> testCases = Lists.newArrayList();
-      int failures = 0;
-      int errors = 0;
-      int skipped= 0;
-      int testCount = 0;
-      float totalTime = 0;
-
-      for (ITestResult tr: entry.getValue()) {
-        TestTag testTag = new TestTag();
-
-        Properties p2 = new Properties();
-        p2.setProperty("classname", cls.getName());
-        p2.setProperty("name", getTestName(tr));
-        long time = tr.getEndMillis() - tr.getStartMillis();
-
-        time += getNextConfiguration(befores, tr);
-        time += getNextConfiguration(afters, tr);
-
-        p2.setProperty("time", "" + formatTime(time));
-        Throwable t = tr.getThrowable();
-        switch (tr.getStatus()) {
-          case ITestResult.SUCCESS:
-            break;
-
-          case ITestResult.SKIP:
-          case ITestResult.SUCCESS_PERCENTAGE_FAILURE:
-            skipped++;
-            testTag.childTag = "skipped";
-            break;
-
-          case ITestResult.FAILURE:
-            if (t instanceof AssertionError) {
-              failures++;
-              testTag.childTag = "failure";
-            } else {
-              errors++;
-              testTag.childTag = "error";
-            }
-            if (t != null) {
-          StringWriter sw = new StringWriter();
-          PrintWriter pw = new PrintWriter(sw);
-          t.printStackTrace(pw);
-          testTag.message = t.getMessage();
-          testTag.type = t.getClass().getName();
-          testTag.stackTrace = sw.toString();
-        }
-            break;
-        }
+      writeClassReport(outputDirectory, entry.getKey(), entry.getValue(), befores, afters);
+    }
 
-        totalTime += time;
-        testCount++;
-        testTag.properties = p2;
-        testCases.add(testTag);
-      }
+//    System.out.println(xsb.toXML());
+//    System.out.println("");
 
-      p1.setProperty("failures", "" + failures);
-      p1.setProperty("errors", "" + errors);
-      p1.setProperty("skipped", "" + skipped);
-      p1.setProperty("name", cls.getName());
-      p1.setProperty("tests", "" + testCount);
-      p1.setProperty("time", "" + formatTime(totalTime));
-      try {
-        p1.setProperty(XMLConstants.ATTR_HOSTNAME, InetAddress.getLocalHost().getHostName());
-      } catch (UnknownHostException e) {
-        // ignore
-      }
+  }
 
-      //
-      // Now that we have all the information we need, generate the file
-      //
-      XMLStringBuffer xsb = new XMLStringBuffer();
-      xsb.addComment("Generated by " + getClass().getName());
-
-      xsb.push("testsuite", p1);
-      for (TestTag testTag : testCases) {
-        if (putElement(xsb, "testcase", testTag.properties, testTag.childTag != null)) {
-          Properties p = new Properties();
-          safeSetProperty(p, "message", testTag.message);
-          safeSetProperty(p, "type", testTag.type);
-
-          if (putElement(xsb, testTag.childTag, p, testTag.stackTrace != null)) {
-            xsb.addCDATA(testTag.stackTrace);
-            xsb.pop(testTag.childTag);
+  /**
+   * Write the report of a test class.
+   *
+   * @param befores the passed @BeforeMethod results, by instance. The ones whose time is added
+   * to a test method are removed.
+   * @param afters the passed @AfterMethod results, by instance, like befores
+   */
+  void writeClassReport(String outputDirectory, Class<?> cls, Collection<ITestResult> results,
+      ListMultiMap<Object, ITestResult> befores, ListMultiMap<Object, ITestResult> afters) {
+    Properties p1 = new Properties();
+    p1.setProperty("name", cls.getName());
+    Date timeStamp = Calendar.getInstance().getTime();
+    p1.setProperty(XMLConstants.ATTR_TIMESTAMP, timeStamp.toGMTString());
+
+    List<TestTag> testCases = Lists.newArrayList();
+    int failures = 0;
+    int errors = 0;
+    int skipped= 0;
+    int testCount = 0;
+    float totalTime = 0;
+
+    for (ITestResult tr: results) {
+      TestTag testTag = new TestTag();
+
+      Properties p2 = new Properties();
+      p2.setProperty("classname", cls.getName());
+      p2.setProperty("name", getTestName(tr));
+      long time = tr.getEndMillis() - tr.getStartMillis();
+
+      time += getNextConfiguration(befores, tr);
+      time += getNextConfiguration(afters, tr);
+
+      p2.setProperty("time", "" + formatTime(time));
+      Throwable t = tr.getThrowable();
+      switch (tr.getStatus()) {
+        case ITestResult.SUCCESS:
+          break;
+
+        case ITestResult.SKIP:
+        case ITestResult.SUCCESS_PERCENTAGE_FAILURE:
+          skipped++;
+          testTag.childTag = "skipped";
+          break;
+
+        case ITestResult.FAILURE:
+          if (t instanceof AssertionError) {
+            failures++;
+            testTag.childTag = "failure";
+          } else {
+            errors++;
+            testTag.childTag = "error";
           }
-          xsb.pop("testcase");
-        }
+          if (t != null) {
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        t.printStackTrace(pw);
+        testTag.message = t.getMessage();
+        testTag.type = t.getClass().getName();
+        testTag.stackTrace = sw.toString();
+      }
+          break;
       }
-      xsb.pop("testsuite");
 
-      String outputDirectory = defaultOutputDirectory + File.separator + "junitreports";
-      Utils.writeUtf8File(outputDirectory, getFileName(cls), xsb.toXML());
+      totalTime += time;
+      testCount++;
+      testTag.properties = p2;
+      testCases.add(testTag);
     }
 
-//    System.out.println(xsb.toXML());
-//    System.out.println("");
+    p1.setProperty("failures", "" + failures);
+    p1.setProperty("errors", "" + errors);
+    p1.setProperty("skipped", "" + skipped);
+    p1.setProperty("name", cls.getName());
+    p1.setProperty("tests", "" + testCount);
+    p1.setProperty("time", "" + formatTime(totalTime));
+    try {
+      p1.setProperty(XMLConstants.ATTR_HOSTNAME, InetAddress.getLocalHost().getHostName());
+    } catch (UnknownHostException e) {
+      // ignore
+    }
+
+    //
+    // Now that we have all the information we need, generate the file
+    //
+    XMLStringBuffer xsb = new XMLStringBuffer();
+    xsb.addComment("Generated by " + getClass().getName());
+
+    xsb.push("testsuite", p1);
+    for (TestTag testTag : testCases) {
+      if (putElement(xsb, "testcase", testTag.properties, testTag.childTag != null)) {
+        Properties p = new Properties();
+        safeSetProperty(p, "message", testTag.message);
+        safeSetProperty(p, "type", testTag.type);
+
+        if (putElement(xsb, testTag.childTag, p, testTag.stackTrace != null)) {
+          xsb.addCDATA(testTag.stackTrace);
+          xsb.pop(testTag.childTag);
+        }
+        xsb.pop("testcase");
+      }
+    }
+    xsb.pop("testsuite");
 
+    Utils.writeUtf8File(outputDirectory, getFileName(cls), xsb.toXML());
   }
 
   /** Put a XML start or empty tag to the XMLStringBuffer depending on hasChildElements parameter */
@@ -0,0 +1,252 @@
+package org.testng.reporters;
+
+import org.testng.TestNGException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A string buffer that, like {@link FileStringBuffer}, keeps its content in memory until it
+ * becomes larger than a given number of characters and then moves it to a temporary file.
+ *
+ * The temporary file is written through a single {@link FileChannel} that stays open while
+ * the content is appended, the characters being encoded in UTF-8 into reused buffers. These
+ * are heap buffers because the encoder is several times slower when either side is not backed
+ * by an array. The file is read back through memory mapped buffers, and
+ * {@link #toChannel(WritableByteChannel)} copies it to its destination without going through
+ * the heap at all, which is what {@link org.testng.internal.Utils#writeUtf8File(String, String,
+ * XMLStringBuffer, String)} uses.
+ *
+ * The channel is closed once the content was written out and opened again if more content is
+ * appended afterwards. {@link #close()} deletes the temporary file, so this buffer is meant for
+ * the callers that close it once they are done, e.g. with a try-with-resources statement, and
+ * {@link Buffer#create()} still returns a {@link FileStringBuffer}.
+ *
+ * This class is not multi thread safe.
+ */
+public class NioFileStringBuffer implements IBuffer, Closeable {
+  private static final int MAX = 100000;
+  private static final int BYTE_BUFFER_SIZE = 64 * 1024;
+  /** The size of the regions of the temporary file that are mapped at once */
+  private static final long MAP_SIZE = 64L * 1024 * 1024;
+
+  private final int m_maxCharacters;
+  private final StringBuilder m_sb = new StringBuilder();
+  private final CharsetEncoder m_encoder = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+  private File m_file;
+  private FileChannel m_channel;
+  private ByteBuffer m_bytes;
+  private CharBuffer m_chars;
+
+  public NioFileStringBuffer() {
+    this(MAX);
+  }
+
+  public NioFileStringBuffer(int maxCharacters) {
+    m_maxCharacters = maxCharacters;
+  }
+
+  @Override
+  public NioFileStringBuffer append(CharSequence s) {
+    if (s == null) {
+      throw new IllegalArgumentException("CharSequence (Argument 0 of NioFileStringBuffer#append) should not be null");
+    }
+    try {
+      if (m_sb.length() + s.length() <= m_maxCharacters) {
+        m_sb.append(s);
+      } else if (s.length() <= m_maxCharacters) {
+        flushToFile();
+        m_sb.append(s);
+      } else {
+        // Big string, move it to the temporary file in chunks rather than copying it whole
+        int chunkSize = Math.max(m_maxCharacters, 1);
+        for (int start = 0; start < s.length(); start += chunkSize) {
+          flushToFile();
+          m_sb.append(s, start, Math.min(s.length(), start + chunkSize));
+        }
+      }
+    } catch (IOException e) {
+      throw new TestNGException("Couldn't write to " + m_file, e);
+    }
+    return this;
+  }
+
+  @Override
+  public void toWriter(Writer fw) {
+    if (fw == null) {
+      throw new IllegalArgumentException("Writer (Argument 0 of NioFileStringBuffer#toWriter) should not be null");
+    }
+    try {
+      if (m_file != null) {
+        flushToFile();
+        copyFileTo(fw);
+        closeChannel();
+      }
+      fw.append(m_sb);
+      fw.flush();
+    } catch (IOException e) {
+      throw new TestNGException("Couldn't copy " + m_file, e);
+    }
+  }
+
+  /**
+   * Write the content of this buffer encoded in UTF-8 to a channel, e.g. the one of a
+   * {@link java.io.FileOutputStream}. The temporary file, if any, is transferred without
+   * being decoded.
+   */
+  public void toChannel(WritableByteChannel target) {
+    if (target == null) {
+      throw new IllegalArgumentException("WritableByteChannel (Argument 0 of NioFileStringBuffer#toChannel) should not be null");
+    }
+    try {
+      if (m_file != null) {
+        flushToFile();
+        FileChannel channel = getChannel();
+        long size = channel.size();
+        long position = 0;
+        while (position < size) {
+          position += channel.transferTo(position, size - position, target);
+        }
+        closeChannel();
+      }
+      if (m_sb.length() > 0) {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(m_sb));
+        while (bytes.hasRemaining()) {
+          target.write(bytes);
+        }
+      }
+    } catch (IOException e) {
+      throw new TestNGException("Couldn't copy " + m_file, e);
+    }
+  }
+
+  /**
+   * Closes the channel to the temporary file and deletes it. The buffer must not be used
+   * afterwards.
+   */
+  @Override
+  public void close() throws IOException {
+    closeChannel();
+    if (m_file != null) {
+      m_file.delete();
+      m_file = null;
+    }
+    m_sb.setLength(0);
+  }
+
+  /**
+   * Encode the characters of the internal buffer to the temporary file. A high surrogate at
+   * the end of the buffer stays there until the character that follows it is appended.
+   */
+  private void flushToFile() throws IOException {
+    if (m_sb.length() == 0) {
+      return;
+    }
+    FileChannel channel = getChannel();
+    if (m_bytes == null) {
+      m_bytes = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+      m_chars = CharBuffer.allocate(BYTE_BUFFER_SIZE / 4);
+    }
+    int start = 0;
+    while (true) {
+      // Encoding from an array is much faster than from the StringBuilder
+      int length = Math.min(m_chars.remaining(), m_sb.length() - start);
+      m_sb.getChars(start, start + length, m_chars.array(), m_chars.position());
+      m_chars.position(m_chars.position() + length);
+      start += length;
+      m_chars.flip();
+      CoderResult result = m_encoder.encode(m_chars, m_bytes, false /* more input may follow */);
+      m_chars.compact();
+      if (result.isOverflow()) {
+        writeBytes(channel);
+      } else if (start == m_sb.length()) {
+        break;
+      }
+    }
+    writeBytes(channel);
+    m_sb.setLength(0);
+    m_chars.flip();
+    m_sb.append(m_chars);
+    m_chars.clear();
+  }
+
+  private void writeBytes(FileChannel channel) throws IOException {
+    m_bytes.flip();
+    while (m_bytes.hasRemaining()) {
+      channel.write(m_bytes);
+    }
+    m_bytes.clear();
+  }
+
+  private void copyFileTo(Writer writer) throws IOException {
+    FileChannel channel = getChannel();
+    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    CharBuffer chars = CharBuffer.allocate(BYTE_BUFFER_SIZE);
+    long size = channel.size();
+    long position = 0;
+    while (position < size) {
+      long length = Math.min(MAP_SIZE, size - position);
+      boolean last = position + length == size;
+      MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      while (true) {
+        CoderResult result = decoder.decode(bytes, chars, last);
+        chars.flip();
+        writer.write(chars.array(), 0, chars.limit());
+        chars.clear();
+        if (result.isUnderflow()) {
+          break;
+        }
+      }
+      // The bytes of a character cut at the end of the region are mapped again with the next one
+      position += bytes.position();
+    }
+  }
+
+  private FileChannel getChannel() throws IOException {
+    if (m_file == null) {
+      m_file = File.createTempFile("testng", "fileStringBuffer");
+      m_file.deleteOnExit();
+    }
+    if (m_channel == null) {
+      m_channel = FileChannel.open(m_file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+      m_channel.position(m_channel.size());
+    }
+    return m_channel;
+  }
+
+  private void closeChannel() throws IOException {
+    if (m_channel != null) {
+      m_channel.close();
+      m_channel = null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (m_file == null) {
+      return m_sb.toString();
+    }
+    StringWriter result = new StringWriter();
+    toWriter(result);
+    return result.toString();
+  }
+}
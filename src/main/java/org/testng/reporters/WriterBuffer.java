@@ -0,0 +1,96 @@
+package org.testng.reporters;
+
+import org.testng.TestNGException;
+import org.testng.internal.Utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A buffer that writes everything appended to it straight to a {@link Writer}, so that
+ * a document generated with an {@link XMLStringBuffer} is never held in memory.
+ *
+ * When sanitizing, the characters that are not allowed in XML are dropped and the
+ * undefined ones are replaced with {@link Utils#UNICODE_REPLACEMENT}, which gives the
+ * same content as {@link XMLStringBuffer#toXML()} written with
+ * {@link Utils#writeUtf8File(String, String, String)}.
+ *
+ * This class is not multi thread safe.
+ */
+public class WriterBuffer implements IBuffer, Closeable {
+  private final Writer m_writer;
+  private final boolean m_sanitize;
+
+  /** A high surrogate waiting for the next append to know if it starts a valid pair */
+  private char m_pendingHighSurrogate;
+
+  public WriterBuffer(Writer writer, boolean sanitize) {
+    m_writer = writer;
+    m_sanitize = sanitize;
+  }
+
+  @Override
+  public WriterBuffer append(CharSequence s) {
+    if (s == null) {
+      throw new IllegalArgumentException("CharSequence (Argument 0 of WriterBuffer#append) should not be null");
+    }
+    try {
+      if (m_sanitize) {
+        appendSanitized(s);
+      } else {
+        m_writer.append(s);
+      }
+    } catch (IOException e) {
+      throw new TestNGException("Couldn't write the XML document", e);
+    }
+    return this;
+  }
+
+  private void appendSanitized(CharSequence s) throws IOException {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (m_pendingHighSurrogate != 0) {
+        char high = m_pendingHighSurrogate;
+        m_pendingHighSurrogate = 0;
+        if (Character.isLowSurrogate(c)) {
+          m_writer.write(high);
+          m_writer.write(c);
+          continue;
+        }
+        // An unpaired high surrogate is dropped
+      }
+      if (Character.isHighSurrogate(c)) {
+        m_pendingHighSurrogate = c;
+      } else if (isValidXmlCharacter(c)) {
+        m_writer.write(Character.isDefined(c) ? c : Utils.UNICODE_REPLACEMENT);
+      }
+    }
+  }
+
+  /**
+   * @return true if the character is allowed in XML on its own, surrogates excluded.
+   */
+  private static boolean isValidXmlCharacter(char c) {
+    return c == '\u0009' || c == '\n' || c == '\r'
+        || (c >= ' ' && c < Character.MIN_SURROGATE)
+        || (c >= '\uE000' && c <= '\uFFFD');
+  }
+
+  /**
+   * The content was already written to the writer, so this only flushes it.
+   */
+  @Override
+  public void toWriter(Writer fw) {
+    try {
+      m_writer.flush();
+    } catch (IOException e) {
+      throw new TestNGException("Couldn't write the XML document", e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    m_writer.close();
+  }
+}
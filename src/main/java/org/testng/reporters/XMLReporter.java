@@ -1,15 +1,17 @@
 package org.testng.reporters;
 
-import org.testng.IReporter;
+import org.testng.IShardedReporter;
 import org.testng.ISuite;
 import org.testng.ISuiteResult;
 import org.testng.ITestContext;
 import org.testng.ITestNGMethod;
 import org.testng.Reporter;
+import org.testng.collections.Lists;
 import org.testng.internal.Utils;
 import org.testng.xml.XmlSuite;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Date;
@@ -25,7 +27,7 @@ import java.util.TimeZone;
  * 
  * @author Cosmin Marginean, Mar 16, 2007
  */
-public class XMLReporter implements IReporter {
+public class XMLReporter implements IShardedReporter {
   public static final String FILE_NAME = "testng-results.xml";
 
   private final XMLReporterConfig config = new XMLReporterConfig();
@@ -34,10 +36,77 @@ public class XMLReporter implements IReporter {
   @Override
   public void generateReport(List<XmlSuite> xmlSuites, List<ISuite> suites,
       String outputDirectory) {
+    for (Runnable shard : createShards(xmlSuites, suites, outputDirectory)) {
+      shard.run();
+    }
+    finishReport(xmlSuites, suites, outputDirectory);
+  }
+
+  /**
+   * With a file fragmentation level other than <code>FF_LEVEL_NONE</code>, the file of each
+   * suite is written separately and, with <code>FF_LEVEL_SUITE_RESULT</code>, the file of
+   * each test too.
+   */
+  @Override
+  public List<Runnable> createShards(List<XmlSuite> xmlSuites, List<ISuite> suites,
+      String outputDirectory) {
     if (Utils.isStringEmpty(config.getOutputDirectory())) {
       config.setOutputDirectory(outputDirectory);
     }
+    List<Runnable> result = Lists.newArrayList();
+    switch (config.getFileFragmentationLevel()) {
+    case XMLReporterConfig.FF_LEVEL_NONE:
+      break;
+    case XMLReporterConfig.FF_LEVEL_SUITE:
+      for (final ISuite suite : suites) {
+        result.add(new Runnable() {
+          @Override
+          public void run() {
+            writeSuiteToFile(getSuiteFile(suite), suite, true /* write the tests */);
+          }
+        });
+      }
+      break;
+    case XMLReporterConfig.FF_LEVEL_SUITE_RESULT:
+      for (final ISuite suite : suites) {
+        result.add(new Runnable() {
+          @Override
+          public void run() {
+            writeSuiteFile(suite);
+          }
+        });
+        for (final ISuiteResult suiteResult : suite.getResults().values()) {
+          result.add(new Runnable() {
+            @Override
+            public void run() {
+              writeTestFile(suiteResult.getTestContext());
+            }
+          });
+        }
+      }
+      break;
+    default:
+      throw new AssertionError("Unexpected value: " + config.getFileFragmentationLevel());
+    }
+    return result;
+  }
 
+  /**
+   * Writes the main file, which references the files written by the shards.
+   */
+  @Override
+  public void finishReport(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory) {
+    if (Utils.isStringEmpty(config.getOutputDirectory())) {
+      config.setOutputDirectory(outputDirectory);
+    }
+    writeResultsFile(suites);
+  }
+
+  /**
+   * Writes the main file. Unless the file fragmentation level is <code>FF_LEVEL_NONE</code>,
+   * the suites are only referenced and must be written separately.
+   */
+  void writeResultsFile(List<ISuite> suites) {
     // Calculate passed/failed/skipped
     int passed = 0;
     int failed = 0;
@@ -54,19 +123,53 @@ public class XMLReporter implements IReporter {
       }
     }
 
-    rootBuffer = new XMLStringBuffer();
     Properties p = new Properties();
     p.put("passed", passed);
     p.put("failed", failed);
     p.put("skipped", skipped);
     p.put("total", passed + failed + skipped);
-    rootBuffer.push(XMLReporterConfig.TAG_TESTNG_RESULTS, p);
+    if (config.isStreaming()) {
+      try (WriterBuffer buffer = new WriterBuffer(
+          Utils.openUtf8Writer(config.getOutputDirectory(), FILE_NAME), false /* don't sanitize */)) {
+        rootBuffer = new XMLStringBuffer(buffer, "1.0", "UTF-8");
+        writeResults(p, suites);
+      } catch (IOException ex) {
+        ex.printStackTrace();
+      }
+    } else {
+      // The temporary file of the buffer is deleted as soon as the report is written
+      try (NioFileStringBuffer buffer = new NioFileStringBuffer()) {
+        rootBuffer = new XMLStringBuffer(buffer, "1.0", "UTF-8");
+        writeResults(p, suites);
+        Utils.writeUtf8File(config.getOutputDirectory(), FILE_NAME, rootBuffer, null /* no prefix */);
+      } catch (IOException ex) {
+        ex.printStackTrace();
+      }
+    }
+  }
+
+  private void writeResults(Properties attributes, List<ISuite> suites) {
+    rootBuffer.push(XMLReporterConfig.TAG_TESTNG_RESULTS, attributes);
     writeReporterOutput(rootBuffer);
     for (ISuite suite : suites) {
       writeSuite(suite.getXmlSuite(), suite);
     }
     rootBuffer.pop();
-    Utils.writeUtf8File(config.getOutputDirectory(), FILE_NAME, rootBuffer, null /* no prefix */);
+  }
+
+  /**
+   * Writes the file of a suite, only referencing its tests, which must have been written
+   * with {@link #writeTestFile(ITestContext)}. Used with <code>FF_LEVEL_SUITE_RESULT</code>.
+   */
+  void writeSuiteFile(ISuite suite) {
+    writeSuiteToFile(getSuiteFile(suite), suite, false /* reference the tests */);
+  }
+
+  /**
+   * Writes the file of a test, as referenced with <code>FF_LEVEL_SUITE_RESULT</code>.
+   */
+  void writeTestFile(ITestContext testContext) {
+    new XMLSuiteResultWriter(config).writeSuiteResultFile(testContext);
   }
 
   private void writeReporterOutput(XMLStringBuffer xmlBuffer) {
@@ -86,21 +189,33 @@ public class XMLReporter implements IReporter {
   private void writeSuite(XmlSuite xmlSuite, ISuite suite) {
     switch (config.getFileFragmentationLevel()) {
     case XMLReporterConfig.FF_LEVEL_NONE:
-      writeSuiteToBuffer(rootBuffer, suite);
+      writeSuiteToBuffer(rootBuffer, suite, true /* write the tests */);
       break;
     case XMLReporterConfig.FF_LEVEL_SUITE:
     case XMLReporterConfig.FF_LEVEL_SUITE_RESULT:
-      File suiteFile = referenceSuite(rootBuffer, suite);
-      writeSuiteToFile(suiteFile, suite);
+      referenceSuite(rootBuffer, suite);
       break;
     default:
       throw new AssertionError("Unexpected value: " + config.getFileFragmentationLevel());
     }
   }
 
-  private void writeSuiteToFile(File suiteFile, ISuite suite) {
+  private void writeSuiteToFile(File suiteFile, ISuite suite, boolean writeTests) {
+    if (config.isStreaming()) {
+      File parentDir = suiteFile.getParentFile();
+      parentDir.mkdirs();
+      if (parentDir.exists()) {
+        try (WriterBuffer buffer = new WriterBuffer(
+            Utils.openUtf8Writer(parentDir.getAbsolutePath(), FILE_NAME), true /* sanitize */)) {
+          writeSuiteToBuffer(new XMLStringBuffer(buffer, "1.0", "UTF-8"), suite, writeTests);
+        } catch (IOException ex) {
+          ex.printStackTrace();
+        }
+      }
+      return;
+    }
     XMLStringBuffer xmlBuffer = new XMLStringBuffer();
-    writeSuiteToBuffer(xmlBuffer, suite);
+    writeSuiteToBuffer(xmlBuffer, suite, writeTests);
     File parentDir = suiteFile.getParentFile();
     suiteFile.getParentFile().mkdirs();
     if (parentDir.exists() || suiteFile.getParentFile().exists()) {
@@ -108,23 +223,28 @@ public class XMLReporter implements IReporter {
     }
   }
 
-  private File referenceSuite(XMLStringBuffer xmlBuffer, ISuite suite) {
-    String relativePath = suite.getName() + File.separatorChar + FILE_NAME;
-    File suiteFile = new File(config.getOutputDirectory(), relativePath);
+  private void referenceSuite(XMLStringBuffer xmlBuffer, ISuite suite) {
     Properties attrs = new Properties();
-    attrs.setProperty(XMLReporterConfig.ATTR_URL, relativePath);
+    attrs.setProperty(XMLReporterConfig.ATTR_URL, suite.getName() + File.separatorChar + FILE_NAME);
     xmlBuffer.addEmptyElement(XMLReporterConfig.TAG_SUITE, attrs);
-    return suiteFile;
   }
 
-  private void writeSuiteToBuffer(XMLStringBuffer xmlBuffer, ISuite suite) {
+  private File getSuiteFile(ISuite suite) {
+    return new File(config.getOutputDirectory(), suite.getName() + File.separatorChar + FILE_NAME);
+  }
+
+  private void writeSuiteToBuffer(XMLStringBuffer xmlBuffer, ISuite suite, boolean writeTests) {
     xmlBuffer.push(XMLReporterConfig.TAG_SUITE, getSuiteAttributes(suite));
     writeSuiteGroups(xmlBuffer, suite);
 
     Map<String, ISuiteResult> results = suite.getResults();
     XMLSuiteResultWriter suiteResultWriter = new XMLSuiteResultWriter(config);
     for (Map.Entry<String, ISuiteResult> result : results.entrySet()) {
-      suiteResultWriter.writeSuiteResult(xmlBuffer, result.getValue());
+      if (writeTests) {
+        suiteResultWriter.writeSuiteResult(xmlBuffer, result.getValue());
+      } else {
+        suiteResultWriter.referenceSuiteResult(xmlBuffer, result.getValue().getTestContext());
+      }
     }
 
     xmlBuffer.pop();
@@ -278,4 +398,12 @@ public class XMLReporter implements IReporter {
     return config.isGenerateTestResultAttributes();
   }
 
+  public void setStreaming(boolean streaming) {
+    config.setStreaming(streaming);
+  }
+
+  public boolean isStreaming() {
+    return config.isStreaming();
+  }
+
 }
@@ -142,6 +142,12 @@ public class XMLReporterConfig {
    */
   private boolean generateTestResultAttributes = false;
 
+  /**
+   * When <code>true</code> the XML files are written while they are generated
+   * instead of being built in memory first. Recommended for large test suites.
+   */
+  private boolean streaming = false;
+
   /**
    * The output format for timestamps
    */
@@ -240,6 +246,14 @@ public class XMLReporterConfig {
     return generateTestResultAttributes;
   }
 
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  public void setStreaming(boolean streaming) {
+    this.streaming = streaming;
+  }
+
   public enum StackTraceLevels {
     /**
      * No stacktrace will be written in the output file
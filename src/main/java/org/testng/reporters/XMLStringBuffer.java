@@ -52,6 +52,15 @@ public class XMLStringBuffer {
     init(buffer, start);
   }
 
+  /**
+   * @param buffer The buffer to generate the document in, which must be empty.
+   * @param version the XML version of the <?xml prologue
+   * @param encoding the XML encoding of the <?xml prologue
+   */
+  public XMLStringBuffer(IBuffer buffer, String version, String encoding) {
+    init(buffer, "", version, encoding);
+  }
+
   private void init(IBuffer buffer, String start) {
     init(buffer, start, null, null);
   }
@@ -65,7 +74,7 @@ public class XMLStringBuffer {
     m_buffer = buffer;
     m_currentIndent = start;
     if (version != null) {
-      setXmlDetails(version, encoding);
+      appendXmlDetails(version, encoding);
     }
   }
 
@@ -79,6 +88,10 @@ public class XMLStringBuffer {
     if (m_buffer.toString().length() != 0) {
       throw new IllegalStateException("Buffer should be empty: '" + m_buffer.toString() + "'");
     }
+    appendXmlDetails(v, enc);
+  }
+
+  private void appendXmlDetails(String v, String enc) {
     m_buffer.append("<?xml version=\"" + v + "\" encoding=\"" + enc + "\"?>").append(EOL);
   }
 
@@ -14,10 +14,9 @@ import org.testng.internal.Utils;
 import org.testng.util.Strings;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -48,22 +47,37 @@ public class XMLSuiteResultWriter {
    * @param suiteResult The <code>ISuiteResult</code> to serialize
    */
   public void writeSuiteResult(XMLStringBuffer xmlBuffer, ISuiteResult suiteResult) {
+    ITestContext testContext = suiteResult.getTestContext();
     if (XMLReporterConfig.FF_LEVEL_SUITE_RESULT != config.getFileFragmentationLevel()) {
-      writeAllToBuffer(xmlBuffer, suiteResult);
+      writeAllToBuffer(xmlBuffer, testContext);
     } else {
-      String parentDir =
-              config.getOutputDirectory() + File.separatorChar + suiteResult.getTestContext().getSuite().getName();
-      File file = referenceSuiteResult(xmlBuffer, parentDir, suiteResult);
-      XMLStringBuffer suiteXmlBuffer = new XMLStringBuffer();
-      writeAllToBuffer(suiteXmlBuffer, suiteResult);
-      Utils.writeUtf8File(file.getAbsoluteFile().getParent(), file.getName(), suiteXmlBuffer.toXML());
+      referenceSuiteResult(xmlBuffer, testContext);
+      writeSuiteResultFile(testContext);
+    }
+  }
+
+  /**
+   * Writes the file of a test referenced with <code>FF_LEVEL_SUITE_RESULT</code>.
+   */
+  void writeSuiteResultFile(ITestContext testContext) {
+    File file = getSuiteResultFile(testContext);
+    if (config.isStreaming()) {
+      try (WriterBuffer buffer = new WriterBuffer(
+          Utils.openUtf8Writer(file.getAbsoluteFile().getParent(), file.getName()), true /* sanitize */)) {
+        writeAllToBuffer(new XMLStringBuffer(buffer, "1.0", "UTF-8"), testContext);
+      } catch (IOException ex) {
+        ex.printStackTrace();
+      }
+      return;
     }
+    XMLStringBuffer suiteXmlBuffer = new XMLStringBuffer();
+    writeAllToBuffer(suiteXmlBuffer, testContext);
+    Utils.writeUtf8File(file.getAbsoluteFile().getParent(), file.getName(), suiteXmlBuffer.toXML());
   }
 
-  private void writeAllToBuffer(XMLStringBuffer xmlBuffer, ISuiteResult suiteResult) {
-    xmlBuffer.push(XMLReporterConfig.TAG_TEST, getSuiteResultAttributes(suiteResult));
+  private void writeAllToBuffer(XMLStringBuffer xmlBuffer, ITestContext testContext) {
+    xmlBuffer.push(XMLReporterConfig.TAG_TEST, getSuiteResultAttributes(testContext));
     Set<ITestResult> testResults = Sets.newHashSet();
-    ITestContext testContext = suiteResult.getTestContext();
     addAllTestResults(testResults, testContext.getPassedTests());
     addAllTestResults(testResults, testContext.getFailedTests());
     addAllTestResults(testResults, testContext.getSkippedTests());
@@ -75,35 +89,29 @@ public class XMLSuiteResultWriter {
     xmlBuffer.pop();
   }
 
-  @SuppressWarnings("unchecked")
   private void addAllTestResults(Set<ITestResult> testResults, IResultMap resultMap) {
     if (resultMap != null) {
-      // Sort the results chronologically before adding them
-      List<ITestResult> allResults = new ArrayList<>();
-      allResults.addAll(resultMap.getAllResults());
-
-      Collections.sort(new ArrayList(allResults), new Comparator<ITestResult>() {
-        @Override
-        public int compare(ITestResult o1, ITestResult o2) {
-          return (int) (o1.getStartMillis() - o2.getStartMillis());
-        }
-      });
-
-      testResults.addAll(allResults);
+      // The results are sorted per class when they are written
+      testResults.addAll(resultMap.getAllResults());
     }
   }
 
-  private File referenceSuiteResult(XMLStringBuffer xmlBuffer, String parentDir, ISuiteResult suiteResult) {
+  /**
+   * References the file of a test written with {@link #writeSuiteResultFile(ITestContext)}.
+   */
+  void referenceSuiteResult(XMLStringBuffer xmlBuffer, ITestContext testContext) {
     Properties attrs = new Properties();
-    String suiteResultName = suiteResult.getTestContext().getName() + ".xml";
-    attrs.setProperty(XMLReporterConfig.ATTR_URL, suiteResultName);
+    attrs.setProperty(XMLReporterConfig.ATTR_URL, testContext.getName() + ".xml");
     xmlBuffer.addEmptyElement(XMLReporterConfig.TAG_TEST, attrs);
-    return new File(parentDir + File.separatorChar + suiteResultName);
   }
 
-  private Properties getSuiteResultAttributes(ISuiteResult suiteResult) {
+  private File getSuiteResultFile(ITestContext testContext) {
+    String parentDir = config.getOutputDirectory() + File.separatorChar + testContext.getSuite().getName();
+    return new File(parentDir + File.separatorChar + testContext.getName() + ".xml");
+  }
+
+  private Properties getSuiteResultAttributes(ITestContext tc) {
     Properties attributes = new Properties();
-    ITestContext tc = suiteResult.getTestContext();
     attributes.setProperty(XMLReporterConfig.ATTR_NAME, tc.getName());
     XMLReporter.addDurationAttributes(config, attributes, tc.getStartDate(), tc.getEndDate());
     return attributes;
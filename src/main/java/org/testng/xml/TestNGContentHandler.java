@@ -7,6 +7,7 @@ import org.testng.TestNGException;
 import org.testng.collections.Lists;
 import org.testng.collections.Maps;
 import org.testng.internal.Utils;
+import org.testng.internal.thread.ThreadUtil;
 import org.testng.log4testng.Logger;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
@@ -17,6 +18,7 @@ import org.xml.sax.helpers.DefaultHandler;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
@@ -194,6 +196,26 @@ public class TestNGContentHandler extends DefaultHandler {
       if (null != dataProviderThreadCount) {
         m_currentSuite.setDataProviderThreadCount(Integer.parseInt(dataProviderThreadCount));
       }
+      String executor = attributes.getValue("executor");
+      if (executor != null) {
+        XmlSuite.ExecutorMode executorMode = XmlSuite.ExecutorMode.getValidExecutorMode(executor);
+        if (executorMode != null) {
+          m_currentSuite.setExecutorMode(executorMode);
+        } else {
+          Utils.log("Parser", 1, "[WARN] Unknown value of attribute 'executor' at suite level: '"
+              + executor + "', valid values are " + Arrays.toString(XmlSuite.ExecutorMode.values())
+              + ".");
+        }
+      }
+      String threadFactory = attributes.getValue("thread-factory");
+      if (null != threadFactory && m_loadClasses) {
+        try {
+          m_currentSuite.setThreadFactory(ThreadUtil.createThreadFactory(threadFactory));
+        }
+        catch(TestNGException e) {
+          Utils.log("Parser", 1, "[ERROR] Unable to create thread factory '" + threadFactory + "' :" + e);
+        }
+      }
       String timeOut = attributes.getValue("time-out");
       if (null != timeOut) {
         m_currentSuite.setTimeOut(timeOut);
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Properties;
 
 import org.testng.collections.Lists;
+import org.testng.internal.ClassPathIndex;
 import org.testng.internal.PackageUtils;
 import org.testng.internal.Utils;
 import org.testng.reporters.XMLStringBuffer;
@@ -77,17 +78,29 @@ public class XmlPackage implements Serializable {
   }
 
   public List<XmlClass> getXmlClasses() {
+    return getXmlClasses(null, true);
+  }
+
+  /**
+   * @param scanIndex the index of the class path of the current run, used to find the
+   * classes the first time
+   * @param preFilterClasses whether the classes that can't be test classes are skipped
+   * without being loaded
+   */
+  public List<XmlClass> getXmlClasses(ClassPathIndex scanIndex, boolean preFilterClasses) {
     if(null == m_xmlClasses) {
-      m_xmlClasses= initializeXmlClasses();
+      m_xmlClasses= initializeXmlClasses(scanIndex, preFilterClasses);
     }
 
     return m_xmlClasses;
   }
 
-  private List<XmlClass> initializeXmlClasses() {
+  private List<XmlClass> initializeXmlClasses(ClassPathIndex scanIndex,
+      boolean preFilterClasses) {
     List<XmlClass> result= Lists.newArrayList();
     try {
-      String[] classes = PackageUtils.findClassesInPackage(m_name, m_include, m_exclude);
+      String[] classes = PackageUtils.findClassesInPackage(m_name, m_include, m_exclude,
+          scanIndex, preFilterClasses);
 
       int index = 0;
       for(String className: classes) {
@@ -7,6 +7,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
+import org.testng.ITestNGThreadFactory;
 import org.testng.ITestObjectFactory;
 import org.testng.TestNG;
 import org.testng.collections.Lists;
@@ -107,6 +108,34 @@ public class XmlSuite implements Serializable, Cloneable {
     }
   }
 
+  /** The executors that can run the methods of a parallel test */
+  public enum ExecutorMode {
+    THREAD_POOL("thread-pool"), WORK_STEALING("work-stealing");
+
+    private final String name;
+
+    ExecutorMode(String name) {
+      this.name = name;
+    }
+
+    public static ExecutorMode getValidExecutorMode(String mode) {
+      if (mode == null) {
+        return null;
+      }
+      for (ExecutorMode each : values()) {
+        if (each.name.equalsIgnoreCase(mode)) {
+          return each;
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
   private String m_test;
 
   /** The default suite name TODO CQ is this OK as a default name. */
@@ -148,6 +177,13 @@ public class XmlSuite implements Serializable, Cloneable {
   public static final Integer DEFAULT_DATA_PROVIDER_THREAD_COUNT = 10;
   private int m_dataProviderThreadCount = DEFAULT_DATA_PROVIDER_THREAD_COUNT;
 
+  /** The executor used to run the methods of parallel tests */
+  public static final ExecutorMode DEFAULT_EXECUTOR_MODE = ExecutorMode.THREAD_POOL;
+  private ExecutorMode m_executorMode = DEFAULT_EXECUTOR_MODE;
+
+  /** The factory of the threads used by this suite, null for the default one */
+  private ITestNGThreadFactory m_threadFactory;
+
   /** By default, a method failing will cause all instances of that class to skip */
   public static final Boolean DEFAULT_GROUP_BY_INSTANCES = false;
   private Boolean m_groupByInstances = DEFAULT_GROUP_BY_INSTANCES;
@@ -284,6 +320,38 @@ public class XmlSuite implements Serializable, Cloneable {
     return m_configFailurePolicy;
   }
 
+  /**
+   * Sets the executor used to run the methods of parallel tests.
+   * @param executorMode the executor mode
+   */
+  public void setExecutorMode(ExecutorMode executorMode) {
+    m_executorMode = executorMode;
+  }
+
+  /**
+   * Returns the executor used to run the methods of parallel tests.
+   * @return the executor mode
+   */
+  public ExecutorMode getExecutorMode() {
+    return m_executorMode;
+  }
+
+  /**
+   * Sets the factory of the threads used by this suite.
+   * @param threadFactory the thread factory, null for the default one
+   */
+  public void setThreadFactory(ITestNGThreadFactory threadFactory) {
+    m_threadFactory = threadFactory;
+  }
+
+  /**
+   * Returns the factory of the threads used by this suite.
+   * @return the thread factory, null if none was set
+   */
+  public ITestNGThreadFactory getThreadFactory() {
+    return m_threadFactory;
+  }
+
 
   /**
    * Returns the verbose.
@@ -532,6 +600,8 @@ public class XmlSuite implements Serializable, Cloneable {
         DEFAULT_THREAD_COUNT.toString());
     XmlUtils.setProperty(p, "data-provider-thread-count", String.valueOf(getDataProviderThreadCount()),
         DEFAULT_DATA_PROVIDER_THREAD_COUNT.toString());
+    XmlUtils.setProperty(p, "executor", getExecutorMode().toString(),
+        DEFAULT_EXECUTOR_MODE.toString());
     if (! DEFAULT_JUNIT.equals(m_isJUnit)) {
       p.setProperty("junit", m_isJUnit != null ? m_isJUnit.toString() : "false"); // TESTNG-141
     }
@@ -540,6 +610,9 @@ public class XmlSuite implements Serializable, Cloneable {
     if(null != m_objectFactory) {
       p.setProperty("object-factory", m_objectFactory.getClass().getName());
     }
+    if (null != m_threadFactory) {
+      p.setProperty("thread-factory", m_threadFactory.getClass().getName());
+    }
     if (isStringNotEmpty(m_parentModule)) {
       p.setProperty("parent-module", getParentModule());
     }
@@ -699,6 +772,8 @@ public class XmlSuite implements Serializable, Cloneable {
     result.setConfigFailurePolicy(getConfigFailurePolicy());
     result.setThreadCount(getThreadCount());
     result.setDataProviderThreadCount(getDataProviderThreadCount());
+    result.setExecutorMode(getExecutorMode());
+    result.setThreadFactory(getThreadFactory());
     result.setParameters(getAllParameters());
     result.setVerbose(getVerbose());
     result.setXmlPackages(getXmlPackages());
@@ -0,0 +1,25 @@
+package org.testng.internal;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.testng.internal.annotations.DefaultAnnotationTransformer;
+import org.testng.internal.annotations.IAnnotationFinder;
+import org.testng.internal.annotations.JDK15AnnotationFinder;
+import org.testng.xml.XmlTest;
+
+import java.lang.reflect.Method;
+
+public class BaseTestMethodTest {
+
+  @Test(description = "The @BeforeGroups methods inherited by several classes are deduplicated "
+      + "with equals before the test classes are set")
+  public void equalsShouldIgnoreTheInstanceWithoutTestClass() throws NoSuchMethodException {
+    IAnnotationFinder finder = new JDK15AnnotationFinder(new DefaultAnnotationTransformer());
+    Method method = getClass().getMethod("equalsShouldIgnoreTheInstanceWithoutTestClass");
+    TestNGMethod first = new TestNGMethod(method, finder, new XmlTest(), new BaseTestMethodTest());
+    TestNGMethod other = new TestNGMethod(method, finder, new XmlTest(), new BaseTestMethodTest());
+
+    Assert.assertEquals(other, first);
+    Assert.assertEquals(other.hashCode(), first.hashCode());
+  }
+}
@@ -0,0 +1,172 @@
+package org.testng.internal;
+
+import org.testng.Assert;
+import org.testng.TestNG;
+import org.testng.annotations.Test;
+import org.testng.collections.Lists;
+import org.testng.xml.XmlPackage;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import test.SimpleBaseTest;
+import test.TestHelper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+public class ClassPathIndexTest extends SimpleBaseTest {
+
+  /** Old enough for the index to trust the modification times */
+  private static final long LAST_MODIFIED = System.currentTimeMillis() - 60000;
+
+  @Test
+  public void classesShouldBeFoundInTheOrderOfTheJar() throws IOException {
+    File directory = TestHelper.createRandomDirectory().toFile();
+    File jar = createJar(directory, "a/", "a/b/", "a/b/X.class", "a/b/c/", "a/b/c/Y.class",
+        "a/b/Z.class", "a/b/Z$Inner.class", "a/b/README.txt", "a/bb/W.class");
+    ClassPathIndex index = new ClassPathIndex();
+
+    Assert.assertEquals(index.findClasses(jar, "a.b", false),
+        Arrays.asList("a/b/X", "a/b/Z", "a/b/Z$Inner"));
+    Assert.assertEquals(index.findClasses(jar, "a.b", true),
+        Arrays.asList("a/b/X", "a/b/c/Y", "a/b/Z", "a/b/Z$Inner"));
+    Assert.assertEquals(index.findClasses(jar, "a", false), Collections.emptyList());
+    Assert.assertEquals(index.findClasses(jar, "d", true), Collections.emptyList());
+  }
+
+  @Test
+  public void packageUtilsShouldFindTheClassesOfTheJars() throws IOException {
+    File directory = TestHelper.createRandomDirectory().toFile();
+    File jar = createJar(directory, "a/", "a/b/", "a/b/X.class", "a/b/c/", "a/b/c/Y.class");
+    ClassLoader previous = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader(
+        new URLClassLoader(new URL[] { jar.toURI().toURL() }, null));
+    try {
+      List<String> none = Collections.emptyList();
+      Assert.assertEquals(PackageUtils.findClassesInPackage("a.b", none, none),
+          new String[] { "a.b.X" });
+      Assert.assertEquals(PackageUtils.findClassesInPackage("a.*", none, none),
+          new String[] { "a.b.X", "a.b.c.Y" });
+      Assert.assertEquals(PackageUtils.findClassesInPackage("a.*", none, Arrays.asList("a.b.c")),
+          new String[] { "a.b.X" });
+    } finally {
+      Thread.currentThread().setContextClassLoader(previous);
+    }
+  }
+
+  @Test
+  public void jarShouldOnlyBeScannedAgainIfItChanged() throws IOException {
+    File directory = TestHelper.createRandomDirectory().toFile();
+    File jar = createJar(directory, "a/X1.class");
+    File indexFile = new File(directory, PackageUtils.SCAN_INDEX_FILE_NAME);
+    ClassPathIndex index = new ClassPathIndex();
+    index.update(Collections.singletonList(jar));
+    index.save(indexFile);
+
+    // Same size and modification time: the index is trusted
+    createJar(directory, "a/X2.class");
+    ClassPathIndex loaded = new ClassPathIndex();
+    loaded.load(indexFile);
+    Assert.assertEquals(loaded.findClasses(jar, "a", false), Collections.singletonList("a/X1"));
+
+    jar.setLastModified(LAST_MODIFIED + 1000);
+    Assert.assertEquals(loaded.findClasses(jar, "a", false), Collections.singletonList("a/X2"));
+
+    createJar(directory, "a/X2.class", "a/X3.class");
+    Assert.assertEquals(loaded.findClasses(jar, "a", false), Arrays.asList("a/X2", "a/X3"));
+  }
+
+  @Test
+  public void recentlyModifiedJarShouldBeScannedAgain() throws IOException {
+    File directory = TestHelper.createRandomDirectory().toFile();
+    File jar = createJar(directory, "a/X1.class");
+    jar.setLastModified(System.currentTimeMillis());
+    ClassPathIndex index = new ClassPathIndex();
+    Assert.assertEquals(index.findClasses(jar, "a", false), Collections.singletonList("a/X1"));
+
+    // Could be modified within the resolution of the modification times
+    long lastModified = jar.lastModified();
+    createJar(directory, "a/X2.class");
+    jar.setLastModified(lastModified);
+    Assert.assertEquals(index.findClasses(jar, "a", false), Collections.singletonList("a/X2"));
+  }
+
+  @Test
+  public void directoryShouldBeListedAgainIfItChanged() throws IOException {
+    File directory = TestHelper.createRandomDirectory().toFile();
+    new File(directory, "X.class").createNewFile();
+    new File(directory, "sub").mkdir();
+    directory.setLastModified(LAST_MODIFIED);
+    File indexFile = new File(directory, PackageUtils.SCAN_INDEX_FILE_NAME);
+    ClassPathIndex index = new ClassPathIndex();
+    index.listDirectory(directory);
+    index.save(indexFile);
+    directory.setLastModified(LAST_MODIFIED);
+
+    ClassPathIndex loaded = new ClassPathIndex();
+    loaded.load(indexFile);
+    ClassPathIndex.DirectoryListing listing = loaded.listDirectory(directory);
+    Assert.assertEquals(listing.m_names.length, 2);
+    Assert.assertEquals(listing.m_directories[Arrays.asList(listing.m_names).indexOf("sub")], true);
+
+    new File(directory, "Y.class").createNewFile();
+    directory.setLastModified(LAST_MODIFIED + 1000);
+    listing = loaded.listDirectory(directory);
+    Assert.assertTrue(Arrays.asList(listing.m_names).contains("Y.class"));
+  }
+
+  @Test
+  public void indexShouldNotBeSavedIfNothingChanged() throws IOException {
+    File indexFile = new File(TestHelper.createRandomDirectory().toFile(),
+        PackageUtils.SCAN_INDEX_FILE_NAME);
+    new ClassPathIndex().save(indexFile);
+    Assert.assertFalse(indexFile.exists());
+  }
+
+  @Test
+  public void indexShouldBeOwnedByTheRun() throws IOException {
+    File first = TestHelper.createRandomDirectory().toFile();
+    File second = TestHelper.createRandomDirectory().toFile();
+    runPackage(first);
+    runPackage(second);
+
+    Assert.assertTrue(new File(first, PackageUtils.SCAN_INDEX_FILE_NAME).exists());
+    Assert.assertTrue(new File(second, PackageUtils.SCAN_INDEX_FILE_NAME).exists());
+  }
+
+  private static void runPackage(File outputDirectory) {
+    XmlSuite suite = createXmlSuite("Suite");
+    XmlTest test = createXmlTest(suite, "Test");
+    List<XmlPackage> packages = Lists.newArrayList();
+    packages.add(new XmlPackage("test.prefilter"));
+    test.setXmlPackages(packages);
+    TestNG result = create(suite);
+    result.setOutputDirectory(outputDirectory.getAbsolutePath());
+    result.run();
+  }
+
+  /**
+   * Create or replace the jar of a directory with these entries, all with the same content.
+   */
+  private static File createJar(File directory, String... entries) throws IOException {
+    File jar = new File(directory, "classes.jar");
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+      for (String entry : entries) {
+        out.putNextEntry(new ZipEntry(entry));
+        if (!entry.endsWith("/")) {
+          out.write(new byte[] { 1, 2, 3 });
+        }
+        out.closeEntry();
+      }
+    }
+    jar.setLastModified(LAST_MODIFIED);
+    return jar;
+  }
+}
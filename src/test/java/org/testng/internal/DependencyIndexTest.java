@@ -0,0 +1,135 @@
+package org.testng.internal;
+
+import org.testng.Assert;
+import org.testng.ITestNGMethod;
+import org.testng.TestNGException;
+import org.testng.annotations.Test;
+import org.testng.internal.annotations.DefaultAnnotationTransformer;
+import org.testng.internal.annotations.IAnnotationFinder;
+import org.testng.internal.annotations.JDK15AnnotationFinder;
+import org.testng.xml.XmlTest;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Comparator;
+
+public class DependencyIndexTest {
+
+  private static ITestNGMethod[] createMethods(Class<?> cls) {
+    IAnnotationFinder finder = new JDK15AnnotationFinder(new DefaultAnnotationTransformer());
+    Method[] methods = cls.getDeclaredMethods();
+    // The order of getDeclaredMethods() is not specified
+    Arrays.sort(methods, new Comparator<Method>() {
+      @Override
+      public int compare(Method m1, Method m2) {
+        return m1.getName().compareTo(m2.getName());
+      }
+    });
+    ITestNGMethod[] result = new ITestNGMethod[methods.length];
+    for (int i = 0; i < methods.length; i++) {
+      result[i] = new TestNGMethod(methods[i], finder, new XmlTest(), null);
+    }
+    return result;
+  }
+
+  private static ITestNGMethod find(ITestNGMethod[] methods, String name) {
+    for (ITestNGMethod m : methods) {
+      if (m.getMethodName().equals(name)) {
+        return m;
+      }
+    }
+    throw new AssertionError("No method " + name);
+  }
+
+  @Test
+  public void dependenciesShouldBeTheSameAsWithoutTheIndex() {
+    ITestNGMethod[] methods = createMethods(DependencyIndexSample.class);
+    DependencyIndex index = new DependencyIndex(methods);
+
+    for (ITestNGMethod m : methods) {
+      Assert.assertEquals(index.getMethodsDependedUpon(m),
+          MethodHelper.findDependedUponMethods(m, methods), m.getMethodName());
+      String[] groups = m.getGroupsDependedUpon();
+      ITestNGMethod[][] groupMethods = index.getGroupsDependedUpon(m);
+      Assert.assertEquals(groupMethods.length, groups.length);
+      for (int i = 0; i < groups.length; i++) {
+        Assert.assertEquals(groupMethods[i],
+            MethodGroupsHelper.findMethodsThatBelongToGroup(methods, groups[i]));
+      }
+    }
+
+    ITestNGMethod all = find(methods, "all");
+    Assert.assertEquals(index.getMethodsDependedUpon(all),
+        new ITestNGMethod[] { find(methods, "a1"), find(methods, "a2") });
+    Assert.assertEquals(index.getGroupsDependedUpon(all)[0],
+        new ITestNGMethod[] { find(methods, "a1"), find(methods, "a2"), find(methods, "b") });
+    Assert.assertNull(all.getMissingGroup());
+  }
+
+  @Test
+  public void methodsMissingFromTheIndexShouldBeResolved() {
+    ITestNGMethod[] methods = createMethods(DependencyIndexSample.class);
+    ITestNGMethod all = find(methods, "all");
+    DependencyIndex index = new DependencyIndex(new ITestNGMethod[] { find(methods, "a1") });
+
+    Assert.assertEquals(index.getMethodsDependedUpon(all),
+        new ITestNGMethod[] { find(methods, "a1") });
+    Assert.assertEquals(index.getGroupsDependedUpon(all)[0],
+        new ITestNGMethod[] { find(methods, "a1") });
+  }
+
+  @Test
+  public void missingGroupsShouldBeSet() {
+    ITestNGMethod[] methods = createMethods(MissingDependencySample.class);
+    ITestNGMethod missingGroup = find(methods, "missingGroup");
+
+    DependencyIndex index = new DependencyIndex(methods);
+    Assert.assertNull(missingGroup.getMissingGroup());
+
+    index.setMissingGroups();
+    Assert.assertEquals(missingGroup.getMissingGroup(), "nonexistent");
+  }
+
+  @Test
+  public void missingMethodsShouldOnlyFailWhenLookedUp() {
+    ITestNGMethod[] methods = createMethods(MissingDependencySample.class);
+    DependencyIndex index = new DependencyIndex(methods);
+
+    Assert.assertEquals(index.getMethodsDependedUpon(find(methods, "ignored")).length, 0);
+    try {
+      index.getMethodsDependedUpon(find(methods, "missingMethod"));
+      Assert.fail("The missing method should have been reported");
+    } catch (TestNGException ex) {
+      Assert.assertTrue(ex.getMessage().contains("depends on nonexistent method"),
+          ex.getMessage());
+    }
+  }
+}
+
+class DependencyIndexSample {
+  @Test(groups = "a")
+  public void a1() {}
+
+  @Test(groups = "a")
+  public void a2() {}
+
+  @Test(groups = "b")
+  public void b() {}
+
+  @Test(dependsOnMethods = "a[12]", dependsOnGroups = ".*")
+  public void all() {}
+
+  @Test(dependsOnMethods = "b", dependsOnGroups = "a")
+  public void c() {}
+}
+
+class MissingDependencySample {
+  @Test(dependsOnGroups = "nonexistent")
+  public void missingGroup() {}
+
+  @Test(dependsOnMethods = "nonexistent")
+  public void missingMethod() {}
+
+  @Test(dependsOnMethods = "nonexistent", ignoreMissingDependencies = true)
+  public void ignored() {}
+}
@@ -0,0 +1,122 @@
+package org.testng.internal;
+
+import org.testng.Assert;
+import org.testng.ITestNGMethod;
+import org.testng.TestNGException;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.testng.internal.annotations.DefaultAnnotationTransformer;
+import org.testng.internal.annotations.IAnnotationFinder;
+import org.testng.internal.annotations.JDK15AnnotationFinder;
+import org.testng.xml.XmlTest;
+
+import java.lang.reflect.Method;
+
+public class GroupExpressionTest {
+
+  private static ITestNGMethod[] createMethods() {
+    IAnnotationFinder finder = new JDK15AnnotationFinder(new DefaultAnnotationTransformer());
+    Method[] methods = GroupExpressionSample.class.getDeclaredMethods();
+    ITestNGMethod[] result = new ITestNGMethod[methods.length];
+    for (int i = 0; i < methods.length; i++) {
+      result[i] = new TestNGMethod(methods[i], finder, new XmlTest(), null);
+    }
+    return result;
+  }
+
+  @DataProvider
+  public Object[][] expressions() {
+    return new Object[][] {
+      { "true" },
+      { "groups.containsKey(\"fast\")" },
+      { "groups.\n     containsKey   \t    (\"fast\");" },
+      { "!groups.containsKey(\"fast\") && !groups.isEmpty()" },
+      { "groups.containsKey(\"fast\") || groups.containsKey(\"slow\") && false" },
+      { "(groups.containsKey(\"fast\") || groups.containsKey(\"slow\")) && false" },
+      { "method.getName().startsWith(\"s\") || method.getName().matches(\"f.*t\")" },
+      { "method.getDeclaringClass().getName().endsWith(\"Sample\")" },
+      { "testngMethod.getRealClass().getName().contains(\"GroupExpression\")" },
+      { "testngMethod.getMethodName().equals(\"slow\")" },
+      { "testngMethod.getDescription().equals(\"A \\\"slow\\\" test\")" },
+      { "testngMethod.getPriority() >= 1 && testngMethod.getPriority() != -1" },
+      { "testngMethod.getInvocationCount() == 2" },
+      { "testngMethod.getEnabled() && !testngMethod.isAlwaysRun()" },
+      // The description of most methods is null, which BeanShell fails to evaluate
+      { "!testngMethod.getDescription().contains(\"slow\")" },
+      { "!(testngMethod.getDescription().startsWith(\"A\") && true)" },
+      { "groups.containsKey(\"fast\") || !testngMethod.getDescription().matches(\".*\")" },
+    };
+  }
+
+  @Test(dataProvider = "expressions")
+  public void compiledExpressionsShouldMatchLikeBeanShell(String expression) {
+    GroupExpression compiled = GroupExpression.compile(expression);
+    Assert.assertNotNull(compiled, expression);
+    Bsh bsh = new Bsh();
+    for (ITestNGMethod tm : createMethods()) {
+      Assert.assertEquals(compiled.matches(tm), bsh.includeMethodFromExpression(expression, tm),
+          expression + " on " + tm.getMethodName());
+    }
+  }
+
+  @Test
+  public void groupsShouldMatchRegularExpressions() {
+    GroupExpression compiled = GroupExpression.compile("hasGroup(\"f.*\") || hasGroup(\"s\")");
+    for (ITestNGMethod tm : createMethods()) {
+      Assert.assertEquals(compiled.matches(tm), tm.getMethodName().equals("fast"),
+          tm.getMethodName());
+    }
+  }
+
+  @DataProvider
+  public Object[][] unsupportedExpressions() {
+    return new Object[][] {
+      { "groups.get(\"fast\") != null" },
+      { "method.getName().length() > 2" },
+      { "testngMethod.getPriority() == 1L" },
+      { "groups.containsKey(\"fast\"" },
+      { "groups.containsKey(\"fast\") groups" },
+      { "System.exit(0)" },
+    };
+  }
+
+  @Test(dataProvider = "unsupportedExpressions")
+  public void otherExpressionsShouldBeLeftToBeanShell(String expression) {
+    Assert.assertNull(GroupExpression.compile(expression), expression);
+  }
+
+  @DataProvider
+  public Object[][] unsupportedHasGroupExpressions() {
+    return new Object[][] {
+      { "hasGroup(\"[\")", "Unclosed character class" },
+      { "hasGroup(\"f\") && method.getName().length() > 2", "the attribute method.getName.length" },
+      { "hasGroup(\"f\") & hasGroup(\"s\")", "the character '&'" },
+    };
+  }
+
+  @Test(dataProvider = "unsupportedHasGroupExpressions",
+      description = "BeanShell can't evaluate hasGroup(), so it used to exclude every method")
+  public void unsupportedHasGroupExpressionsShouldFail(String expression, String construct) {
+    try {
+      GroupExpression.compile(expression);
+      Assert.fail("Expected a TestNGException for " + expression);
+    } catch (TestNGException ex) {
+      Assert.assertTrue(ex.getMessage().contains(construct), ex.getMessage());
+    }
+  }
+}
+
+class GroupExpressionSample {
+  @Test(groups = "fast", priority = 1)
+  public void fast() {}
+
+  @Test(groups = { "slow", "db" }, description = "A \"slow\" test",
+      invocationCount = 2)
+  public void slow() {}
+
+  @Test(priority = -1, alwaysRun = true)
+  public void noGroup() {}
+
+  @Test(groups = "slow", enabled = false)
+  public void disabled() {}
+}
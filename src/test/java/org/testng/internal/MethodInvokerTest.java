@@ -0,0 +1,104 @@
+package org.testng.internal;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+public class MethodInvokerTest {
+
+  public static class Sample {
+    private String concat(String s, int i) {
+      return s + i;
+    }
+
+    public static long twice(long l) {
+      return 2 * l;
+    }
+
+    public void fail() {
+      throw new IllegalStateException("fail");
+    }
+  }
+
+  public static class SubSample extends Sample {
+  }
+
+  private static ConstructorOrMethod method(String name, Class<?>... parameterTypes)
+      throws NoSuchMethodException {
+    return new ConstructorOrMethod(Sample.class.getDeclaredMethod(name, parameterTypes));
+  }
+
+  @Test
+  public void shouldInvokePrivateMethods() throws Exception {
+    ConstructorOrMethod m = method("concat", String.class, int.class);
+    Object result = MethodInvocationHelper.invokeMethod(m, new Sample(), new Object[] { "a", 1 });
+
+    Assert.assertEquals(result, "a1");
+    Assert.assertNotNull(m.getInvoker(Sample.class));
+  }
+
+  @Test
+  public void shouldInvokeStaticMethods() throws Exception {
+    ConstructorOrMethod m = method("twice", long.class);
+
+    Assert.assertEquals(MethodInvocationHelper.invokeMethod(m, null, new Object[] { 2L }), 4L);
+    // Widening conversions are done as by reflection
+    Assert.assertEquals(MethodInvocationHelper.invokeMethod(m, null, new Object[] { 3 }), 6L);
+  }
+
+  @Test
+  public void shouldWrapExceptionsOfTheMethod() throws Exception {
+    ConstructorOrMethod m = method("fail");
+    try {
+      MethodInvocationHelper.invokeMethod(m, new Sample(), new Object[0]);
+      Assert.fail();
+    } catch (InvocationTargetException e) {
+      Assert.assertEquals(e.getCause().getClass(), IllegalStateException.class);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void shouldRejectInvalidParametersAsReflection() throws Exception {
+    MethodInvocationHelper.invokeMethod(method("concat", String.class, int.class), new Sample(),
+        new Object[] { "a", null });
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void shouldRejectANullInstanceAsReflection() throws Exception {
+    Method concat = Sample.class.getDeclaredMethod("concat", String.class, int.class);
+    MethodInvoker.create(concat, new Sample()).invoke(null, new Object[] { "a", 1 });
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void shouldRejectAnInstanceOfAnotherClassAsReflection() throws Exception {
+    Method concat = Sample.class.getDeclaredMethod("concat", String.class, int.class);
+    MethodInvoker.create(concat, new Sample()).invoke("not a sample", new Object[] { "a", 1 });
+  }
+
+  @Test
+  public void shouldBeResolvedAgainForAnotherClass() throws Exception {
+    ConstructorOrMethod m = method("concat", String.class, int.class);
+    MethodInvocationHelper.invokeMethod(m, new Sample(), new Object[] { "a", 1 });
+    MethodInvoker invoker = m.getInvoker(Sample.class);
+
+    MethodInvocationHelper.invokeMethod(m, new Sample(), new Object[] { "b", 2 });
+    Assert.assertSame(m.getInvoker(Sample.class), invoker);
+
+    Object result = MethodInvocationHelper.invokeMethod(m, new SubSample(), new Object[] { "c", 3 });
+    Assert.assertEquals(result, "c3");
+    Assert.assertNotSame(m.getInvoker(SubSample.class), invoker);
+  }
+
+  @Test
+  public void shouldKeepTheInvokerOfEachClass() throws Exception {
+    ConstructorOrMethod m = method("concat", String.class, int.class);
+    MethodInvocationHelper.invokeMethod(m, new Sample(), new Object[] { "a", 1 });
+    MethodInvoker invoker = m.getInvoker(Sample.class);
+
+    MethodInvocationHelper.invokeMethod(m, new SubSample(), new Object[] { "b", 2 });
+    MethodInvocationHelper.invokeMethod(m, new Sample(), new Object[] { "c", 3 });
+    Assert.assertSame(m.getInvoker(Sample.class), invoker);
+  }
+}
@@ -0,0 +1,79 @@
+package org.testng.internal;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ReporterOutputStoreTest {
+
+  /**
+   * A result whose hash code collides with all the other ones.
+   */
+  private static class CollidingResult extends TestResult {
+    @Override
+    public int hashCode() {
+      return 42;
+    }
+  }
+
+  @Test
+  public void outputShouldBeKeptPerResult() {
+    ReporterOutputStore store = new ReporterOutputStore();
+    ITestResult r1 = new CollidingResult();
+    ITestResult r2 = new CollidingResult();
+    store.add(r1, Arrays.asList("a", "b"));
+    store.add(r2, Collections.singletonList("c"));
+    store.add(r1, Collections.singletonList("d"));
+
+    Assert.assertEquals(store.getOutput(r1), Arrays.asList("a", "b", "d"));
+    Assert.assertEquals(store.getOutput(r2), Collections.singletonList("c"));
+    Assert.assertEquals(store.getOutput(), Arrays.asList("a", "b", "c", "d"));
+    Assert.assertTrue(store.getOutput(new TestResult()).isEmpty());
+
+    store.clear();
+    Assert.assertTrue(store.getOutput(r1).isEmpty());
+    Assert.assertTrue(store.getOutput().isEmpty());
+  }
+
+  @Test
+  public void outputOverTheLimitsShouldBeTruncated() {
+    ReporterOutputStore store = new ReporterOutputStore();
+    store.setMaxLinesPerResult(2);
+    store.setMaxLines(3);
+    ITestResult r1 = new TestResult();
+    ITestResult r2 = new TestResult();
+    store.add(r1, Arrays.asList("a", "b", "c"));
+    store.add(r2, Arrays.asList("d", "e"));
+
+    Assert.assertEquals(store.getOutput(r1), Arrays.asList("a", "b"));
+    Assert.assertEquals(store.getOutput(r2), Collections.singletonList("d"));
+    Assert.assertEquals(store.getOutput(), Arrays.asList("a", "b", "d"));
+  }
+
+  @Test
+  public void outputOverTheLimitsShouldBeSpilled() {
+    ReporterOutputStore store = new ReporterOutputStore();
+    store.setMaxLinesPerResult(2);
+    store.setOverflowPolicy(Reporter.OverflowPolicy.SPILL);
+    ITestResult r = new TestResult();
+    store.add(r, Arrays.asList("a", "b", "multi\nline \u00e9"));
+    store.add(r, Collections.singletonList("d"));
+
+    Assert.assertEquals(store.getOutput(r), Arrays.asList("a", "b", "multi\nline \u00e9", "d"));
+    // Only the lines kept in memory are in the combined output
+    Assert.assertEquals(store.getOutput(), Arrays.asList("a", "b"));
+
+    // The file is opened again after the output was read or the result finished
+    store.add(r, Collections.singletonList("e"));
+    store.finish(r);
+    store.add(r, Collections.singletonList("f"));
+    Assert.assertEquals(store.getOutput(r),
+        Arrays.asList("a", "b", "multi\nline \u00e9", "d", "e", "f"));
+    store.clear();
+    Assert.assertTrue(store.getOutput(r).isEmpty());
+  }
+}
@@ -0,0 +1,71 @@
+package org.testng.internal;
+
+import org.testng.Assert;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.testng.internal.MethodInstanceTest.TestNGMethodStub;
+
+public class ResultMapTest {
+
+  @Test
+  public void resultsAreIndexedByMethod() {
+    ResultMap map = new ResultMap();
+    ITestNGMethod m1 = new TestNGMethodStub("m1", null);
+    ITestNGMethod m2 = new TestNGMethodStub("m2", null);
+    ITestResult r1 = new TestResult();
+    ITestResult r2 = new TestResult();
+    ITestResult r3 = new TestResult();
+    map.addResult(r1, m1);
+    map.addResult(r2, m1);
+    map.addResult(r3, m2);
+
+    Assert.assertEquals(map.size(), 3);
+    Assert.assertEqualsNoOrder(map.getResults(m1).toArray(), new Object[] { r1, r2 });
+    Assert.assertEqualsNoOrder(map.getResults(m2).toArray(), new Object[] { r3 });
+
+    map.addResult(r2, m2);
+    Assert.assertEqualsNoOrder(map.getResults(m1).toArray(), new Object[] { r1 });
+    Assert.assertEqualsNoOrder(map.getResults(m2).toArray(), new Object[] { r2, r3 });
+
+    map.removeResult(r3);
+    Assert.assertEqualsNoOrder(map.getResults(m2).toArray(), new Object[] { r2 });
+    map.removeResult(m1);
+    Assert.assertTrue(map.getResults(m1).isEmpty());
+    Assert.assertEquals(map.size(), 1);
+    Assert.assertEqualsNoOrder(map.getAllResults().toArray(), new Object[] { r2 });
+  }
+
+  @DataProvider
+  public Object[][] resultCounts() {
+    return new Object[][] {
+        new Object[] { 1000 },
+        new Object[] { 100000 },
+        new Object[] { 500000 },
+    };
+  }
+
+  /**
+   * Dependent methods look up the results of the methods they depend on once per invocation,
+   * the same number of lookups has to stay within the time out whatever the size of the map.
+   */
+  @Test(dataProvider = "resultCounts", timeOut = 30000)
+  public void lookupCostDoesNotDependOnResultCount(int resultCount) {
+    int methodCount = resultCount / 10;
+    ResultMap map = new ResultMap();
+    ITestNGMethod[] methods = new ITestNGMethod[methodCount];
+    for (int i = 0; i < methodCount; i++) {
+      methods[i] = new TestNGMethodStub("m" + i, null);
+    }
+    for (int i = 0; i < resultCount; i++) {
+      map.addResult(new TestResult(), methods[i % methodCount]);
+    }
+
+    int found = 0;
+    for (int i = 0; i < 100000; i++) {
+      found += map.getResults(methods[i % methodCount]).size();
+    }
+    Assert.assertEquals(found, 100000 * 10);
+  }
+}
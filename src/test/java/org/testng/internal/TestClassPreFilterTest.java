@@ -0,0 +1,119 @@
+package org.testng.internal;
+
+import org.testng.Assert;
+import org.testng.TestNG;
+import org.testng.annotations.Test;
+import org.testng.collections.Lists;
+import org.testng.xml.XmlPackage;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import test.SimpleBaseTest;
+import test.TestHelper;
+import test.prefilter.AnnotatedSample;
+import test.prefilter.JUnitSample;
+import test.prefilter.PlainSample;
+import test.prefilter.SubclassSample;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+public class TestClassPreFilterTest extends SimpleBaseTest {
+
+  private static final String PACKAGE = "test.prefilter";
+  private static final List<String> NONE = Collections.emptyList();
+
+  @Test
+  public void onlyTestClassesShouldBeFoundInDirectories() throws IOException {
+    List<String> classes = Arrays.asList(PackageUtils.findClassesInPackage(PACKAGE, NONE, NONE));
+
+    Assert.assertEqualsNoOrder(classes.toArray(), new Object[] {
+        AnnotatedSample.class.getName(), SubclassSample.class.getName(), JUnitSample.class.getName()
+    });
+  }
+
+  @Test
+  public void allClassesShouldBeFoundWithoutFilter() throws IOException {
+    List<String> classes = Arrays.asList(PackageUtils.findClassesInPackage(PACKAGE, NONE, NONE,
+        null, false));
+
+    Assert.assertTrue(classes.contains(PlainSample.class.getName()));
+    Assert.assertEquals(classes.size(), 4);
+  }
+
+  @Test
+  public void onlyTestClassesShouldBeFoundInJars() throws IOException {
+    File jar = new File(TestHelper.createRandomDirectory().toFile(), "prefilter.jar");
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+      out.putNextEntry(new ZipEntry("test/"));
+      out.putNextEntry(new ZipEntry("test/prefilter/"));
+      for (Class<?> cls : Arrays.asList(AnnotatedSample.class, SubclassSample.class,
+          JUnitSample.class, PlainSample.class)) {
+        String name = cls.getName().replace('.', '/') + ".class";
+        out.putNextEntry(new ZipEntry(name));
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(name)) {
+          byte[] buffer = new byte[8192];
+          int length;
+          while ((length = in.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+          }
+        }
+      }
+    }
+    ClassLoader previous = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader(
+        new URLClassLoader(new URL[] { jar.toURI().toURL() }, null));
+    try {
+      List<String> classes = Arrays.asList(PackageUtils.findClassesInPackage(PACKAGE, NONE, NONE));
+
+      Assert.assertEquals(classes, Arrays.asList(AnnotatedSample.class.getName(),
+          SubclassSample.class.getName(), JUnitSample.class.getName()));
+    } finally {
+      Thread.currentThread().setContextClassLoader(previous);
+    }
+  }
+
+  @Test
+  public void nonTestClassesShouldNotBeLoaded() {
+    Assert.assertFalse(run(true).contains(PlainSample.class.getName()));
+    Assert.assertTrue(run(false).contains(PlainSample.class.getName()));
+  }
+
+  /**
+   * @return the names of the classes loaded through the context class loader during the run.
+   */
+  private static Set<String> run(boolean preFilterClasses) {
+    XmlSuite suite = createXmlSuite("Suite");
+    XmlTest test = createXmlTest(suite, "Test");
+    List<XmlPackage> packages = Lists.newArrayList();
+    packages.add(new XmlPackage(PACKAGE));
+    test.setXmlPackages(packages);
+    TestNG tng = create(suite);
+    tng.setPreFilterClasses(preFilterClasses);
+    final Set<String> result = Collections.synchronizedSet(new HashSet<String>());
+    ClassLoader previous = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader(new ClassLoader(previous) {
+      @Override
+      public Class<?> loadClass(String name) throws ClassNotFoundException {
+        result.add(name);
+        return super.loadClass(name);
+      }
+    });
+    try {
+      tng.run();
+    } finally {
+      Thread.currentThread().setContextClassLoader(previous);
+    }
+    return result;
+  }
+}
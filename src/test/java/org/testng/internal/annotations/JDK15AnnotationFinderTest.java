@@ -0,0 +1,141 @@
+package org.testng.internal.annotations;
+
+import org.testng.Assert;
+import org.testng.IAnnotationTransformer;
+import org.testng.ITestNGMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.IDataProviderAnnotation;
+import org.testng.annotations.IListenersAnnotation;
+import org.testng.annotations.ITestAnnotation;
+import org.testng.annotations.Test;
+import org.testng.internal.TestNGMethod;
+import org.testng.xml.XmlTest;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+public class JDK15AnnotationFinderTest {
+
+  public static class CountingTransformer implements IAnnotationTransformer {
+    int m_count;
+
+    @Override
+    public void transform(ITestAnnotation annotation, Class testClass, Constructor testConstructor,
+        Method testMethod) {
+      m_count++;
+    }
+  }
+
+  private JDK15AnnotationFinder m_finder;
+
+  @BeforeMethod
+  public void setUp() {
+    m_finder = new JDK15AnnotationFinder(new DefaultAnnotationTransformer());
+  }
+
+  @Test
+  public void lookupsShouldBeCached() throws NoSuchMethodException {
+    Method method = Sample.class.getMethod("annotated");
+
+    ITestAnnotation first = m_finder.findAnnotation(method, ITestAnnotation.class);
+    Assert.assertEquals(first.getPriority(), 1);
+    Assert.assertEquals(m_finder.getCacheMisses(), 1);
+    Assert.assertEquals(m_finder.getCacheHits(), 0);
+
+    Assert.assertSame(m_finder.findAnnotation(method, ITestAnnotation.class), first);
+    Assert.assertEquals(m_finder.getCacheMisses(), 1);
+    Assert.assertEquals(m_finder.getCacheHits(), 1);
+  }
+
+  @Test
+  public void missingAnnotationsShouldBeCached() throws NoSuchMethodException {
+    Method method = Sample.class.getMethod("notAnnotated");
+
+    Assert.assertNull(m_finder.findAnnotation(method, IBeforeMethod.class));
+    Assert.assertNull(m_finder.findAnnotation(method, IBeforeMethod.class));
+    Assert.assertEquals(m_finder.getCacheMisses(), 1);
+    Assert.assertEquals(m_finder.getCacheHits(), 1);
+  }
+
+  @Test
+  public void superClassesShouldBeCachedPerClass() {
+    ITestAnnotation annotation = m_finder.findAnnotation(SubSample.class, ITestAnnotation.class);
+    Assert.assertEquals(annotation.getGroups(), new String[] { "sample" });
+    Assert.assertSame(m_finder.findAnnotation(Sample.class, ITestAnnotation.class), annotation);
+    Assert.assertSame(m_finder.findAnnotation(SubSample.class, ITestAnnotation.class), annotation);
+    Assert.assertEquals(m_finder.getCacheMisses(), 2);
+    Assert.assertEquals(m_finder.getCacheHits(), 1);
+  }
+
+  @Test
+  public void resolvedAnnotationsShouldBeHits() throws NoSuchMethodException {
+    Method method = Sample.class.getMethod("annotated");
+    ITestNGMethod tm = new TestNGMethod(method, m_finder, new XmlTest(), null);
+
+    m_finder.resolveAnnotations(Collections.singletonList(tm));
+    long hits = m_finder.getCacheHits();
+    long misses = m_finder.getCacheMisses();
+
+    Assert.assertNotNull(m_finder.findAnnotation(method, ITestAnnotation.class));
+    Assert.assertNotNull(m_finder.findAnnotation(Sample.class, ITestAnnotation.class));
+    Assert.assertEquals(m_finder.getCacheMisses(), misses);
+    Assert.assertEquals(m_finder.getCacheHits(), hits + 2);
+  }
+
+  @Test
+  public void dataProvidersAndListenersShouldBeResolved() throws NoSuchMethodException {
+    Method method = DataProviderSample.class.getMethod("withData", int.class);
+    ITestNGMethod tm = new TestNGMethod(method, m_finder, new XmlTest(), null);
+
+    m_finder.resolveAnnotations(Collections.singletonList(tm));
+    long hits = m_finder.getCacheHits();
+    long misses = m_finder.getCacheMisses();
+
+    Method data = DataProviderSample.class.getMethod("data");
+    Assert.assertNotNull(m_finder.findAnnotation(data, IDataProviderAnnotation.class));
+    Assert.assertNull(
+        m_finder.findAnnotation(DataProviderSample.class, IListenersAnnotation.class));
+    Assert.assertEquals(m_finder.getCacheMisses(), misses);
+    Assert.assertEquals(m_finder.getCacheHits(), hits + 2);
+  }
+
+  @Test
+  public void userTransformersShouldOnlySeeTheLookups() throws NoSuchMethodException {
+    CountingTransformer transformer = new CountingTransformer();
+    m_finder = new JDK15AnnotationFinder(transformer);
+    Method method = Sample.class.getMethod("annotated");
+    ITestNGMethod tm = new TestNGMethod(method, m_finder, new XmlTest(), null);
+    int count = transformer.m_count;
+    long misses = m_finder.getCacheMisses();
+
+    m_finder.resolveAnnotations(Collections.singletonList(tm));
+    Assert.assertEquals(transformer.m_count, count);
+    Assert.assertEquals(m_finder.getCacheMisses(), misses);
+  }
+}
+
+@Test(groups = "sample")
+class Sample {
+  @Test(priority = 1)
+  public void annotated() {
+  }
+
+  public void notAnnotated() {
+  }
+}
+
+class SubSample extends Sample {
+}
+
+class DataProviderSample {
+  @DataProvider
+  public Object[][] data() {
+    return new Object[][] { { 1 } };
+  }
+
+  @Test(dataProvider = "data")
+  public void withData(int i) {
+  }
+}
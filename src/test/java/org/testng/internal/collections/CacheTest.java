@@ -0,0 +1,44 @@
+package org.testng.internal.collections;
+
+import org.testng.Assert;
+import org.testng.TestNG;
+import org.testng.annotations.Test;
+
+import test.SimpleBaseTest;
+import test.sample.Sample1;
+
+public class CacheTest extends SimpleBaseTest {
+
+  @Test
+  public void cacheShouldBeEmptiedWhenFull() {
+    Cache<String, Integer> cache = Cache.newCache("test.full", 2);
+    cache.put("a", 1);
+    cache.put("b", 2);
+    Assert.assertEquals(cache.get("a"), Integer.valueOf(1));
+    cache.put("c", 3);
+
+    Assert.assertEquals(cache.size(), 1);
+    Assert.assertNull(cache.get("a"));
+    Assert.assertEquals(cache.get("c"), Integer.valueOf(3));
+    Assert.assertEquals(cache.getHits(), 2);
+    Assert.assertEquals(cache.getMisses(), 1);
+    Assert.assertEquals(cache.getHitRate(), 2.0 / 3);
+  }
+
+  @Test
+  public void cachesShouldBeEmptiedAtTheEndOfARun() {
+    Cache<String, String> cache = Cache.newCache("test.run", 10);
+    cache.put("a", "b");
+    TestNG tng = create(Sample1.class);
+    tng.run();
+
+    Assert.assertEquals(cache.size(), 0);
+  }
+
+  @Test
+  public void cachesShouldBeReported() {
+    Cache<String, String> cache = Cache.newCache("test.reported", 10);
+    Assert.assertTrue(Cache.getCaches().contains(cache));
+    Assert.assertEquals(cache.toString(), "test.reported: 0 entries, 0 hits, 0 misses");
+  }
+}
@@ -1,10 +1,13 @@
 package test;
 
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
+import org.testng.collections.Lists;
 import org.testng.internal.DynamicGraph;
 import org.testng.internal.DynamicGraph.Status;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class DynamicGraphTest {
@@ -126,4 +129,94 @@ public class DynamicGraphTest {
     assertFreeNodesEquals(dg);
   }
 
+  @DataProvider
+  public Object[][] graphSizes() {
+    return new Object[][] {
+        new Object[] { 1000 },
+        new Object[] { 10000 },
+        new Object[] { 100000 },
+    };
+  }
+
+  /**
+   * Layers of 100 nodes where every node depends on two nodes of the previous layer.
+   * Scheduling cost is proportional to the number of edges, so even the largest graph
+   * has to be drained well within the time out.
+   */
+  @Test(dataProvider = "graphSizes", timeOut = 30000)
+  public void scalingTest(int size) {
+    int width = 100;
+    DynamicGraph<Node> dg = new DynamicGraph<>();
+    Node[] nodes = new Node[size];
+    for (int i = 0; i < size; i++) {
+      nodes[i] = new Node("n" + i);
+      dg.addNode(nodes[i]);
+    }
+    for (int i = width; i < size; i++) {
+      int layerStart = (i / width - 1) * width;
+      dg.addEdge(1, nodes[i], nodes[layerStart + i % width], nodes[layerStart + (i + 1) % width]);
+    }
+
+    int rounds = 0;
+    List<Node> freeNodes = dg.getFreeNodes();
+    while (!freeNodes.isEmpty()) {
+      dg.setStatus(freeNodes, Status.RUNNING);
+      dg.setStatus(freeNodes, Status.FINISHED);
+      freeNodes = dg.getFreeNodes();
+      rounds++;
+    }
+    Assert.assertEquals(dg.getNodeCountWithStatus(Status.FINISHED), size);
+    Assert.assertEquals(rounds, (size + width - 1) / width);
+  }
+
+  /**
+   * Two layers of 5,000 nodes where every node of the second layer depends on every node
+   * of the first one: a barrier stores that with 10,000 references instead of 25,000,000 edges.
+   */
+  @Test(timeOut = 30000)
+  public void barrierTest() {
+    int size = 5000;
+    DynamicGraph<Node> dg = new DynamicGraph<>();
+    List<Node> first = Lists.newArrayList();
+    List<Node> second = Lists.newArrayList();
+    for (int i = 0; i < size; i++) {
+      first.add(new Node("a" + i));
+      second.add(new Node("b" + i));
+    }
+    dg.addBarrier(1, second, first);
+    for (int i = 0; i < size; i++) {
+      dg.addNode(second.get(i));
+      dg.addNode(first.get(i));
+    }
+    Assert.assertEquals(dg.getFreeNodes(), first);
+    Assert.assertTrue(dg.getEdges().isEmpty());
+
+    dg.setStatus(first, Status.RUNNING);
+    dg.setStatus(first, Status.FINISHED);
+    Assert.assertEquals(dg.getFreeNodes(), second);
+  }
+
+  @Test
+  public void barrierIsIgnoredWhenStuck() {
+    /*
+      digraph barrier {
+        a -> b (1)
+        {b; c} -> {a} (0, barrier)
+      }
+    */
+    DynamicGraph<Node> dg = new DynamicGraph<>();
+    Node a = new Node("a");
+    Node b = new Node("b");
+    Node c = new Node("c");
+    dg.addBarrier(0, Arrays.asList(b, c), Arrays.asList(a));
+    dg.addNode(a);
+    dg.addNode(b);
+    dg.addNode(c);
+    dg.addEdge(1, a, b);
+    // a and b wait for each other, only the nodes waiting for the barrier can go first
+    assertFreeNodesEquals(dg, b, c);
+    dg.setStatus(b, Status.FINISHED);
+    dg.setStatus(c, Status.FINISHED);
+    assertFreeNodesEquals(dg, a);
+  }
 }
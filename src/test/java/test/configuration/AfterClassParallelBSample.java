@@ -0,0 +1,21 @@
+package test.configuration;
+
+import org.testng.annotations.Test;
+
+public class AfterClassParallelBSample extends AfterClassParallelBase {
+
+  @Test
+  public void test1() {
+    record("test");
+  }
+
+  @Test(invocationCount = 3)
+  public void test2() {
+    record("test");
+  }
+
+  @Test(enabled = false)
+  public void disabled() {
+    record("test");
+  }
+}
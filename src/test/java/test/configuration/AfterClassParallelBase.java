@@ -0,0 +1,23 @@
+package test.configuration;
+
+import org.testng.annotations.AfterClass;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class AfterClassParallelBase {
+  static final ConcurrentMap<String, List<String>> EVENTS = new ConcurrentHashMap<>();
+
+  protected void record(String event) {
+    List<String> events = new CopyOnWriteArrayList<>();
+    List<String> previous = EVENTS.putIfAbsent(getClass().getSimpleName(), events);
+    (previous == null ? events : previous).add(event);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    record("afterClass");
+  }
+}
@@ -0,0 +1,30 @@
+package test.configuration;
+
+import org.testng.Assert;
+import org.testng.TestNG;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlSuite;
+import test.SimpleBaseTest;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class AfterClassParallelTest extends SimpleBaseTest {
+
+  @Test
+  public void afterClassShouldRunOnceAfterAllTheMethodsOfItsClass() {
+    AfterClassParallelBase.EVENTS.clear();
+    XmlSuite suite = createXmlSuite("Suite");
+    suite.setParallel(XmlSuite.ParallelMode.METHODS);
+    suite.setThreadCount(4);
+    createXmlTest(suite, "Test", AfterClassParallelASample.class, AfterClassParallelBSample.class);
+    TestNG tng = create(suite);
+
+    tng.run();
+
+    Assert.assertEquals(AfterClassParallelBase.EVENTS.size(), 2);
+    for (List<String> events : AfterClassParallelBase.EVENTS.values()) {
+      Assert.assertEquals(events, Arrays.asList("test", "test", "test", "test", "afterClass"));
+    }
+  }
+}
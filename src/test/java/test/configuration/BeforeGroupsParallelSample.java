@@ -0,0 +1,63 @@
+package test.configuration;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterGroups;
+import org.testng.annotations.BeforeGroups;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BeforeGroupsParallelSample {
+  static final AtomicInteger BEFORE_GROUPS_COUNT = new AtomicInteger();
+  static final AtomicInteger AFTER_GROUPS_COUNT = new AtomicInteger();
+  static final AtomicInteger GROUP_TEST_COUNT = new AtomicInteger();
+  /** The number of group tests that ran before the afterGroups method */
+  static volatile int s_groupTestCountBeforeAfterGroups = -1;
+
+  private static volatile boolean s_beforeGroupsDone;
+
+  static void reset() {
+    BEFORE_GROUPS_COUNT.set(0);
+    AFTER_GROUPS_COUNT.set(0);
+    GROUP_TEST_COUNT.set(0);
+    s_groupTestCountBeforeAfterGroups = -1;
+    s_beforeGroupsDone = false;
+  }
+
+  @BeforeGroups("slow")
+  public void beforeGroups() throws InterruptedException {
+    BEFORE_GROUPS_COUNT.incrementAndGet();
+    Thread.sleep(200);
+    s_beforeGroupsDone = true;
+  }
+
+  @AfterGroups("slow")
+  public void afterGroups() {
+    AFTER_GROUPS_COUNT.incrementAndGet();
+    s_groupTestCountBeforeAfterGroups = GROUP_TEST_COUNT.get();
+  }
+
+  @Test(groups = "slow", invocationCount = 3)
+  public void groupTest1() {
+    groupTest();
+  }
+
+  @Test(groups = "slow")
+  public void groupTest2() {
+    groupTest();
+  }
+
+  @Test(groups = { "other", "slow" })
+  public void groupTest3() {
+    groupTest();
+  }
+
+  @Test
+  public void noGroupTest() {
+  }
+
+  private static void groupTest() {
+    Assert.assertTrue(s_beforeGroupsDone, "The beforeGroups method didn't complete");
+    GROUP_TEST_COUNT.incrementAndGet();
+  }
+}
@@ -0,0 +1,31 @@
+package test.configuration;
+
+import org.testng.Assert;
+import org.testng.TestListenerAdapter;
+import org.testng.TestNG;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlSuite;
+import test.SimpleBaseTest;
+
+public class BeforeGroupsParallelTest extends SimpleBaseTest {
+
+  @Test
+  public void groupConfigurationsShouldRunOnceAroundTheGroup() {
+    BeforeGroupsParallelSample.reset();
+    XmlSuite suite = createXmlSuite("Suite");
+    suite.setParallel(XmlSuite.ParallelMode.METHODS);
+    suite.setThreadCount(5);
+    createXmlTest(suite, "Test", BeforeGroupsParallelSample.class);
+    TestNG tng = create(suite);
+    TestListenerAdapter tla = new TestListenerAdapter();
+    tng.addListener(tla);
+
+    tng.run();
+
+    Assert.assertEquals(tla.getFailedTests().size(), 0);
+    Assert.assertEquals(tla.getPassedTests().size(), 6);
+    Assert.assertEquals(BeforeGroupsParallelSample.BEFORE_GROUPS_COUNT.get(), 1);
+    Assert.assertEquals(BeforeGroupsParallelSample.AFTER_GROUPS_COUNT.get(), 1);
+    Assert.assertEquals(BeforeGroupsParallelSample.s_groupTestCountBeforeAfterGroups, 5);
+  }
+}
@@ -190,6 +190,34 @@ public class DataProviderTest extends SimpleBaseTest {
             ")\\)"));
   }
 
+  @Test
+  public void parallelDataProviderShouldPullRowsLazily() {
+    StreamingParallelDataProviderSample.CREATED.set(0);
+    StreamingParallelDataProviderSample.COMPLETED.set(0);
+    StreamingParallelDataProviderSample.MAX_OUTSTANDING.set(0);
+    TestNG tng = create(StreamingParallelDataProviderSample.class);
+    tng.setDataProviderThreadCount(3);
+    tng.run();
+
+    assertThat(StreamingParallelDataProviderSample.COMPLETED.get())
+        .isEqualTo(StreamingParallelDataProviderSample.ROW_COUNT);
+    // At most two tasks per thread are submitted, plus the row read ahead by the producer
+    assertThat(StreamingParallelDataProviderSample.MAX_OUTSTANDING.get()).isLessThanOrEqualTo(2 * 3 + 1);
+  }
+
+  @Test
+  public void parallelDataProvidersShouldShareTheThreadsOfTheSuite() {
+    SharedPoolDataProviderSample.THREADS.clear();
+    TestNG tng = create(SharedPoolDataProviderSample.class);
+    tng.setDataProviderThreadCount(3);
+    InvokedMethodNameListener listener = new InvokedMethodNameListener();
+    tng.addListener((ITestNGListener) listener);
+    tng.run();
+
+    assertThat(listener.getSucceedMethodNames()).hasSize(60);
+    assertThat(SharedPoolDataProviderSample.THREADS.size()).isBetween(1, 3);
+  }
+
   @Test
   public void staticDataProviderTest() {
     InvokedMethodNameListener listener = run(StaticDataProviderSampleSample.class);
@@ -0,0 +1,41 @@
+package test.dataprovider;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Several parallel data providers, recording the threads that ran their rows.
+ */
+public class SharedPoolDataProviderSample {
+
+  public static final Set<Thread> THREADS =
+      Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+
+  @DataProvider(parallel = true)
+  public Object[][] rows() {
+    Object[][] result = new Object[20][];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = new Object[] { i };
+    }
+    return result;
+  }
+
+  @Test(dataProvider = "rows")
+  public void first(Integer index) {
+    THREADS.add(Thread.currentThread());
+  }
+
+  @Test(dataProvider = "rows")
+  public void second(Integer index) {
+    THREADS.add(Thread.currentThread());
+  }
+
+  @Test(dataProvider = "rows")
+  public void third(Integer index) {
+    THREADS.add(Thread.currentThread());
+  }
+}
@@ -0,0 +1,52 @@
+package test.dataprovider;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A parallel data provider which creates its rows lazily and records how many of
+ * them were created but not yet run.
+ */
+public class StreamingParallelDataProviderSample {
+
+  public static final int ROW_COUNT = 2_000;
+
+  public static final AtomicInteger CREATED = new AtomicInteger();
+  public static final AtomicInteger COMPLETED = new AtomicInteger();
+  public static final AtomicInteger MAX_OUTSTANDING = new AtomicInteger();
+
+  @DataProvider(parallel = true)
+  public Iterator<Object[]> rows() {
+    return new Iterator<Object[]>() {
+      private int m_index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return m_index < ROW_COUNT;
+      }
+
+      @Override
+      public Object[] next() {
+        int outstanding = CREATED.incrementAndGet() - COMPLETED.get();
+        int max = MAX_OUTSTANDING.get();
+        while (outstanding > max && !MAX_OUTSTANDING.compareAndSet(max, outstanding)) {
+          max = MAX_OUTSTANDING.get();
+        }
+        return new Object[] { m_index++ };
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Test(dataProvider = "rows")
+  public void row(Integer index) {
+    COMPLETED.incrementAndGet();
+  }
+}
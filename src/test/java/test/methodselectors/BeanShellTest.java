@@ -20,6 +20,20 @@ public class BeanShellTest extends BaseTest {
     verifyTests("Failed", failed, getFailedTests());
   }
 
+  @Test
+  public void groupRegexp() {
+    addClass("test.methodselectors.SampleTest");
+    setBeanShellExpression("hasGroup(\"test[12]\") && !method.getName().endsWith(\"2\")");
+    run();
+    String[] passed = {
+        "test1",
+    };
+    String[] failed = {
+    };
+    verifyTests("Passed", passed, getPassedTests());
+    verifyTests("Failed", failed, getFailedTests());
+  }
+
   public static void ppp(String s) {
     System.out.println("[MethodSelectorTest] " + s);
   }
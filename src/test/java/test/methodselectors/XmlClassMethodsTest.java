@@ -0,0 +1,63 @@
+package test.methodselectors;
+
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.TestListenerAdapter;
+import org.testng.TestNG;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import test.SimpleBaseTest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class XmlClassMethodsTest extends SimpleBaseTest {
+
+  private static Set<String> run(List<XmlInclude> includes, List<String> excludes) {
+    XmlSuite s = createXmlSuite("XmlClassMethods");
+    XmlTest t = createXmlTest(s, "XmlClassMethods test", SampleTest.class.getName());
+    XmlClass c = t.getClasses().get(0);
+    c.setIncludedMethods(includes);
+    c.setExcludedMethods(excludes);
+    TestNG tng = create();
+    tng.setXmlSuites(Arrays.asList(s));
+    TestListenerAdapter tla = new TestListenerAdapter();
+    tng.addListener(tla);
+    tng.run();
+
+    Set<String> result = new TreeSet<>();
+    for (ITestResult tr : tla.getPassedTests()) {
+      result.add(tr.getMethod().getMethodName());
+    }
+    return result;
+  }
+
+  @Test
+  public void namesAndRegexpsShouldBeIncluded() {
+    Set<String> passed = run(Arrays.asList(new XmlInclude("test1"), new XmlInclude("test[23]")),
+        Arrays.<String>asList());
+    Assert.assertEquals(passed, new TreeSet<>(Arrays.asList("test1", "test2", "test3")));
+  }
+
+  @Test
+  public void exclusionsShouldWinOverInclusions() {
+    Set<String> passed = run(Arrays.asList(new XmlInclude("test.*")), Arrays.asList("test3"));
+    Assert.assertEquals(passed, new TreeSet<>(Arrays.asList("test1", "test2")));
+
+    passed = run(Arrays.asList(new XmlInclude("test.*")), Arrays.asList("test[2-9]"));
+    Assert.assertEquals(passed, new TreeSet<>(Arrays.asList("test1")));
+  }
+
+  @Test
+  public void unknownNamesShouldNotBeIncluded() {
+    Set<String> passed = run(Arrays.asList(new XmlInclude("test2"), new XmlInclude("nope")),
+        Arrays.<String>asList());
+    Assert.assertEquals(passed, new TreeSet<>(Arrays.asList("test2")));
+  }
+}
@@ -0,0 +1,10 @@
+package test.prefilter;
+
+import org.testng.annotations.Test;
+
+public class AnnotatedSample {
+
+  @Test
+  public void test() {
+  }
+}
@@ -0,0 +1,9 @@
+package test.prefilter;
+
+import junit.framework.TestCase;
+
+public class JUnitSample extends TestCase {
+
+  public void testJUnit() {
+  }
+}
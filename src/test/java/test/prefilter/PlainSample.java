@@ -0,0 +1,8 @@
+package test.prefilter;
+
+/**
+ * Not a test class.
+ */
+public class PlainSample {
+  public long value = 42L;
+}
@@ -0,0 +1,7 @@
+package test.prefilter;
+
+/**
+ * A test class through its superclass only.
+ */
+public class SubclassSample extends AnnotatedSample {
+}
@@ -0,0 +1,24 @@
+package test.priority;
+
+import org.testng.annotations.Factory;
+import org.testng.annotations.Test;
+
+public class LargePriorityBucketsSample {
+
+  public static final int INSTANCE_COUNT = 5000;
+
+  @Factory
+  public static Object[] create() {
+    Object[] result = new Object[INSTANCE_COUNT];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = new LargePriorityBucketsSample();
+    }
+    return result;
+  }
+
+  @Test(priority = 1)
+  public void first() {}
+
+  @Test(priority = 2)
+  public void second() {}
+}
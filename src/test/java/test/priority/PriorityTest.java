@@ -9,6 +9,8 @@ import org.testng.xml.XmlSuite;
 import test.InvokedMethodNameListener;
 import test.SimpleBaseTest;
 
+import java.util.Arrays;
+
 public class PriorityTest extends SimpleBaseTest {
 
   private void runTest(Class<?> cls, boolean parallel, String... methods) {
@@ -46,4 +48,14 @@ public class PriorityTest extends SimpleBaseTest {
   public void priorityWithDependsOnMethods() {
     runTest(WithPriorityAndDependsMethodsSample.class, false /* sequential */, "first", "second", "third");
   }
+
+  @Test(description = "Two priorities of 5,000 methods each used to create 25,000,000 edges",
+      timeOut = 60000)
+  public void largePriorityBuckets() {
+    int count = LargePriorityBucketsSample.INSTANCE_COUNT;
+    String[] methods = new String[2 * count];
+    Arrays.fill(methods, 0, count, "first");
+    Arrays.fill(methods, count, 2 * count, "second");
+    runTest(LargePriorityBucketsSample.class, false /* sequential */, methods);
+  }
 }
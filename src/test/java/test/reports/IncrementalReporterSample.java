@@ -0,0 +1,24 @@
+package test.reports;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class IncrementalReporterSample {
+
+  @BeforeMethod
+  public void beforeMethod() {
+  }
+
+  @Test
+  public void passed() {
+  }
+
+  @Test
+  public void failed() {
+    throw new AssertionError("Failing intentionally");
+  }
+
+  @Test(dependsOnMethods = "failed")
+  public void skipped() {
+  }
+}
@@ -0,0 +1,86 @@
+package test.reports;
+
+import org.testng.ITestNGListener;
+import org.testng.TestNG;
+import org.testng.collections.Lists;
+import org.testng.annotations.Test;
+import org.testng.reporters.IncrementalReporter;
+import org.testng.reporters.XMLReporter;
+import org.testng.reporters.XMLReporterConfig;
+import org.testng.xml.XmlSuite;
+import test.InvokedMethodNameListener;
+import test.SimpleBaseTest;
+import test.TestHelper;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IncrementalReporterTest extends SimpleBaseTest {
+
+  @Test
+  public void resultsShouldBeWrittenWhileTheTestsRun() throws IOException {
+    Path outputDirectory = TestHelper.createRandomDirectory();
+    IncrementalReporterVerifierSample.s_outputDirectory = outputDirectory;
+    XmlSuite suite = createXmlSuite("IncrementalSuiteA");
+    createXmlTest(suite, "First", IncrementalReporterSample.class);
+    createXmlTest(suite, "Second", IncrementalReporterVerifierSample.class);
+    TestNG tng = create(outputDirectory, suite);
+    IncrementalReporter reporter = new IncrementalReporter();
+    reporter.setOutputDirectory(outputDirectory.toString());
+    tng.addListener((ITestNGListener) reporter);
+    InvokedMethodNameListener listener = new InvokedMethodNameListener();
+    tng.addListener((ITestNGListener) listener);
+
+    tng.run();
+
+    assertThat(listener.getSucceedMethodNames()).contains("previousTestShouldBeReported");
+    assertThat(outputDirectory.resolve(XMLReporter.FILE_NAME)).exists();
+    assertThat(outputDirectory.resolve("IncrementalSuiteA").resolve(XMLReporter.FILE_NAME)).exists();
+    assertThat(outputDirectory.resolve("IncrementalSuiteA").resolve("Second.xml")).exists();
+    String junitReport = new String(Files.readAllBytes(outputDirectory.resolve("junitreports")
+        .resolve("TEST-" + IncrementalReporterSample.class.getName() + ".xml")), "UTF-8");
+    assertThat(junitReport).contains("tests=\"3\"", "failures=\"1\"", "skipped=\"1\"");
+  }
+
+  @Test
+  public void shouldWriteTheSameFilesAsTheXmlReporter() throws IOException {
+    Path incremental = TestHelper.createRandomDirectory();
+    Path xml = TestHelper.createRandomDirectory();
+    XmlSuite suiteA = createXmlSuite("IncrementalSuiteA", "TestA", IncrementalReporterSample.class);
+    XmlSuite suiteB = createXmlSuite("IncrementalSuiteB");
+    createXmlTest(suiteB, "TestB1", SampleA.class);
+    createXmlTest(suiteB, "TestB2", SimpleFailedSample.class);
+    TestNG tng = create(suiteA, suiteB);
+    IncrementalReporter reporter = new IncrementalReporter();
+    reporter.setOutputDirectory(incremental.toString());
+    tng.addListener((ITestNGListener) reporter);
+    XMLReporter xmlReporter = new XMLReporter();
+    xmlReporter.setOutputDirectory(xml.toString());
+    xmlReporter.setFileFragmentationLevel(XMLReporterConfig.FF_LEVEL_SUITE_RESULT);
+    tng.addListener((ITestNGListener) xmlReporter);
+
+    tng.run();
+
+    final List<Path> files = Lists.newArrayList();
+    Files.walkFileTree(xml, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        files.add(file);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    assertThat(files).hasSize(6);
+    for (Path file : files) {
+      Path relative = xml.relativize(file);
+      assertThat(Files.readAllBytes(incremental.resolve(relative)))
+          .as(relative.toString()).isEqualTo(Files.readAllBytes(file));
+    }
+  }
+}
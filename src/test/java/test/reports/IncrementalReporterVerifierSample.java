@@ -0,0 +1,40 @@
+package test.reports;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IncrementalReporterVerifierSample {
+
+  /** The output directory of the running suite */
+  static Path s_outputDirectory;
+
+  @Test
+  public void previousTestShouldBeReported() throws IOException, InterruptedException {
+    String junitReport = waitForFile(s_outputDirectory.resolve("junitreports")
+        .resolve("TEST-" + IncrementalReporterSample.class.getName() + ".xml"), "</testsuite>");
+    assertThat(junitReport).contains("tests=\"3\"");
+    String testFile = waitForFile(s_outputDirectory.resolve("IncrementalSuiteA").resolve("First.xml"), "</test>");
+    assertThat(testFile).contains("name=\"passed\"", "name=\"failed\"", "name=\"skipped\"");
+  }
+
+  /**
+   * The files are written in the background, so wait until the file is complete.
+   */
+  private static String waitForFile(Path file, String end) throws IOException, InterruptedException {
+    for (int i = 0; i < 100; i++) {
+      if (Files.exists(file)) {
+        String result = new String(Files.readAllBytes(file), "UTF-8");
+        if (result.contains(end)) {
+          return result;
+        }
+      }
+      Thread.sleep(100);
+    }
+    throw new AssertionError(file + " wasn't written");
+  }
+}
@@ -0,0 +1,107 @@
+package test.reports;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.testng.internal.Utils;
+import org.testng.reporters.NioFileStringBuffer;
+import org.testng.reporters.XMLStringBuffer;
+import test.TestHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NioFileStringBufferTest {
+
+  /** Contains characters encoded on 1 to 4 bytes in UTF-8 */
+  private static final String CHARACTERS = "abcdefghij\u00E9\u00E8\u20AC\uD83D\uDE00\n<>&";
+
+  @DataProvider
+  public Object[][] maxCharacters() {
+    return new Object[][] {
+        new Object[] { 1 },
+        new Object[] { 5 },
+        new Object[] { 1000 },
+        new Object[] { 100000 },
+    };
+  }
+
+  @Test(dataProvider = "maxCharacters")
+  public void contentShouldBeKeptInOrder(int maxCharacters) throws IOException {
+    Random random = new Random(maxCharacters);
+    String expected = randomString(random, 500000);
+    try (NioFileStringBuffer buffer = new NioFileStringBuffer(maxCharacters)) {
+      int start = 0;
+      while (start < expected.length()) {
+        // Mostly small fragments and a few big ones, sometimes cutting the surrogate pairs
+        int length = random.nextInt(100) == 0 ? random.nextInt(200000) : random.nextInt(20);
+        int end = Math.min(expected.length(), start + length);
+        buffer.append(expected.substring(start, end));
+        start = end;
+      }
+
+      assertThat(buffer.toString()).isEqualTo(expected);
+
+      StringWriter writer = new StringWriter();
+      buffer.toWriter(writer);
+      assertThat(writer.toString()).isEqualTo(expected);
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      buffer.toChannel(Channels.newChannel(out));
+      assertThat(out.toByteArray()).isEqualTo(expected.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void appendShouldWorkAfterTheContentWasWritten() throws IOException {
+    try (NioFileStringBuffer buffer = new NioFileStringBuffer(3)) {
+      buffer.append("0123456789");
+      assertThat(buffer.toString()).isEqualTo("0123456789");
+      buffer.append("abcdef").append("\u20AC");
+      assertThat(buffer.toString()).isEqualTo("0123456789abcdef\u20AC");
+    }
+  }
+
+  @Test
+  public void emptyBuffer() throws IOException {
+    try (NioFileStringBuffer buffer = new NioFileStringBuffer()) {
+      assertThat(buffer.toString()).isEmpty();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      buffer.toChannel(Channels.newChannel(out));
+      assertThat(out.toByteArray()).isEmpty();
+    }
+  }
+
+  @Test
+  public void writeUtf8FileShouldTransferTheContent() throws IOException {
+    Path outputDirectory = TestHelper.createRandomDirectory();
+    XMLStringBuffer xsb = new XMLStringBuffer(new NioFileStringBuffer(10), "");
+    for (int i = 0; i < 100; i++) {
+      xsb.addRequired("value", "\u00E9t\u00E9 " + i);
+    }
+
+    Utils.writeUtf8File(outputDirectory.toString(), "result.xml", xsb, "<!-- prefix -->");
+
+    byte[] content = Files.readAllBytes(outputDirectory.resolve("result.xml"));
+    assertThat(new String(content, StandardCharsets.UTF_8)).isEqualTo("<!-- prefix -->" + xsb.toXML());
+  }
+
+  private static String randomString(Random random, int length) {
+    StringBuilder result = new StringBuilder();
+    while (result.length() < length) {
+      int index = random.nextInt(CHARACTERS.length());
+      if (Character.isLowSurrogate(CHARACTERS.charAt(index))) {
+        index--;
+      }
+      result.appendCodePoint(CHARACTERS.codePointAt(index));
+    }
+    return result.toString();
+  }
+}
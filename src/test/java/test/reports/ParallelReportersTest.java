@@ -0,0 +1,162 @@
+package test.reports;
+
+import org.testng.IReporter;
+import org.testng.ISuite;
+import org.testng.IShardedReporter;
+import org.testng.ITestNGListener;
+import org.testng.TestNG;
+import org.testng.annotations.Test;
+import org.testng.collections.Lists;
+import org.testng.reporters.XMLReporter;
+import org.testng.reporters.XMLReporterConfig;
+import org.testng.xml.XmlSuite;
+import test.SimpleBaseTest;
+import test.TestHelper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelReportersTest extends SimpleBaseTest {
+
+  /** Waits for the other reporters, so it only completes if they all run concurrently */
+  public static class BarrierReporter implements IReporter {
+    private final CyclicBarrier m_barrier;
+    private boolean m_completed;
+
+    public BarrierReporter(CyclicBarrier barrier) {
+      m_barrier = barrier;
+    }
+
+    @Override
+    public void generateReport(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory) {
+      try {
+        m_barrier.await(10, TimeUnit.SECONDS);
+        m_completed = true;
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  public static class BarrierReporter2 extends BarrierReporter {
+    public BarrierReporter2(CyclicBarrier barrier) {
+      super(barrier);
+    }
+  }
+
+  public static class FailingReporter implements IReporter {
+    @Override
+    public void generateReport(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory) {
+      throw new IllegalStateException("Failing intentionally");
+    }
+  }
+
+  public static class ShardedReporter implements IShardedReporter {
+    private final List<String> m_events = Collections.synchronizedList(Lists.<String>newArrayList());
+
+    @Override
+    public List<Runnable> createShards(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory) {
+      List<Runnable> result = Lists.newArrayList();
+      for (final ISuite suite : suites) {
+        result.add(new Runnable() {
+          @Override
+          public void run() {
+            m_events.add(suite.getName());
+          }
+        });
+      }
+      return result;
+    }
+
+    @Override
+    public void finishReport(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory) {
+      m_events.add("finish");
+    }
+
+    @Override
+    public void generateReport(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory) {
+      m_events.add("generateReport");
+    }
+  }
+
+  @Test
+  public void reportersShouldRunConcurrently() {
+    CyclicBarrier barrier = new CyclicBarrier(2);
+    BarrierReporter reporter1 = new BarrierReporter(barrier);
+    BarrierReporter reporter2 = new BarrierReporter2(barrier);
+    TestNG tng = create(SampleA.class);
+    tng.setReporterThreadCount(2);
+    tng.addListener((ITestNGListener) reporter1);
+    tng.addListener((ITestNGListener) reporter2);
+
+    tng.run();
+
+    assertThat(reporter1.m_completed).isTrue();
+    assertThat(reporter2.m_completed).isTrue();
+  }
+
+  @Test
+  public void failingReporterShouldNotPreventTheOthersFromRunning() {
+    ShardedReporter reporter = new ShardedReporter();
+    TestNG tng = create(SampleA.class);
+    tng.setReporterThreadCount(2);
+    tng.addListener((ITestNGListener) new FailingReporter());
+    tng.addListener((ITestNGListener) reporter);
+
+    tng.run();
+
+    assertThat(reporter.m_events).isNotEmpty();
+  }
+
+  @Test
+  public void shardsShouldRunBeforeTheReportIsFinished() {
+    ShardedReporter reporter = new ShardedReporter();
+    TestNG tng = create(createXmlSuite("Suite1", "Test1", SampleA.class),
+        createXmlSuite("Suite2", "Test2", SampleB.class), createXmlSuite("Suite3", "Test3", SampleA.class));
+    tng.setReporterThreadCount(3);
+    tng.addListener((ITestNGListener) reporter);
+
+    tng.run();
+
+    assertThat(reporter.m_events).hasSize(4);
+    assertThat(reporter.m_events.subList(0, 3)).containsOnly("Suite1", "Suite2", "Suite3");
+    assertThat(reporter.m_events.get(3)).isEqualTo("finish");
+  }
+
+  @Test
+  public void shardedReporterShouldBeCalledAsUsualWithOneThread() {
+    ShardedReporter reporter = new ShardedReporter();
+    TestNG tng = create(SampleA.class);
+    tng.addListener((ITestNGListener) reporter);
+
+    tng.run();
+
+    assertThat(reporter.m_events).containsExactly("generateReport");
+  }
+
+  @Test
+  public void xmlReporterShouldWriteTheFilesOfAllTheSuites() throws IOException {
+    Path outputDirectory = TestHelper.createRandomDirectory();
+    TestNG tng = create(createXmlSuite("Suite1", "Test1", SampleA.class),
+        createXmlSuite("Suite2", "Test2", SampleB.class));
+    tng.setReporterThreadCount(3);
+    XMLReporter reporter = new XMLReporter();
+    reporter.setFileFragmentationLevel(XMLReporterConfig.FF_LEVEL_SUITE_RESULT);
+    reporter.setOutputDirectory(outputDirectory.toString());
+    tng.addListener((ITestNGListener) reporter);
+
+    tng.run();
+
+    assertThat(outputDirectory.resolve(XMLReporter.FILE_NAME)).exists();
+    assertThat(outputDirectory.resolve("Suite1").resolve(XMLReporter.FILE_NAME)).exists();
+    assertThat(outputDirectory.resolve("Suite1").resolve("Test1.xml")).exists();
+    assertThat(outputDirectory.resolve("Suite2").resolve(XMLReporter.FILE_NAME)).exists();
+    assertThat(outputDirectory.resolve("Suite2").resolve("Test2.xml")).exists();
+  }
+}
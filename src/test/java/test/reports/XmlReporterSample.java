@@ -0,0 +1,23 @@
+package test.reports;
+
+import org.testng.Reporter;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class XmlReporterSample {
+
+  @DataProvider
+  public Object[][] dp() {
+    return new Object[][] { { "a" }, { "b]]>c" }, { "\u00E9\uD83D\uDE00" } };
+  }
+
+  @Test(dataProvider = "dp", description = "Logs characters that XML doesn't allow")
+  public void log(String s) {
+    Reporter.log(s + "\u0001\uD800\u0378\uFFFE");
+  }
+
+  @Test(dependsOnMethods = "log")
+  public void failed() {
+    throw new IllegalStateException("Failing \uDC00 intentionally");
+  }
+}
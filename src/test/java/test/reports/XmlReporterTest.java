@@ -0,0 +1,113 @@
+package test.reports;
+
+import org.testng.IReporter;
+import org.testng.ISuite;
+import org.testng.ITestNGListener;
+import org.testng.TestNG;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.testng.internal.Utils;
+import org.testng.reporters.WriterBuffer;
+import org.testng.reporters.XMLReporter;
+import org.testng.reporters.XMLReporterConfig;
+import org.testng.reporters.XMLStringBuffer;
+import org.testng.xml.XmlSuite;
+import test.SimpleBaseTest;
+import test.TestHelper;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class XmlReporterTest extends SimpleBaseTest {
+
+  @DataProvider
+  public static Object[][] fileFragmentationLevels() {
+    return new Object[][] {
+        { XMLReporterConfig.FF_LEVEL_NONE },
+        { XMLReporterConfig.FF_LEVEL_SUITE },
+        { XMLReporterConfig.FF_LEVEL_SUITE_RESULT }
+    };
+  }
+
+  @Test(dataProvider = "fileFragmentationLevels")
+  public void streamingShouldWriteTheSameFiles(final int fileFragmentationLevel) throws IOException {
+    final Path buffered = TestHelper.createRandomDirectory();
+    final Path streamed = TestHelper.createRandomDirectory();
+
+    XmlSuite suiteA = createXmlSuite("SuiteA");
+    createXmlTest(suiteA, "TestA1", XmlReporterSample.class, SimpleFailedSample.class);
+    createXmlTest(suiteA, "TestA2", SampleA.class);
+    XmlSuite suiteB = createXmlSuite("SuiteB", "TestB", SampleB.class);
+    TestNG tng = create(suiteA, suiteB);
+    // Both reports are generated from the same results, so that they can be compared
+    tng.addListener((ITestNGListener) new IReporter() {
+      @Override
+      public void generateReport(List<XmlSuite> xmlSuites, List<ISuite> suites, String outputDirectory) {
+        generateXmlReport(xmlSuites, suites, buffered, fileFragmentationLevel, false);
+        generateXmlReport(xmlSuites, suites, streamed, fileFragmentationLevel, true);
+      }
+    });
+
+    tng.run();
+
+    Map<Path, byte[]> expected = readFiles(buffered);
+    Map<Path, byte[]> actual = readFiles(streamed);
+    assertThat(actual.keySet()).containsExactlyElementsOf(expected.keySet());
+    assertThat(expected).isNotEmpty();
+    for (Map.Entry<Path, byte[]> entry : expected.entrySet()) {
+      assertThat(actual.get(entry.getKey())).as(entry.getKey().toString()).isEqualTo(entry.getValue());
+    }
+  }
+
+  private static void generateXmlReport(List<XmlSuite> xmlSuites, List<ISuite> suites, Path outputDirectory,
+      int fileFragmentationLevel, boolean streaming) {
+    XMLReporter reporter = new XMLReporter();
+    reporter.setFileFragmentationLevel(fileFragmentationLevel);
+    reporter.setStreaming(streaming);
+    reporter.generateReport(xmlSuites, suites, outputDirectory.toString());
+  }
+
+  private static Map<Path, byte[]> readFiles(final Path directory) throws IOException {
+    final Map<Path, byte[]> result = new TreeMap<>();
+    Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        result.put(directory.relativize(file), Files.readAllBytes(file));
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return result;
+  }
+
+  @Test
+  public void sanitizingShouldRemoveTheSameCharactersAsToXml() {
+    String[] content = {
+        "valid \u00E9\uD83D", "\uDE00 pair split between two appends",
+        "control \u0001 and non characters \uFFFE\uFFFF",
+        "unpaired \uD800 surrogates \uDC00\uD800",
+        "\uD801\uDC37 undefined \u0378", "\uD800"
+    };
+    XMLStringBuffer expected = new XMLStringBuffer();
+    StringWriter actual = new StringWriter();
+    XMLStringBuffer streamed = new XMLStringBuffer(new WriterBuffer(actual, true), "1.0", "UTF-8");
+    for (XMLStringBuffer xsb : new XMLStringBuffer[] { expected, streamed }) {
+      xsb.push("content");
+      for (String s : content) {
+        xsb.addString(s);
+      }
+      xsb.pop();
+    }
+
+    assertThat(actual.toString()).isEqualTo(Utils.escapeUnicode(expected.toXML()));
+  }
+}
@@ -66,12 +66,27 @@ public class MultiThreadedDependentTest extends SimpleBaseTest {
     test(3);
   }
 
+  @Test
+  public void test2ThreadsWorkStealing() {
+    test(2, XmlSuite.ExecutorMode.WORK_STEALING);
+  }
+
+  @Test
+  public void test3ThreadsWorkStealing() {
+    test(3, XmlSuite.ExecutorMode.WORK_STEALING);
+  }
+
   private void test(int threadCount) {
+    test(threadCount, XmlSuite.DEFAULT_EXECUTOR_MODE);
+  }
+
+  private void test(int threadCount, XmlSuite.ExecutorMode executorMode) {
     Helper.reset();
     MultiThreadedDependentSampleTest.m_methods = Lists.newArrayList();
     TestNG tng = create(MultiThreadedDependentSampleTest.class);
     tng.setThreadCount(threadCount);
     tng.setParallel(XmlSuite.ParallelMode.METHODS);
+    tng.setExecutorMode(executorMode);
     Map<Long, Long> map = Helper.getMap(MultiThreadedDependentSampleTest.class.getName());
     synchronized(map) {
       tng.run();
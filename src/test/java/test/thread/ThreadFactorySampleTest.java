@@ -0,0 +1,48 @@
+package test.thread;
+
+import org.testng.Reporter;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.testng.internal.thread.ThreadUtil;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ThreadFactorySampleTest {
+
+  /** method name -> whether it ran on a thread that TestNG recognizes as its own */
+  public static final Map<String, Boolean> m_testNGThreads = new ConcurrentHashMap<>();
+
+  private static void record(String methodName) {
+    m_testNGThreads.put(methodName, ThreadUtil.isTestNGThread());
+  }
+
+  @Test
+  public void parallel() {
+    record("parallel");
+  }
+
+  @Test(timeOut = 10000)
+  public void withTimeOut() {
+    Reporter.log("withTimeOut");
+    record("withTimeOut");
+  }
+
+  @Test(threadPoolSize = 2, invocationCount = 2, timeOut = 10000)
+  public void withThreadPoolSize() {
+    record("withThreadPoolSize");
+  }
+
+  @DataProvider(parallel = true)
+  public Object[][] dp() {
+    return new Object[][] {
+        new Object[] { 1 },
+        new Object[] { 2 },
+    };
+  }
+
+  @Test(dataProvider = "dp")
+  public void withDataProvider(int i) {
+    record("withDataProvider");
+  }
+}
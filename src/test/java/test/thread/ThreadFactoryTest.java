@@ -0,0 +1,74 @@
+package test.thread;
+
+import org.testng.Assert;
+import org.testng.ITestNGListener;
+import org.testng.ITestNGThreadFactory;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.TestListenerAdapter;
+import org.testng.TestNG;
+import org.testng.annotations.Test;
+import org.testng.collections.Lists;
+import org.testng.internal.thread.VirtualThreadFactory;
+import org.testng.xml.XmlSuite;
+
+import test.SimpleBaseTest;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ThreadFactoryTest extends SimpleBaseTest {
+
+  public static class RecordingThreadFactory implements ITestNGThreadFactory {
+    private static final long serialVersionUID = 1L;
+    private final List<String> m_names = Collections.synchronizedList(Lists.<String>newArrayList());
+
+    @Override
+    public Thread newThread(Runnable target, String name) {
+      m_names.add(name);
+      return new Thread(target, name);
+    }
+  }
+
+  private TestListenerAdapter run(ITestNGThreadFactory threadFactory) {
+    ThreadFactorySampleTest.m_testNGThreads.clear();
+    TestNG tng = create(ThreadFactorySampleTest.class);
+    tng.setParallel(XmlSuite.ParallelMode.METHODS);
+    tng.setThreadFactory(threadFactory);
+    TestListenerAdapter tla = new TestListenerAdapter();
+    tng.addListener((ITestNGListener) tla);
+    tng.run();
+
+    Assert.assertEquals(tla.getPassedTests().size(), 6);
+    Assert.assertTrue(tla.getFailedTests().isEmpty());
+    for (ITestResult result : tla.getPassedTests()) {
+      if ("withTimeOut".equals(result.getMethod().getMethodName())) {
+        Assert.assertEquals(Reporter.getOutput(result), Collections.singletonList("withTimeOut"));
+      }
+    }
+    Assert.assertFalse(ThreadFactorySampleTest.m_testNGThreads.get("parallel"));
+    Assert.assertTrue(ThreadFactorySampleTest.m_testNGThreads.get("withThreadPoolSize"));
+    return tla;
+  }
+
+  @Test
+  public void allThreadsShouldBeCreatedByTheFactory() {
+    RecordingThreadFactory threadFactory = new RecordingThreadFactory();
+    run(threadFactory);
+
+    List<String> prefixes = Lists.newArrayList();
+    for (String name : threadFactory.m_names) {
+      prefixes.add(name.replaceAll("[0-9]+$", "")
+          .replaceAll("^TimeOutWatchdog-.*", "TimeOutWatchdog-"));
+    }
+    Assert.assertTrue(prefixes.contains("TestRunner-"), prefixes.toString());
+    Assert.assertTrue(prefixes.contains("TimeOutWatchdog-"), prefixes.toString());
+    Assert.assertTrue(prefixes.contains("TestNG"), prefixes.toString());
+    Assert.assertTrue(prefixes.contains("DataProviderPool-"), prefixes.toString());
+  }
+
+  @Test
+  public void virtualThreads() {
+    run(new VirtualThreadFactory());
+  }
+}
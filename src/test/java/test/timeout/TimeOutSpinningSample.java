@@ -0,0 +1,20 @@
+package test.timeout;
+
+import org.testng.annotations.Test;
+
+public class TimeOutSpinningSample {
+
+  private volatile boolean m_done;
+
+  @Test(timeOut = 500)
+  public void spin() {
+    while (!m_done) {
+      // ignores interrupts
+    }
+  }
+
+  @Test(dependsOnMethods = "spin", alwaysRun = true)
+  public void stop() {
+    m_done = true;
+  }
+}
@@ -0,0 +1,30 @@
+package test.timeout;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.testng.collections.Lists;
+
+import java.util.Collections;
+import java.util.List;
+
+public class TimeOutThreadLocalSample {
+
+  public static final int INVOCATION_COUNT = 3;
+  public static final InheritableThreadLocal<Integer> m_inherited = new InheritableThreadLocal<>();
+  public static final List<Integer> m_seen = Collections.synchronizedList(Lists.<Integer>newArrayList());
+  private static final ThreadLocal<Boolean> m_local = new ThreadLocal<>();
+  private int m_invocation;
+
+  @BeforeMethod
+  public void setInherited() {
+    m_inherited.set(++m_invocation);
+  }
+
+  @Test(invocationCount = INVOCATION_COUNT, timeOut = 10_000)
+  public void f() {
+    m_seen.add(m_inherited.get());
+    Assert.assertNull(m_local.get(), "Leaked by the previous invocation");
+    m_local.set(Boolean.TRUE);
+  }
+}
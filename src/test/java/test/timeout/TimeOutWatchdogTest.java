@@ -0,0 +1,94 @@
+package test.timeout;
+
+import org.testng.Assert;
+import org.testng.ITestNGListener;
+import org.testng.TestListenerAdapter;
+import org.testng.TestNG;
+import org.testng.annotations.Test;
+import org.testng.internal.thread.TimeOutWatchdog;
+
+import test.SimpleBaseTest;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TimeOutWatchdogTest extends SimpleBaseTest {
+
+  @Test
+  public void overdueInvocationShouldBeAbandoned() throws InterruptedException {
+    TimeOutWatchdog watchdog = new TimeOutWatchdog(null, "test");
+    try {
+      final AtomicReference<Thread> thread = new AtomicReference<>();
+      TimeOutWatchdog.Invocation invocation = watchdog.submit(new Runnable() {
+        @Override
+        public void run() {
+          thread.set(Thread.currentThread());
+          try {
+            Thread.sleep(10_000);
+            Assert.fail("The watchdog should have interrupted the sleep");
+          } catch (InterruptedException expected) {
+          }
+        }
+      }, 100);
+      Assert.assertTrue(invocation.await());
+      Assert.assertNotNull(invocation.getStackTrace());
+      Assert.assertNull(invocation.getFailure());
+      Assert.assertNotSame(thread.get(), Thread.currentThread());
+      Assert.assertFalse(Thread.currentThread().isInterrupted());
+
+      invocation = watchdog.submit(new Runnable() {
+        @Override
+        public void run() {
+          throw new IllegalStateException();
+        }
+      }, 10_000);
+      Assert.assertFalse(invocation.await());
+      Assert.assertNull(invocation.getStackTrace());
+      Assert.assertTrue(invocation.getFailure() instanceof IllegalStateException);
+      Assert.assertEquals(watchdog.getInvocationCount(), 2);
+    } finally {
+      watchdog.shutdown();
+    }
+  }
+
+  @Test(description = "A method ignoring interrupts used to hang the suite")
+  public void spinningInvocationShouldTimeOut() {
+    TestNG tng = create(TimeOutSpinningSample.class);
+    TestListenerAdapter tla = new TestListenerAdapter();
+    tng.addListener((ITestNGListener) tla);
+    tng.run();
+
+    Assert.assertEquals(tla.getFailedTests().size(), 1);
+    Assert.assertEquals(tla.getPassedTests().size(), 1);
+  }
+
+  @Test(description = "The reused workers didn't inherit the thread locals of the caller and "
+      + "leaked their own to the next invocations")
+  public void invocationsShouldSeeTheThreadLocalsOfTheCaller() {
+    TimeOutThreadLocalSample.m_seen.clear();
+    TestNG tng = create(TimeOutThreadLocalSample.class);
+    TestListenerAdapter tla = new TestListenerAdapter();
+    tng.addListener((ITestNGListener) tla);
+    try {
+      tng.run();
+    } finally {
+      TimeOutThreadLocalSample.m_inherited.remove();
+    }
+
+    Assert.assertEquals(tla.getPassedTests().size(), TimeOutThreadLocalSample.INVOCATION_COUNT);
+    Assert.assertEquals(TimeOutThreadLocalSample.m_seen, Arrays.asList(1, 2, 3));
+  }
+
+  @Test
+  public void invocationsShouldNotShareTheirThread() {
+    TimeOutWithDataProviderSample.m_threads.clear();
+    TestNG tng = create(TimeOutWithDataProviderSample.class);
+    TestListenerAdapter tla = new TestListenerAdapter();
+    tng.addListener((ITestNGListener) tla);
+    tng.run();
+
+    Assert.assertEquals(tla.getPassedTests().size(), TimeOutWithDataProviderSample.ROW_COUNT);
+    Assert.assertEquals(TimeOutWithDataProviderSample.m_threads.size(),
+        TimeOutWithDataProviderSample.ROW_COUNT);
+  }
+}
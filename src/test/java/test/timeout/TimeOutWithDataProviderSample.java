@@ -0,0 +1,29 @@
+package test.timeout;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TimeOutWithDataProviderSample {
+
+  public static final int ROW_COUNT = 1000;
+  public static final Set<Thread> m_threads =
+      Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+
+  @DataProvider
+  public Object[][] dp() {
+    Object[][] result = new Object[ROW_COUNT][];
+    for (int i = 0; i < ROW_COUNT; i++) {
+      result[i] = new Object[] { i };
+    }
+    return result;
+  }
+
+  @Test(dataProvider = "dp", timeOut = 10_000)
+  public void f(int i) {
+    m_threads.add(Thread.currentThread());
+  }
+}